@@ -0,0 +1,14 @@
+#!/bin/bash
+# 编译并运行各编译阶段的性能测试，默认测试 testfiles 中的程序和一个约一万行的生成程序
+# 用法：bash bench.sh [--input <文件|目录>]... [--scale <行数>[,<行数>...]] [--phase <阶段名>]... [--warmup <ms>] [--time <ms>] [--csv]
+root=$(cd "$(dirname "$0")" && pwd)
+classes="${TMPDIR:-/tmp}/sysy-bench"
+
+rm -rf "$classes"
+javac -nowarn -encoding UTF-8 -d "$classes" $(find "$root/src/java" "$root/src/bench" -name '*.java') || exit 1
+
+if [ $# -eq 0 ]; then
+    set -- --input "$root/testfiles" --scale 10000
+fi
+
+exec java -Xss64m -cp "$classes" sysy.bench.PhaseBenchmark "$@"
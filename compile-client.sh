@@ -0,0 +1,15 @@
+#!/bin/bash
+# 连接 `java Compiler --server` 启动的编译服务器进行编译，用法同 CompileClient：
+# bash compile-client.sh [--socket <path>] [--llvm] [--no-optimize|-O0|-O1|-O2] [<source> [<outdir>]]，默认 -O0
+root=$(cd "$(dirname "$0")" && pwd)
+classes="${TMPDIR:-/tmp}/sysy-compile-client"
+sources=("$root/src/java/sysy/driver/CompileClient.java" "$root/src/java/sysy/driver/CompileProtocol.java")
+
+if [ ! -f "$classes/sysy/driver/CompileClient.class" ] \
+        || [ "${sources[0]}" -nt "$classes/sysy/driver/CompileClient.class" ] \
+        || [ "${sources[1]}" -nt "$classes/sysy/driver/CompileProtocol.class" ]; then
+    javac -d "$classes" "${sources[@]}" || exit 1
+fi
+
+# the client is short-lived, so skip the optimizing JIT
+exec java -XX:TieredStopAtLevel=1 -cp "$classes" sysy.driver.CompileClient "$@"
@@ -0,0 +1,130 @@
+package sysy.bench;
+
+import sysy.driver.CompileResult;
+import sysy.driver.Compilation;
+import sysy.error.ErrorRecorder;
+import sysy.frontend.lexer.Lexer;
+import sysy.frontend.parser.FlatParser;
+import sysy.frontend.visitor.Visitor;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/*
+ * Compiles programs that nest one construct very deeply, e.g. a block in a block in a block, or that chain one
+ * operator very long, on a thread with the default stack size. A shape passes if it gets through parsing and IR
+ * generation without crashing, so the frontend must not recurse once per level. With --full the program is compiled
+ * to MIPS, which for some shapes takes far longer than the frontend.
+ */
+public class DepthStress {
+    private static final String USAGE = """
+            usage: DepthStress [--depth <n>] [--shape <name>]... [--stack <kb>] [--full [--optimize]]""";
+
+    private static final Map<String, IntFunction<String>> SHAPES = new LinkedHashMap<>();
+
+    static {
+        SHAPES.put("blocks", n -> main("{".repeat(n) + "a = 1;" + "}".repeat(n)));
+        SHAPES.put("ifs", n -> main("if (a) ".repeat(n) + "a = 2;"));
+        SHAPES.put("else-ifs", n -> main("if (a == 0) a = 1; else ".repeat(n) + "a = 2;"));
+        SHAPES.put("loops", n -> main("for (;a < 1;) ".repeat(n) + "break;"));
+        SHAPES.put("add-chain", n -> main("a = a" + " + a".repeat(n) + ";"));
+        SHAPES.put("or-chain", n -> main("if (a" + " || a".repeat(n) + ") a = 2;"));
+        SHAPES.put("and-chain", n -> main("if (a" + " && a".repeat(n) + ") a = 2;"));
+        SHAPES.put("parens", n -> main("a = " + "(".repeat(n) + "a" + ")".repeat(n) + ";"));
+        SHAPES.put("right-nested", n -> main("a = " + "a - (".repeat(n) + "a" + ")".repeat(n) + ";"));
+        SHAPES.put("unary", n -> main("a = " + "- ".repeat(n) + "a;"));
+        SHAPES.put("indices", n -> main("a = " + "b[".repeat(n) + "0" + "]".repeat(n) + ";"));
+        SHAPES.put("calls", n -> main("a = " + "f(".repeat(n) + "0" + ")".repeat(n) + ";"));
+    }
+
+    private static String main(String body) {
+        return """
+                int f(int x) {
+                    return x;
+                }
+
+                int main() {
+                    int a;
+                    int b[1] = {0};
+                    a = getint();
+                    %s
+                    printf("%%d\\n", a);
+                    return 0;
+                }
+                """.formatted(body);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int depth = 100000;
+        long stackSize = 0; // the default of the platform
+        boolean full = false;
+        boolean optimize = false;
+        List<String> shapes = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (i + 1 >= args.length && !args[i].equals("--full") && !args[i].equals("--optimize")) {
+                System.err.println(USAGE);
+                System.exit(2);
+            }
+            switch (args[i]) {
+                case "--depth" -> depth = Integer.parseInt(args[++i]);
+                case "--shape" -> shapes.add(args[++i]);
+                case "--stack" -> stackSize = Long.parseLong(args[++i]) * 1024;
+                case "--full" -> full = true;
+                case "--optimize" -> optimize = true;
+                default -> {
+                    System.err.println(USAGE);
+                    System.exit(2);
+                }
+            }
+        }
+        if (shapes.isEmpty()) {
+            shapes.addAll(SHAPES.keySet());
+        }
+
+        boolean allPassed = true;
+        for (var shape : shapes) {
+            var generator = SHAPES.get(shape);
+            if (generator == null) {
+                System.err.println("unknown shape " + shape + ", expected one of " + SHAPES.keySet());
+                System.exit(2);
+            }
+
+            var source = generator.apply(depth);
+            var result = new CompileResult[1];
+            boolean doFull = full;
+            boolean doOptimize = optimize;
+            var thread = new Thread(null, () -> result[0] = doFull
+                    ? new Compilation(doOptimize).run(new StringReader(source), false)
+                    : generateIR(source),
+                    "depth-stress", stackSize);
+            thread.start();
+            thread.join();
+
+            var r = result[0];
+            boolean passed = r.status == CompileResult.Status.OK;
+            allPassed &= passed;
+            System.out.printf("%-14s %8d %6s %10.1f ms%s%n", shape, depth, passed ? "ok" : "FAIL", r.nanos / 1e6,
+                    passed ? "" : "  " + (r.status == CompileResult.Status.CRASHED ? r.message : r.errors.strip()));
+        }
+        System.exit(allPassed ? 0 : 1);
+    }
+
+    private static CompileResult generateIR(String source) {
+        long start = System.nanoTime();
+        try {
+            var recorder = new ErrorRecorder();
+            var tree = new FlatParser(new Lexer(new StringReader(source), recorder), recorder).parse();
+            new Visitor(recorder).generateIR(tree);
+            if (!recorder.getErrors().isEmpty()) {
+                return CompileResult.errors(recorder.getErrors().toString(), System.nanoTime() - start);
+            }
+            return CompileResult.ok(null, null, System.nanoTime() - start);
+        } catch (Exception | StackOverflowError e) {
+            return CompileResult.crashed(e.toString(), System.nanoTime() - start);
+        }
+    }
+}
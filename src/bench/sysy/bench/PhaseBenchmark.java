@@ -0,0 +1,332 @@
+package sysy.bench;
+
+import sysy.backend.ir.Module;
+import sysy.backend.optim.*;
+import sysy.backend.target.Target;
+import sysy.backend.target.Translator;
+import sysy.driver.Compilation;
+import sysy.error.ErrorRecorder;
+import sysy.frontend.lexer.Lexer;
+import sysy.frontend.lexer.TokenPipeline;
+import sysy.frontend.parser.FlatParser;
+import sysy.frontend.parser.Parser;
+import sysy.frontend.parser.syntaxtree.SyntaxNode;
+import sysy.frontend.visitor.Visitor;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class PhaseBenchmark {
+    private static final String USAGE = """
+            usage: PhaseBenchmark [--input <file|dir>]... [--scale <lines>[,<lines>...]]
+                                  [--block <statements>[,<statements>...]] [--shared <statements>[,<statements>...]]
+                                  [--phase <name>]...
+                                  [--warmup <ms>] [--time <ms>] [--csv]""";
+
+    private static final PrintStream NULL_OUT = new PrintStream(PrintStream.nullOutputStream());
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    static final List<Phase> PHASES = List.of(
+            new Phase("Lexer.next", source -> () -> { // includes reading the source, which the lexer may do up front
+                var lexer = new Lexer(new StringReader(source), new ErrorRecorder());
+                while (lexer.next()) {
+                    lexer.getToken();
+                }
+            }),
+            new Phase("Parser.parse", source -> () -> { // the parser pulls tokens itself, so this includes lexing
+                var recorder = new ErrorRecorder();
+                new Parser(new Lexer(new StringReader(source), recorder), recorder).parse();
+            }),
+            new Phase("Parser.parse pipelined", source -> () -> { // allocation of the lexer thread is not counted
+                var recorder = new ErrorRecorder();
+                try (var pipeline = new TokenPipeline(new StringReader(source), recorder)) {
+                    new Parser(pipeline, recorder).parse();
+                }
+            }),
+            new Phase("FlatParser.parse", source -> () -> {
+                var recorder = new ErrorRecorder();
+                new FlatParser(new Lexer(new StringReader(source), recorder), recorder).parse();
+            }),
+            new Phase("Visitor.generateIR", source -> {
+                var tree = parse(source);
+                var visitor = new Visitor(new ErrorRecorder());
+                return () -> visitor.generateIR(tree);
+            }),
+            new Phase("Visitor.generateIR flat", source -> {
+                var recorder = new ErrorRecorder();
+                var tree = new FlatParser(new Lexer(new StringReader(source), recorder), recorder).parse();
+                var visitor = new Visitor(new ErrorRecorder());
+                return () -> visitor.generateIR(tree);
+            }),
+            new Phase("Mem2RegPass", source -> {
+                var module = generateIR(source);
+                return () -> runPass(module, Mem2RegPass::new);
+            }),
+            new Phase("SCCPPass", source -> { // after mem2reg, before it there are few values to propagate
+                var module = runPass(generateIR(source), Mem2RegPass::new);
+                return () -> runPass(module, SCCPPass::new);
+            }),
+            new Phase("GVNPass", source -> {
+                var module = generateIR(source);
+                return () -> runPass(module, GVNPass::new);
+            }),
+            new Phase("DeadStoreEliminationPass", source -> {
+                var module = generateIR(source);
+                return () -> runPass(module, m -> new DeadStoreEliminationPass());
+            }),
+            new Phase("DeadCodeEliminationPass", source -> {
+                var module = generateIR(source);
+                return () -> runPass(module, m -> new DeadCodeEliminationPass());
+            }),
+            new Phase("DeadCodeEliminationPass ssa", source -> { // after mem2reg, where values chain across statements
+                var module = runPass(generateIR(source), Mem2RegPass::new);
+                return () -> runPass(module, m -> new DeadCodeEliminationPass());
+            }),
+            new Phase("Translator.translate", source -> {
+                var module = generateIR(source);
+                var translator = new Translator();
+                return () -> translator.translate(module);
+            }),
+            new Phase("Translator.translate opt", source -> { // after mem2reg, with registers for its values
+                var module = Compilation.optimize(generateIR(source));
+                var translator = new Translator();
+                return () -> translator.translate(module);
+            }),
+            new Phase("Target.dump", source -> {
+                var target = translate(source);
+                return () -> target.dump(NULL_OUT, false);
+            })
+    );
+
+    private final List<Input> inputs = new ArrayList<>();
+    private final List<String> phaseFilters = new ArrayList<>();
+    private long warmupNanos = 1_000_000_000L;
+    private long measureNanos = 3_000_000_000L;
+    private boolean csv = false;
+
+    public static void main(String[] args) throws Exception {
+        var benchmark = new PhaseBenchmark();
+        for (int i = 0; i < args.length; i++) {
+            if (i + 1 >= args.length && !args[i].equals("--csv")) {
+                System.err.println(USAGE);
+                System.exit(2);
+            }
+            switch (args[i]) {
+                case "--input" -> benchmark.addInput(Path.of(args[++i]));
+                case "--scale" -> {
+                    for (var lines : args[++i].split(",")) {
+                        int n = Integer.parseInt(lines.strip());
+                        benchmark.inputs.add(new Input("scaled-" + n, generateScaled(n)));
+                    }
+                }
+                case "--block" -> { // one basic block, to see how the passes scale with its size
+                    for (var statements : args[++i].split(",")) {
+                        int n = Integer.parseInt(statements.strip());
+                        benchmark.inputs.add(new Input("block-" + n, ProgramGenerator.generateStraightLine(n)));
+                    }
+                }
+                case "--shared" -> { // deeply shared expressions, which a walk of the expression trees would never finish
+                    for (var statements : args[++i].split(",")) {
+                        int n = Integer.parseInt(statements.strip());
+                        benchmark.inputs.add(new Input("shared-" + n, ProgramGenerator.generateSharedChain(n)));
+                    }
+                }
+                case "--phase" -> benchmark.phaseFilters.add(args[++i]);
+                case "--warmup" -> benchmark.warmupNanos = Long.parseLong(args[++i]) * 1_000_000L;
+                case "--time" -> benchmark.measureNanos = Long.parseLong(args[++i]) * 1_000_000L;
+                case "--csv" -> benchmark.csv = true;
+                default -> {
+                    System.err.println(USAGE);
+                    System.exit(2);
+                }
+            }
+        }
+        benchmark.run();
+    }
+
+    private void addInput(Path path) throws IOException {
+        if (Files.isDirectory(path)) {
+            try (var files = Files.list(path)) {
+                for (var file : files.filter(Files::isRegularFile).sorted().toList()) {
+                    var name = file.getFileName().toString();
+                    if (name.endsWith(".sy") || name.startsWith("testfile")) {
+                        addInput(file);
+                    }
+                }
+            }
+        } else {
+            inputs.add(new Input(path.getFileName().toString(), Files.readString(path)));
+        }
+    }
+
+    private void run() {
+        if (csv) {
+            System.out.println("phase,input,lines,ops,ms_per_op,ms_error,ops_per_s,alloc_mb_per_s,alloc_kb_per_op");
+        } else {
+            System.out.printf("%-28s %-16s %8s %6s %12s %10s %12s %14s %14s%n",
+                    "phase", "input", "lines", "ops", "ms/op", "error", "ops/s", "alloc MB/s", "alloc KB/op");
+        }
+
+        for (var input : inputs) {
+            try {
+                translate(input.source);
+            } catch (Exception | StackOverflowError e) {
+                System.err.printf("skip %s: %s%n", input.name, e);
+                continue;
+            }
+
+            for (var phase : PHASES) {
+                if (!phaseFilters.isEmpty() && phaseFilters.stream().noneMatch(phase.name::contains)) {
+                    continue;
+                }
+                report(phase, input, measure(phase, input));
+            }
+        }
+    }
+
+    private List<Sample> measure(Phase phase, Input input) {
+        System.gc();
+
+        var samples = new ArrayList<Sample>();
+        long warmupEnd = System.nanoTime() + warmupNanos;
+        while (System.nanoTime() < warmupEnd) {
+            runOnce(phase, input);
+        }
+
+        // the budget is wall clock time, since preparing the input of a phase may cost far more than the phase
+        long measureEnd = System.nanoTime() + measureNanos;
+        while (System.nanoTime() < measureEnd || samples.size() < 2) {
+            samples.add(runOnce(phase, input));
+        }
+        return samples;
+    }
+
+    private static Sample runOnce(Phase phase, Input input) {
+        try {
+            var operation = phase.setup.prepare(input.source); // building the input of a phase is not measured
+
+            long bytesBefore = THREAD_BEAN.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            operation.run();
+            long nanos = System.nanoTime() - start;
+            long bytes = THREAD_BEAN.getCurrentThreadAllocatedBytes() - bytesBefore;
+
+            return new Sample(nanos, bytes);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void report(Phase phase, Input input, List<Sample> samples) {
+        double meanNanos = samples.stream().mapToLong(s -> s.nanos).average().orElse(0);
+        double variance = samples.stream().mapToDouble(s -> (s.nanos - meanNanos) * (s.nanos - meanNanos)).sum()
+                / (samples.size() - 1);
+        double errorNanos = 1.96 * Math.sqrt(variance / samples.size()); // 95% confidence interval
+        double meanBytes = samples.stream().mapToLong(s -> s.bytes).average().orElse(0);
+
+        double msPerOp = meanNanos / 1e6;
+        double opsPerSecond = 1e9 / meanNanos;
+        double allocMBPerSecond = meanBytes / 1e6 * opsPerSecond;
+        double allocKBPerOp = meanBytes / 1e3;
+
+        if (csv) {
+            System.out.printf("%s,%s,%d,%d,%.4f,%.4f,%.2f,%.2f,%.2f%n",
+                    phase.name, input.name, input.lines, samples.size(),
+                    msPerOp, errorNanos / 1e6, opsPerSecond, allocMBPerSecond, allocKBPerOp);
+        } else {
+            System.out.printf("%-28s %-16s %8d %6d %12.4f %10.4f %12.2f %14.2f %14.2f%n",
+                    phase.name, input.name, input.lines, samples.size(),
+                    msPerOp, errorNanos / 1e6, opsPerSecond, allocMBPerSecond, allocKBPerOp);
+        }
+    }
+
+    static Phase findPhase(String name) {
+        for (var phase : PHASES) {
+            if (phase.name.equals(name)) {
+                return phase;
+            }
+        }
+        throw new IllegalArgumentException("no phase " + name);
+    }
+
+    // a program of about this many lines in one function after another
+    static String generateScaled(int lines) {
+        var config = new ProgramGenerator.Config();
+        config.functions = 1;
+        config.lines = lines;
+        return ProgramGenerator.generate(config);
+    }
+
+    private static SyntaxNode parse(String source) throws Exception {
+        var recorder = new ErrorRecorder();
+        return new Parser(new Lexer(new StringReader(source), recorder), recorder).parse();
+    }
+
+    private static Module generateIR(String source) throws Exception {
+        var recorder = new ErrorRecorder();
+        var module = new Visitor(recorder).generateIR(parse(source));
+        if (!recorder.getErrors().isEmpty()) {
+            throw new IllegalArgumentException("input has compile errors");
+        }
+        return module;
+    }
+
+    // one pass over every function, once
+    private static Module runPass(Module module, PassFactory<FunctionPass> factory) {
+        var pipeline = new PassPipeline("bench").addFunctionPasses(1, List.of(factory));
+        return new PassManager(module, pipeline, null).run();
+    }
+
+    private static Target translate(String source) throws Exception {
+        var translator = new Translator();
+        translator.translate(generateIR(source));
+        return translator.getAsmTarget();
+    }
+
+    interface Operation {
+        void run() throws Exception;
+    }
+
+    interface Setup {
+        Operation prepare(String source) throws Exception;
+    }
+
+    static class Phase {
+        final String name;
+        final Setup setup;
+
+        Phase(String name, Setup setup) {
+            this.name = name;
+            this.setup = setup;
+        }
+    }
+
+    private static class Input {
+        final String name;
+        final String source;
+        final int lines;
+
+        Input(String name, String source) {
+            this.name = name;
+            this.source = source;
+            this.lines = (int) source.lines().count();
+        }
+    }
+
+    private static class Sample {
+        final long nanos;
+        final long bytes;
+
+        Sample(long nanos, long bytes) {
+            this.nanos = nanos;
+            this.bytes = bytes;
+        }
+    }
+}
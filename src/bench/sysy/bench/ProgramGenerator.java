@@ -0,0 +1,719 @@
+package sysy.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/*
+ * Generates random SysY programs that pass semantic checks and also run safely: every local is
+ * initialized, every array index is reduced into bounds, every divisor is positive, loops have small
+ * constant trip counts and a function is only called where its estimated cost fits a budget. Calls of
+ * functions with side effects only appear as whole statements, since C leaves the evaluation order of
+ * operands unspecified. So the output of a generated program is deterministic and can be compared
+ * against another compiler.
+ */
+public class ProgramGenerator {
+    private static final String USAGE = """
+            usage: ProgramGenerator [--functions <n>] [--statements <n>] [--nesting <n>] [--loop-depth <n>]
+                                    [--array-dims <n>] [--expr-length <n>] [--globals <n>] [--lines <n>]
+                                    [--seed <n>] [-o <file>]""";
+
+    private static final int MIN_DIM = 2; // every array dimension is at least this, so it is also the bound for array params
+    private static final int MAX_DIM = 4;
+    private static final long COST_LIMIT = 20000; // estimated statements executed by one call of a function
+    private static final int MAX_EXPR_DEPTH = 3;
+
+    public static class Config {
+        public int functions = 10;
+        public int statements = 10; // statements at the top level of each function body
+        public int nesting = 3; // max depth of nested blocks
+        public int loopDepth = 2; // max depth of nested loops
+        public int arrayDims = 2;
+        public int exprLength = 4; // operands in a generated expression
+        public int globals = 8;
+        public int lines = 0; // if positive, functions are added until the program has this many lines
+        public long seed = 1;
+    }
+
+    private static class Variable {
+        final String name;
+        final List<Integer> dims; // the first dim of an array param is unknown and taken as MIN_DIM
+        final boolean isConst;
+        final boolean assignable;
+
+        Variable(String name, List<Integer> dims, boolean isConst, boolean assignable) {
+            this.name = name;
+            this.dims = dims;
+            this.isConst = isConst;
+            this.assignable = assignable;
+        }
+
+        boolean isArray() {
+            return !dims.isEmpty();
+        }
+    }
+
+    private static class Function {
+        final String name;
+        final boolean returnsInt;
+        final List<Variable> params = new ArrayList<>();
+        long cost = 0;
+        boolean pure = true; // writes no global or array param and prints nothing
+
+        Function(String name, boolean returnsInt) {
+            this.name = name;
+            this.returnsInt = returnsInt;
+        }
+    }
+
+    private final Config config;
+    private final Random random;
+    private final StringBuilder out = new StringBuilder();
+    private int indent = 0;
+    private int lines = 0;
+    private int nameCount = 0;
+
+    private final List<Variable> globals = new ArrayList<>();
+    private final List<Function> functions = new ArrayList<>();
+    private final List<Function> pureIntFunctions = new ArrayList<>();
+    private final Deque<List<Variable>> scopes = new ArrayDeque<>();
+
+    // state of the function being generated
+    private Function currFunction;
+    private int blockDepth;
+    private int loopDepth;
+    private long multiplier; // how many times the current statement runs per call
+    private long cost;
+    private long costLimit;
+    private int exprDepth;
+
+    public ProgramGenerator(Config config) {
+        this.config = config;
+        this.random = new Random(config.seed);
+    }
+
+    public static String generate(Config config) {
+        return new ProgramGenerator(config).generate();
+    }
+
+    // a main whose body is one basic block of the given number of statements, with repeated loads and expressions and
+    // stores of constants for the passes to work on
+    public static String generateStraightLine(int statements) {
+        final int vars = 8;
+        var out = new StringBuilder("int main() {\n");
+        for (int i = 0; i < vars; i++) {
+            out.append("    int x").append(i).append(";\n");
+            out.append("    x").append(i).append(" = getint();\n");
+        }
+        for (int i = 0; i < statements; i++) {
+            out.append("    x").append(i % vars).append(" = ");
+            if (i % 5 == 0) {
+                out.append(i % 7);
+            } else {
+                out.append("x").append((i + 3) % vars).append(" + x").append((i + 5) % vars).append(" * ").append(i % 3 + 1)
+                        .append(" - x").append((i + 3) % vars);
+            }
+            out.append(";\n");
+        }
+        out.append("    printf(\"%d\\n\", x0");
+        for (int i = 1; i < vars; i++) {
+            out.append(" + x").append(i);
+        }
+        out.append(");\n    return 0;\n}\n");
+        return out.toString();
+    }
+
+    // a main where each statement uses the value of the one before twice, so that after mem2reg the printed value is a
+    // chain of the given depth whose expression tree has 2^statements leaves. another chain next to it is never printed
+    public static String generateSharedChain(int statements) {
+        var out = new StringBuilder("int main() {\n    int x;\n    int y;\n    x = getint();\n    y = getint();\n");
+        for (int i = 0; i < statements; i++) {
+            out.append("    x = x + x * ").append(i % 3 + 1).append(";\n");
+            out.append("    y = y - x;\n");
+        }
+        out.append("    printf(\"%d\\n\", x);\n    return 0;\n}\n");
+        return out.toString();
+    }
+
+    public String generate() {
+        scopes.push(globals);
+        for (int i = 0; i < config.globals; i++) {
+            generateGlobal();
+        }
+        while (functions.size() < config.functions || lines < config.lines) {
+            generateFunction();
+        }
+        generateMain();
+        return out.toString();
+    }
+
+    private void line(String text) {
+        out.append("    ".repeat(indent)).append(text).append('\n');
+        lines++;
+    }
+
+    private String newName(String prefix) {
+        return prefix + nameCount++;
+    }
+
+    private int between(int low, int high) {
+        return low + random.nextInt(high - low + 1);
+    }
+
+    private boolean chance(double probability) {
+        return random.nextDouble() < probability;
+    }
+
+    private <T> T pick(List<T> list) {
+        return list.get(random.nextInt(list.size()));
+    }
+
+    // declarations
+
+    private List<Integer> randomDims() {
+        if (config.arrayDims <= 0) {
+            return List.of();
+        }
+        var dims = new ArrayList<Integer>();
+        int count = between(1, config.arrayDims);
+        for (int i = 0; i < count; i++) {
+            dims.add(between(MIN_DIM, MAX_DIM));
+        }
+        return dims;
+    }
+
+    private String dimsToString(List<Integer> dims) {
+        var builder = new StringBuilder();
+        for (var dim : dims) {
+            builder.append('[').append(dim).append(']');
+        }
+        return builder.toString();
+    }
+
+    private String constInitVal(List<Integer> dims, int from) {
+        if (from == dims.size()) {
+            return Integer.toString(between(-20, 99));
+        }
+        var elements = new ArrayList<String>();
+        for (int i = 0; i < dims.get(from); i++) {
+            elements.add(constInitVal(dims, from + 1));
+        }
+        return "{" + String.join(", ", elements) + "}";
+    }
+
+    private String varInitVal(List<Integer> dims, int from) {
+        if (from == dims.size()) {
+            return chance(0.3) ? expr(1) : Integer.toString(between(-20, 99));
+        }
+        var elements = new ArrayList<String>();
+        for (int i = 0; i < dims.get(from); i++) {
+            elements.add(varInitVal(dims, from + 1));
+        }
+        return "{" + String.join(", ", elements) + "}";
+    }
+
+    private void generateGlobal() {
+        boolean isConst = chance(0.25);
+        var dims = chance(0.5) ? randomDims() : List.<Integer>of();
+        var name = newName("g");
+        if (isConst) {
+            line("const int " + name + dimsToString(dims) + " = " + constInitVal(dims, 0) + ";");
+        } else if (dims.isEmpty() || chance(0.5)) { // initializers of globals must be constant
+            line("int " + name + dimsToString(dims) + " = " + constInitVal(dims, 0) + ";");
+        } else {
+            line("int " + name + dimsToString(dims) + ";");
+        }
+        globals.add(new Variable(name, dims, isConst, !isConst));
+    }
+
+    private void generateLocal() {
+        var dims = chance(0.3) ? randomDims() : List.<Integer>of();
+        if (chance(0.15)) {
+            var name = newName("c");
+            line("const int " + name + dimsToString(dims) + " = " + constInitVal(dims, 0) + ";");
+            scopes.peek().add(new Variable(name, dims, true, false));
+        } else if (dims.isEmpty() && chance(0.3)) {
+            var first = newName("v");
+            var second = newName("v");
+            line("int " + first + " = " + expr(2) + ", " + second + " = " + expr(1) + ";");
+            scopes.peek().add(new Variable(first, dims, false, true));
+            scopes.peek().add(new Variable(second, dims, false, true));
+        } else {
+            // locals are always initialized, so the program never reads garbage
+            var name = newName("v");
+            line("int " + name + dimsToString(dims) + " = " + varInitVal(dims, 0) + ";");
+            scopes.peek().add(new Variable(name, dims, false, true));
+        }
+        cost += multiplier;
+    }
+
+    // functions
+
+    private void generateFunction() {
+        var function = new Function(newName("f"), chance(0.7));
+
+        var arrayGlobals = globals.stream().filter(v -> v.isArray() && !v.isConst).toList();
+        int paramCount = between(0, 4);
+        var paramDecls = new ArrayList<String>();
+        for (int i = 0; i < paramCount; i++) {
+            var name = newName("p");
+            if (!arrayGlobals.isEmpty() && chance(0.35)) {
+                // take the shape from a global array, so there is always an argument that fits
+                var origin = pick(arrayGlobals);
+                int dimCount = between(1, origin.dims.size());
+                var dims = new ArrayList<Integer>();
+                dims.add(MIN_DIM);
+                dims.addAll(origin.dims.subList(origin.dims.size() - dimCount + 1, origin.dims.size()));
+                function.params.add(new Variable(name, dims, false, true));
+                paramDecls.add("int " + name + "[]" + dimsToString(dims.subList(1, dims.size())));
+            } else {
+                function.params.add(new Variable(name, List.of(), false, true));
+                paramDecls.add("int " + name);
+            }
+        }
+
+        line("");
+        line((function.returnsInt ? "int " : "void ") + function.name + "(" + String.join(", ", paramDecls) + ") {");
+        generateBody(function, COST_LIMIT);
+        line("}");
+
+        functions.add(function); // only added now, so a function never calls itself
+        if (function.returnsInt && function.pure) {
+            pureIntFunctions.add(function);
+        }
+    }
+
+    private void generateMain() {
+        var main = new Function("main", true);
+        line("");
+        line("int main() {");
+        indent++;
+        scopes.push(new ArrayList<>());
+        startFunction(main, COST_LIMIT * 10);
+
+        for (var function : functions) {
+            if (cost + function.cost > costLimit) {
+                continue;
+            }
+            if (function.returnsInt) {
+                line("printf(\"" + function.name + " %d\\n\", " + call(function) + ");");
+            } else {
+                line(call(function) + ";");
+            }
+            cost += 1;
+        }
+        for (int i = 0; i < config.statements; i++) {
+            generateStatement();
+        }
+
+        // print every global, so that stores into them are visible in the output
+        for (var global : globals) {
+            if (!global.isArray()) {
+                line("printf(\"" + global.name + " %d\\n\", " + global.name + ");");
+                continue;
+            }
+            var sum = newName("s");
+            line("int " + sum + " = 0;");
+            var index = new StringBuilder(global.name);
+            for (int d = 0; d < global.dims.size(); d++) {
+                var counter = newName("i");
+                line("int " + counter + ";");
+                line("for (" + counter + " = 0; " + counter + " < " + global.dims.get(d) + "; " + counter + " = " + counter + " + 1) {");
+                indent++;
+                index.append('[').append(counter).append(']');
+            }
+            line(sum + " = " + sum + " * 31 + " + index + ";");
+            for (int d = 0; d < global.dims.size(); d++) {
+                indent--;
+                line("}");
+            }
+            line("printf(\"" + global.name + " %d\\n\", " + sum + ");");
+        }
+
+        line("return 0;");
+        scopes.pop();
+        indent--;
+        line("}");
+    }
+
+    private void startFunction(Function function, long limit) {
+        currFunction = function;
+        blockDepth = 0;
+        loopDepth = 0;
+        multiplier = 1;
+        cost = 0;
+        costLimit = limit;
+        exprDepth = 0;
+    }
+
+    private void generateBody(Function function, long limit) {
+        indent++;
+        var scope = new ArrayList<>(function.params);
+        scopes.push(scope);
+        startFunction(function, limit);
+
+        int localCount = between(1, 3);
+        for (int i = 0; i < localCount; i++) {
+            generateLocal();
+        }
+        for (int i = 0; i < config.statements; i++) {
+            generateStatement();
+        }
+        if (function.returnsInt) {
+            line("return " + expr(config.exprLength) + ";");
+        }
+
+        function.cost = cost + 1;
+        scopes.pop();
+        indent--;
+    }
+
+    // statements
+
+    private void generateStatement() {
+        cost += multiplier;
+        exprDepth = 0;
+
+        boolean canNest = blockDepth < config.nesting;
+        double choice = random.nextDouble();
+        if (choice < 0.12 && canNest) {
+            generateIf();
+        } else if (choice < 0.24 && canNest && loopDepth < config.loopDepth && multiplier * MAX_DIM * 8 <= costLimit) {
+            generateFor();
+        } else if (choice < 0.30 && canNest) {
+            line("{");
+            enterBlock();
+            int count = between(1, 3);
+            for (int i = 0; i < count; i++) {
+                generateStatement();
+            }
+            exitBlock();
+            line("}");
+        } else if (choice < 0.38) {
+            generateLocal();
+        } else if (choice < 0.46) {
+            generatePrintf();
+        } else if (choice < 0.54 && generateCall()) {
+            // the call has been generated
+        } else if (choice < 0.58 && loopDepth > 0) {
+            line("if (" + cond() + ") {");
+            indent++;
+            line(chance(0.5) ? "break;" : "continue;");
+            indent--;
+            line("}");
+        } else if (choice < 0.60 && currFunction.returnsInt && !currFunction.name.equals("main")) {
+            line("if (" + cond() + ") {");
+            indent++;
+            line("return " + expr(2) + ";");
+            indent--;
+            line("}");
+        } else if (choice < 0.62) {
+            line(expr(2) + ";");
+        } else {
+            generateAssign();
+        }
+    }
+
+    private void enterBlock() {
+        indent++;
+        blockDepth++;
+        scopes.push(new ArrayList<>());
+    }
+
+    private void exitBlock() {
+        scopes.pop();
+        blockDepth--;
+        indent--;
+    }
+
+    private void generateIf() {
+        line("if (" + cond() + ") {");
+        enterBlock();
+        int count = between(1, 3);
+        for (int i = 0; i < count; i++) {
+            generateStatement();
+        }
+        exitBlock();
+        if (chance(0.5)) {
+            line("} else {");
+            enterBlock();
+            count = between(1, 3);
+            for (int i = 0; i < count; i++) {
+                generateStatement();
+            }
+            exitBlock();
+        }
+        line("}");
+    }
+
+    private void generateFor() {
+        // the counter is never assigned in the body, so the loop always runs exactly `trips` times
+        var counter = newName("i");
+        int trips = between(2, MAX_DIM);
+        line("int " + counter + " = 0;");
+        scopes.peek().add(new Variable(counter, List.of(), false, false));
+        line("for (" + counter + " = 0; " + counter + " < " + trips + "; " + counter + " = " + counter + " + 1) {");
+        enterBlock();
+        loopDepth++;
+        long outerMultiplier = multiplier;
+        multiplier *= trips;
+
+        int count = between(1, 4);
+        for (int i = 0; i < count; i++) {
+            generateStatement();
+        }
+
+        multiplier = outerMultiplier;
+        loopDepth--;
+        exitBlock();
+        line("}");
+    }
+
+    private void generatePrintf() {
+        currFunction.pure = false;
+        int count = between(0, 3);
+        var format = new StringBuilder(currFunction.name);
+        var args = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            format.append(" %d");
+            args.add(expr(2));
+        }
+        format.append("\\n");
+        var argText = args.isEmpty() ? "" : ", " + String.join(", ", args);
+        line("printf(\"" + format + "\"" + argText + ");");
+    }
+
+    private boolean generateCall() {
+        var function = pickAffordable(functions);
+        if (function == null) {
+            return false;
+        }
+        if (!function.pure) {
+            currFunction.pure = false;
+        }
+
+        var targets = new ArrayList<Variable>();
+        for (var scope : scopes) {
+            for (var variable : scope) {
+                if (variable.assignable && !variable.isArray()) {
+                    targets.add(variable);
+                }
+            }
+        }
+        if (function.returnsInt && !targets.isEmpty() && chance(0.7)) {
+            var target = pick(targets);
+            if (globals.contains(target)) {
+                currFunction.pure = false;
+            }
+            line(target.name + " = " + call(function) + ";");
+        } else {
+            line(call(function) + ";");
+        }
+        return true;
+    }
+
+    private void generateAssign() {
+        var candidates = new ArrayList<Variable>();
+        for (var scope : scopes) {
+            for (var variable : scope) {
+                if (variable.assignable) {
+                    candidates.add(variable);
+                }
+            }
+        }
+        if (candidates.isEmpty()) {
+            line(expr(2) + ";");
+            return;
+        }
+        var target = pick(candidates);
+        if (globals.contains(target) || target.isArray() && currFunction.params.contains(target)) {
+            currFunction.pure = false;
+        }
+        line(element(target, target.dims.size()) + " = " + expr(config.exprLength) + ";");
+    }
+
+    // expressions
+
+    private boolean affordable(Function function) {
+        return cost + multiplier * function.cost <= costLimit;
+    }
+
+    private Function pickAffordable(List<Function> candidates) {
+        // a few random probes instead of a scan, so that generating huge programs stays linear
+        for (int i = 0; i < 8 && !candidates.isEmpty(); i++) {
+            var function = pick(candidates);
+            if (affordable(function)) {
+                return function;
+            }
+        }
+        return null;
+    }
+
+    private String call(Function function) {
+        cost += multiplier * function.cost;
+        var args = new ArrayList<String>();
+        for (var param : function.params) {
+            args.add(param.isArray() ? arrayArgument(param) : expr(2));
+        }
+        return function.name + "(" + String.join(", ", args) + ")";
+    }
+
+    private String arrayArgument(Variable param) {
+        var tail = param.dims.subList(1, param.dims.size());
+        var candidates = new ArrayList<Variable>();
+        for (var scope : scopes) {
+            for (var variable : scope) {
+                int extra = variable.dims.size() - param.dims.size();
+                if (!variable.isConst && extra >= 0
+                        && variable.dims.subList(extra + 1, variable.dims.size()).equals(tail)) {
+                    candidates.add(variable);
+                }
+            }
+        }
+        var variable = pick(candidates); // never empty, the shape of a param is taken from a global array
+        return element(variable, variable.dims.size() - param.dims.size());
+    }
+
+    // the variable indexed in its first `count` dims
+    private String element(Variable variable, int count) {
+        var builder = new StringBuilder(variable.name);
+        for (int i = 0; i < count; i++) {
+            builder.append('[').append(index(variable.dims.get(i))).append(']');
+        }
+        return builder.toString();
+    }
+
+    private String index(int bound) {
+        if (chance(0.4) || exprDepth >= MAX_EXPR_DEPTH) {
+            return Integer.toString(random.nextInt(bound));
+        }
+        exprDepth++;
+        var value = operand();
+        exprDepth--;
+        return "(" + value + " % " + bound + " + " + bound + ") % " + bound;
+    }
+
+    private String expr(int length) {
+        var builder = new StringBuilder(operand());
+        for (int i = 1; i < length; i++) {
+            var op = pick(List.of("+", "-", "*", "+", "-", "/", "%"));
+            var right = operand();
+            if (op.equals("/") || op.equals("%")) {
+                right = "(" + right + " % 7 + 8)"; // always in [2, 14]
+            }
+            builder.append(' ').append(op).append(' ').append(right);
+        }
+        return builder.toString();
+    }
+
+    private String operand() {
+        if (exprDepth >= MAX_EXPR_DEPTH) {
+            return chance(0.5) ? Integer.toString(between(0, 99)) : scalarOrLiteral();
+        }
+
+        exprDepth++;
+        String result;
+        double choice = random.nextDouble();
+        if (choice < 0.25) {
+            result = Integer.toString(between(0, 99));
+        } else if (choice < 0.55) {
+            result = scalarOrLiteral();
+        } else if (choice < 0.70) {
+            result = arrayElementOrLiteral();
+        } else if (choice < 0.80) {
+            result = "(" + expr(2) + ")";
+        } else if (choice < 0.85) {
+            result = pick(List.of("-", "+")) + " " + operand(); // a space, so "- -1" never reads as "--"
+        } else {
+            var function = pickAffordable(pureIntFunctions);
+            result = function == null ? scalarOrLiteral() : call(function);
+        }
+        exprDepth--;
+        return result;
+    }
+
+    private String scalarOrLiteral() {
+        var candidates = new ArrayList<Variable>();
+        for (var scope : scopes) {
+            for (var variable : scope) {
+                if (!variable.isArray()) {
+                    candidates.add(variable);
+                }
+            }
+        }
+        return candidates.isEmpty() ? Integer.toString(between(0, 99)) : pick(candidates).name;
+    }
+
+    private String arrayElementOrLiteral() {
+        var candidates = new ArrayList<Variable>();
+        for (var scope : scopes) {
+            for (var variable : scope) {
+                if (variable.isArray()) {
+                    candidates.add(variable);
+                }
+            }
+        }
+        if (candidates.isEmpty()) {
+            return Integer.toString(between(0, 99));
+        }
+        var variable = pick(candidates);
+        return element(variable, variable.dims.size());
+    }
+
+    private String cond() {
+        var builder = new StringBuilder(condTerm());
+        int count = between(0, 2);
+        for (int i = 0; i < count; i++) {
+            builder.append(chance(0.5) ? " && " : " || ").append(condTerm());
+        }
+        return builder.toString();
+    }
+
+    private String condTerm() {
+        double choice = random.nextDouble();
+        if (choice < 0.7) {
+            var op = pick(List.of("<", ">", "<=", ">=", "==", "!="));
+            return expr(2) + " " + op + " " + expr(1);
+        } else if (choice < 0.85) {
+            return "!" + operand();
+        } else {
+            return expr(2);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        var config = new Config();
+        Path output = null;
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 >= args.length) {
+                System.err.println(USAGE);
+                System.exit(2);
+            }
+            var value = args[i + 1];
+            switch (args[i]) {
+                case "--functions" -> config.functions = Integer.parseInt(value);
+                case "--statements" -> config.statements = Integer.parseInt(value);
+                case "--nesting" -> config.nesting = Integer.parseInt(value);
+                case "--loop-depth" -> config.loopDepth = Integer.parseInt(value);
+                case "--array-dims" -> config.arrayDims = Integer.parseInt(value);
+                case "--expr-length" -> config.exprLength = Integer.parseInt(value);
+                case "--globals" -> config.globals = Integer.parseInt(value);
+                case "--lines" -> config.lines = Integer.parseInt(value);
+                case "--seed" -> config.seed = Long.parseLong(value);
+                case "-o" -> output = Path.of(value);
+                default -> {
+                    System.err.println(USAGE);
+                    System.exit(2);
+                }
+            }
+        }
+
+        var program = generate(config);
+        if (output == null) {
+            System.out.print(program);
+        } else {
+            Files.writeString(output, program);
+        }
+    }
+}
@@ -1,32 +1,55 @@
-import sysy.backend.ir.Module;
-import sysy.backend.optim.*;
+import sysy.backend.optim.PassManager;
+import sysy.backend.optim.PassPipeline;
 import sysy.backend.target.Translator;
+import sysy.driver.BatchCompiler;
+import sysy.driver.Compilation;
+import sysy.driver.CompileServer;
 import sysy.error.ErrorRecorder;
 import sysy.exception.LexerException;
 import sysy.exception.ParserException;
 import sysy.frontend.lexer.Lexer;
+import sysy.frontend.parser.FlatParser;
 import sysy.frontend.parser.Parser;
-import sysy.frontend.parser.syntaxtree.CompUnitNode;
 import sysy.frontend.visitor.Visitor;
+import sysy.stats.StatsRecorder;
 
 import java.io.*;
+import java.util.Arrays;
 
 public class Compiler {
-    private static final ErrorRecorder recorder = new ErrorRecorder();
-
     public static void main(String[] args) throws IOException, LexerException, ParserException {
+        if (args.length > 0 && args[0].equals("--batch")) {
+            System.exit(BatchCompiler.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
+        if (args.length > 0 && args[0].equals("--server")) {
+            System.exit(CompileServer.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
+        if (args.length > 0 && args[0].startsWith("--stats")) {
+            runCompleteCompilerWithStats(args);
+            return;
+        }
+
 //        task1();
 //        task2();
 //        task3();
 //        task4LLVM(false);
 //        task4MIPS(false, true);
 //        runCompleteCompilerLLVM();
-        runCompleteCompilerMIPS();
+        var pipeline = PassPipeline.get("O0");
+        if (args.length > 0) {
+            pipeline = PassPipeline.fromFlag(args[0]);
+            if (pipeline == null || args.length > 1) {
+                System.err.println("usage: Compiler [-O0|-O1|-O2]");
+                System.exit(2);
+            }
+        }
+        runCompleteCompilerMIPS(pipeline);
     }
 
     private static void task1() throws IOException, LexerException {
         try (var testFile = new FileInputStream("testfile.txt");
              var outputFile = new FileOutputStream("output.txt")) {
+            var recorder = new ErrorRecorder();
             var out = new PrintStream(outputFile);
             var lexer = new Lexer(new InputStreamReader(testFile), recorder);
             while (lexer.next()) {
@@ -39,6 +62,7 @@ public class Compiler {
     private static void task2() throws IOException, LexerException, ParserException {
         try (var testFile = new FileInputStream("testfile.txt");
              var outputFile = new FileOutputStream("output.txt")) {
+            var recorder = new ErrorRecorder();
             var out = new PrintStream(outputFile);
             var lexer = new Lexer(new InputStreamReader(testFile), recorder);
             var parser = new Parser(lexer, recorder);
@@ -61,13 +85,14 @@ public class Compiler {
     private static void task3() throws IOException, LexerException, ParserException {
         try (var testFile = new FileInputStream("testfile.txt");
              var errFile = new FileOutputStream("error.txt")) {
+            var recorder = new ErrorRecorder();
             var err = new PrintStream(errFile);
             var lexer = new Lexer(new InputStreamReader(testFile), recorder);
-            var parser = new Parser(lexer, recorder);
+            var parser = new FlatParser(lexer, recorder);
             var result = parser.parse();
 
             var visitor = new Visitor(recorder);
-            visitor.visitCompUnitNode((CompUnitNode) result);
+            visitor.generateIR(result);
 
             for (var error : recorder.getErrors()) {
                 err.println(error);
@@ -78,16 +103,17 @@ public class Compiler {
     private static void task4LLVM(boolean optimize) throws IOException, LexerException, ParserException {
         try (var testFile = new FileInputStream("testfile.txt");
              var outputFile = new FileOutputStream("llvm_ir.txt")) {
+            var recorder = new ErrorRecorder();
             var out = new PrintStream(outputFile);
             var lexer = new Lexer(new InputStreamReader(testFile), recorder);
-            var parser = new Parser(lexer, recorder);
+            var parser = new FlatParser(lexer, recorder);
             var result = parser.parse();
 
             var visitor = new Visitor(recorder);
             var module = visitor.generateIR(result);
 
             if (optimize) {
-                module = optimize(module);
+                module = Compilation.optimize(module);
             }
 
             out.print("""
@@ -101,37 +127,20 @@ public class Compiler {
         }
     }
 
-    private static Module optimize(Module module) {
-        while (true) {
-            var pass1 = new ConstPropagatePass(module);
-            module = pass1.pass();
-            var pass2 = new ConstFoldPass(module);
-            module = pass2.pass();
-
-            if (!pass1.isImprove() && !pass2.isImprove()) {
-                break;
-            }
-        }
-        module = new LVNPass(module).pass();
-        module = new DeadStoreEliminationPass(module).pass();
-        module = new DeadCodeEliminationPass(module).pass();
-
-        return module;
-    }
-
     private static void task4MIPS(boolean debugMode, boolean optimize) throws IOException, LexerException, ParserException {
         try (var testFile = new FileInputStream("testfile.txt");
              var outputFile = new FileOutputStream("mips.txt")) {
+            var recorder = new ErrorRecorder();
             var out = new PrintStream(outputFile);
             var lexer = new Lexer(new InputStreamReader(testFile), recorder);
-            var parser = new Parser(lexer, recorder);
+            var parser = new FlatParser(lexer, recorder);
             var result = parser.parse();
 
             var visitor = new Visitor(recorder);
             var module = visitor.generateIR(result);
 
             if (optimize) {
-                module = optimize(module);
+                module = Compilation.optimize(module);
             }
 
             var translator = new Translator();
@@ -144,10 +153,11 @@ public class Compiler {
         try (var testFile = new FileInputStream("testfile.txt");
              var outputFile = new FileOutputStream("llvm_ir.txt");
              var errFile = new FileOutputStream("error.txt")) {
+            var recorder = new ErrorRecorder();
             var out = new PrintStream(outputFile);
             var err = new PrintStream(errFile);
             var lexer = new Lexer(new InputStreamReader(testFile), recorder);
-            var parser = new Parser(lexer, recorder);
+            var parser = new FlatParser(lexer, recorder);
             var result = parser.parse();
 
             var visitor = new Visitor(recorder);
@@ -172,14 +182,15 @@ public class Compiler {
         }
     }
 
-    private static void runCompleteCompilerMIPS() throws IOException, LexerException, ParserException {
+    private static void runCompleteCompilerMIPS(PassPipeline pipeline) throws IOException, LexerException, ParserException {
         try (var testFile = new FileInputStream("testfile.txt");
              var outputFile = new FileOutputStream("mips.txt");
              var errFile = new FileOutputStream("error.txt")) {
+            var recorder = new ErrorRecorder();
             var out = new PrintStream(outputFile);
             var err = new PrintStream(errFile);
             var lexer = new Lexer(new InputStreamReader(testFile), recorder);
-            var parser = new Parser(lexer, recorder);
+            var parser = new FlatParser(lexer, recorder);
             var result = parser.parse();
 
             var visitor = new Visitor(recorder);
@@ -192,9 +203,45 @@ public class Compiler {
                 return;
             }
 
+            new PassManager(module, pipeline, null).run();
             var translator = new Translator();
             translator.translate(module);
             translator.getAsmTarget().dump(out, false);
         }
     }
+
+    private static void runCompleteCompilerWithStats(String[] args) throws IOException, LexerException, ParserException {
+        boolean json = args[0].equals("--stats=json");
+        var pipeline = PassPipeline.get("O0");
+        if (args.length > 1) {
+            pipeline = args[1].equals("--optimize") ? PassPipeline.get(PassPipeline.DEFAULT) : PassPipeline.fromFlag(args[1]);
+        }
+        if (!json && !args[0].equals("--stats") || pipeline == null || args.length > 2) {
+            System.err.println("usage: Compiler --stats[=json] [--optimize|-O0|-O1|-O2]");
+            System.exit(2);
+        }
+
+        var statsRecorder = new StatsRecorder();
+        try (var testFile = new FileInputStream("testfile.txt");
+             var outputFile = new FileOutputStream("mips.txt");
+             var errFile = new FileOutputStream("error.txt")) {
+            var compilation = new Compilation(pipeline, null, statsRecorder);
+            var timer = statsRecorder.start("total");
+            boolean success = compilation.compile(new InputStreamReader(testFile), new PrintStream(outputFile), null);
+            timer.stop();
+
+            if (!success) {
+                var err = new PrintStream(errFile);
+                for (var error : compilation.getErrors()) {
+                    err.println(error);
+                }
+            }
+        }
+
+        if (json) {
+            statsRecorder.dumpJson(System.out);
+        } else {
+            statsRecorder.dumpTable(System.out);
+        }
+    }
 }
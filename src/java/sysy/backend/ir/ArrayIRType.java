@@ -1,15 +1,29 @@
 package sysy.backend.ir;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ArrayIRType extends IRType {
+    private record Key(BasicIRType elmType, List<Integer> arrayDims, int ptrNum) {
+    }
+
+    private static final Map<Key, ArrayIRType> INSTANCES = new ConcurrentHashMap<>();
+
     private final BasicIRType elmType;
-    private final List<Integer> arrayDims = new ArrayList<>();
+    private final List<Integer> arrayDims;
+    private final String name;
 
-    public ArrayIRType(BasicIRType type, List<Integer> arrayDims) {
+    private ArrayIRType(BasicIRType type, List<Integer> arrayDims, int ptrNum) {
+        super(ptrNum);
         this.elmType = type;
-        this.arrayDims.addAll(arrayDims);
+        this.arrayDims = arrayDims;
+        this.name = typeToString();
+    }
+
+    public static ArrayIRType of(BasicIRType elmType, List<Integer> arrayDims, int ptrNum) {
+        var key = new Key(elmType, List.copyOf(arrayDims), ptrNum);
+        return INSTANCES.computeIfAbsent(key, k -> new ArrayIRType(k.elmType, k.arrayDims, k.ptrNum));
     }
 
     public int getTotalSize() {
@@ -22,8 +36,7 @@ public class ArrayIRType extends IRType {
 
     @Override
     public ArrayIRType ptr(int num) {
-        super.ptr(num);
-        return this;
+        return of(elmType, arrayDims, num);
     }
 
     public BasicIRType getElmType() {
@@ -114,22 +127,6 @@ public class ArrayIRType extends IRType {
 
     @Override
     public String toString() {
-        return typeToString();
-    }
-
-    @Override
-    public ArrayIRType clone() {
-        var obj = new ArrayIRType(this.elmType, this.arrayDims);
-        obj.ptr(obj.getPtrNum());
-        return obj;
-    }
-
-    @Override
-    public boolean equals(Object obj) {
-        if (obj instanceof ArrayIRType other) {
-            return this.elmType.equals(other.elmType) && this.arrayDims.equals(other.arrayDims) && this.getPtrNum() == other.getPtrNum();
-        } else {
-            return false;
-        }
+        return name;
     }
 }
@@ -3,16 +3,16 @@ package sysy.backend.ir;
 import sysy.backend.ir.inst.*;
 
 import java.io.PrintStream;
-import java.util.ArrayList;
 import java.util.List;
 
 public class BasicBlock extends Value {
-    private final List<Instruction> instructions = new ArrayList<>();
+    private final InstructionList instructions = new InstructionList(this);
     private final Function function;
     private int loopNum = 0;
+    private AllocaInst lastFrontAlloca = null; // where createAllocaInstAndInsertToFront stopped last time
 
     public BasicBlock(Function belongFunc) {
-        super(new BasicIRType(IRTypeEnum.LABEL));
+        super(IRType.getLabel());
         this.function = belongFunc;
     }
 
@@ -28,22 +28,15 @@ public class BasicBlock extends Value {
         return function;
     }
 
-    public BasicBlock getNextBasicBlock() {
-        var blocks = function.getBasicBlocks();
-        var idx = blocks.indexOf(this);
-        if (idx == -1 || idx == blocks.size()-1) {
-            return null;
-        } else {
-            return blocks.get(idx+1);
-        }
-    }
-
     private Value insertInstruction(Instruction inst) {
         instructions.add(inst);
-        inst.setBasicBlock(this);
         return inst;
     }
 
+    private ImmediateValue getImmediateValue(int value) {
+        return function.getModule().getImmediateValue(value);
+    }
+
     private Integer tryGetImmediateValue(Value value) {
         if (value instanceof ImmediateValue ivalue) {
             return ivalue.getValue();
@@ -55,7 +48,7 @@ public class BasicBlock extends Value {
     public Value createAddInst(Value left, Value right) {
         Integer ileft = tryGetImmediateValue(left), iright = tryGetImmediateValue(right);
         if (ileft != null && iright != null) {
-            return new ImmediateValue(ileft + iright);
+            return getImmediateValue(ileft + iright);
         }
         if (ileft != null && ileft == 0) { // 0 + a = a
             return right;
@@ -70,13 +63,13 @@ public class BasicBlock extends Value {
     public Value createSubInst(Value left, Value right) {
         Integer ileft = tryGetImmediateValue(left), iright = tryGetImmediateValue(right);
         if (ileft != null && iright != null) {
-            return new ImmediateValue(ileft - iright);
+            return getImmediateValue(ileft - iright);
         }
         if (iright != null && iright == 0) { // a - 0 = a
             return left;
         }
         if (left == right) { // a - a = 0
-            return new ImmediateValue(0);
+            return getImmediateValue(0);
         }
 
         return insertInstruction(new BinaryInst(BinaryInstOp.SUB, left, right));
@@ -85,13 +78,13 @@ public class BasicBlock extends Value {
     public Value createMulInst(Value left, Value right) {
         Integer ileft = tryGetImmediateValue(left), iright = tryGetImmediateValue(right);
         if (ileft != null && iright != null) {
-            return new ImmediateValue(ileft * iright);
+            return getImmediateValue(ileft * iright);
         }
         if (ileft != null && ileft == 0) { // 0 * a = 0
-            return new ImmediateValue(0);
+            return getImmediateValue(0);
         }
         if (iright != null && iright == 0) { // a * 0 = 0
-            return new ImmediateValue(0);
+            return getImmediateValue(0);
         }
         if (ileft != null && ileft == 1) { // 1 * a = a
             return right;
@@ -106,16 +99,16 @@ public class BasicBlock extends Value {
     public Value createSDivInst(Value left, Value right) {
         Integer ileft = tryGetImmediateValue(left), iright = tryGetImmediateValue(right);
         if (ileft != null && iright != null) {
-            return new ImmediateValue(ileft / iright);
+            return getImmediateValue(ileft / iright);
         }
         if (iright != null && iright == 1) { // a / 1 = a
             return left;
         }
         if (ileft != null && ileft == 0) { // 0 / a = 0
-            return new ImmediateValue(0);
+            return getImmediateValue(0);
         }
         if (left == right) { // a / a = 1
-            return new ImmediateValue(1);
+            return getImmediateValue(1);
         }
 
         return insertInstruction(new BinaryInst(BinaryInstOp.SDIV, left, right));
@@ -124,7 +117,7 @@ public class BasicBlock extends Value {
     public Value createSRemInst(Value left, Value right) {
         Integer ileft = tryGetImmediateValue(left), iright = tryGetImmediateValue(right);
         if (ileft != null && iright != null) {
-            return new ImmediateValue(ileft % iright);
+            return getImmediateValue(ileft % iright);
         }
         return insertInstruction(new BinaryInst(BinaryInstOp.SREM, left, right));
     }
@@ -152,10 +145,14 @@ public class BasicBlock extends Value {
 
     public Value createAllocaInstAndInsertToFront(IRType type) {
         var allocaInst = new AllocaInst(type);
-        int insertPos;
-        for (insertPos = 0; insertPos < instructions.size() && instructions.get(insertPos) instanceof AllocaInst; insertPos++);
-        instructions.add(insertPos, allocaInst);
-        allocaInst.setBasicBlock(this);
+        Instruction insertPos = lastFrontAlloca != null && lastFrontAlloca.getBasicBlock() == this ? lastFrontAlloca : null;
+        var next = insertPos == null ? instructions.getFirst() : insertPos.getNext();
+        while (next instanceof AllocaInst) {
+            insertPos = next;
+            next = next.getNext();
+        }
+        instructions.insertAfter(insertPos, allocaInst);
+        lastFrontAlloca = allocaInst;
         return allocaInst;
     }
 
@@ -179,10 +176,15 @@ public class BasicBlock extends Value {
         return insertInstruction(new ZExtInst(dstType, value));
     }
 
-    public List<Instruction> getInstructions() {
+    public InstructionList getInstructions() {
         return instructions;
     }
 
+    @Override
+    protected NameAllocator getNameAllocator() {
+        return function.getNameAllocator();
+    }
+
     @Override
     public String getName() {
         return "%b" + super.getName();
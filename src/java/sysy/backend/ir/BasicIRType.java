@@ -1,18 +1,41 @@
 package sysy.backend.ir;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class BasicIRType extends IRType {
+    private static final int CACHED_PTR_NUM = 4; // deeper pointers never occur in SysY, but are interned all the same
+    private static final BasicIRType[][] CACHE = new BasicIRType[IRTypeEnum.values().length][CACHED_PTR_NUM];
+    private static final Map<List<Integer>, BasicIRType> DEEP_POINTERS = new ConcurrentHashMap<>();
+
+    static {
+        for (var type : IRTypeEnum.values()) {
+            for (int ptrNum = 0; ptrNum < CACHED_PTR_NUM; ptrNum++) {
+                CACHE[type.ordinal()][ptrNum] = new BasicIRType(type, ptrNum);
+            }
+        }
+    }
+
     private final IRTypeEnum type;
+    private final String name;
 
-    public BasicIRType(IRTypeEnum type) {
+    private BasicIRType(IRTypeEnum type, int ptrNum) {
+        super(ptrNum);
         this.type = type;
+        this.name = type.toString() + "*".repeat(ptrNum);
+    }
+
+    public static BasicIRType of(IRTypeEnum type, int ptrNum) {
+        if (0 <= ptrNum && ptrNum < CACHED_PTR_NUM) {
+            return CACHE[type.ordinal()][ptrNum];
+        }
+        return DEEP_POINTERS.computeIfAbsent(List.of(type.ordinal(), ptrNum), key -> new BasicIRType(type, ptrNum));
     }
 
     @Override
     public BasicIRType ptr(int num) {
-        super.ptr(num);
-        return this;
+        return of(type, num);
     }
 
     @Override
@@ -20,8 +43,12 @@ public class BasicIRType extends IRType {
         return type;
     }
 
-    public ArrayIRType dims(List<Integer> arrayDims) {
-        return new ArrayIRType(this, arrayDims);
+    // an array without dims is the element itself, so a scalar variable has the same type as a value
+    public IRType dims(List<Integer> arrayDims) {
+        if (arrayDims.isEmpty()) {
+            return ptr(0);
+        }
+        return ArrayIRType.of(this, arrayDims, 0);
     }
 
     @Override
@@ -33,22 +60,6 @@ public class BasicIRType extends IRType {
 
     @Override
     public String toString() {
-        return type.toString() + "*".repeat(getPtrNum());
-    }
-
-    @Override
-    public BasicIRType clone() {
-        var obj = new BasicIRType(this.type);
-        obj.ptr(this.getPtrNum());
-        return obj;
-    }
-
-    @Override
-    public boolean equals(Object obj) {
-        if (obj instanceof BasicIRType other) {
-            return this.type.equals(other.type) && this.getPtrNum() == other.getPtrNum();
-        } else {
-            return false;
-        }
+        return name;
     }
 }
@@ -1,31 +1,27 @@
 package sysy.backend.ir;
 
+import sysy.backend.ir.inst.Instruction;
+
 import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 public class Function extends Value {
+    private final Module module;
     private final IRType retType;
     private final List<FunctionArgument> arguments = new ArrayList<>();
     private final List<BasicBlock> basicBlocks = new ArrayList<>();
+    private final NameAllocator nameAllocator = new NameAllocator();
+    private int controlFlowVersion = 0;
+    private boolean sideEffectFree = false; // set by SideEffectAnalysisPass
 
-    public static Function BUILD_IN_GETINT = new Function(IRType.getInt(), List.of());
-    public static Function BUILD_IN_PUTINT = new Function(IRType.getVoid(), List.of(IRType.getInt()));
-    public static Function BUILD_IN_PUTCH = new Function(IRType.getVoid(), List.of(IRType.getInt()));
-    public static Function BUILD_IN_PUTSTR = new Function(IRType.getVoid(), List.of(IRType.getChar().ptr(1)));
-
-    static {
-        BUILD_IN_GETINT.setName("getint");
-        BUILD_IN_PUTINT.setName("putint");
-        BUILD_IN_PUTCH.setName("putch");
-        BUILD_IN_PUTSTR.setName("putstr");
-    }
-
-    public Function(IRType retType, List<IRType> argTypes) {
+    public Function(Module module, IRType retType, List<IRType> argTypes) {
         super(retType);
+        this.module = module;
         this.retType = retType;
         for (var argType : argTypes) {
-            arguments.add(new FunctionArgument(argType));
+            arguments.add(new FunctionArgument(argType, this));
         }
     }
 
@@ -37,6 +33,10 @@ public class Function extends Value {
         }
     }
 
+    public Module getModule() {
+        return module;
+    }
+
     public IRType getRetType() {
         return retType;
     }
@@ -49,17 +49,111 @@ public class Function extends Value {
         return basicBlocks;
     }
 
+    @Override
+    public NameAllocator getNameAllocator() {
+        return nameAllocator;
+    }
+
     public BasicBlock createBasicBlock() {
         var newBlock = new BasicBlock(this);
         basicBlocks.add(newBlock);
+        markControlFlowChanged();
         return newBlock;
     }
 
+    // the blocks must not be branched to by the remaining blocks, nor define values the remaining blocks use
+    public void removeBasicBlocks(Set<BasicBlock> blocks) {
+        if (blocks.isEmpty()) {
+            return;
+        }
+        for (var block : blocks) {
+            for (var inst : block.getInstructions()) {
+                inst.dropOperands();
+            }
+        }
+        basicBlocks.removeIf(blocks::contains);
+        markControlFlowChanged();
+    }
+
+    // changes whenever a block is added or removed, or a branch is inserted, removed or retargeted, so that cached
+    // analyses of the control flow know when to rebuild
+    public int getControlFlowVersion() {
+        return controlFlowVersion;
+    }
+
+    public void markControlFlowChanged() {
+        controlFlowVersion++;
+    }
+
+    // whether a call to it may be dropped when its result is unused
+    public boolean isSideEffectFree() {
+        return sideEffectFree;
+    }
+
+    public void setSideEffectFree(boolean sideEffectFree) {
+        this.sideEffectFree = sideEffectFree;
+    }
+
     @Override
     public String getName() {
         return "@" + super.getName();
     }
 
+    // whether every operand of an instruction is in the use list of its value, and the use lists of the arguments and
+    // instructions hold nothing else. meant for asserts, since it visits every operand
+    public boolean verifyUses() {
+        int operandCount = 0;
+        int useCount = 0;
+        for (var arg : arguments) {
+            int n = countVerifiedUses(arg);
+            if (n < 0) {
+                return false;
+            }
+            useCount += n;
+        }
+        for (var block : basicBlocks) {
+            for (var inst : block.getInstructions()) {
+                var operands = inst.getOperands();
+                for (int pos = 0; pos < operands.size(); pos++) {
+                    var operand = operands.get(pos);
+                    var use = ((User) inst).getOperandUse(pos); // not inherited by Instruction, which is in another package
+                    if (operand == null) {
+                        if (use != null) {
+                            return false;
+                        }
+                        continue;
+                    }
+                    if (use == null || use.getValue() != operand || use.getUser() != inst || use.getPos() != pos) {
+                        return false;
+                    }
+                    if (operand instanceof Instruction || operand instanceof FunctionArgument) {
+                        operandCount++;
+                    }
+                }
+                int n = countVerifiedUses(inst);
+                if (n < 0) {
+                    return false;
+                }
+                useCount += n;
+            }
+        }
+        return useCount == operandCount;
+    }
+
+    // -1 if a use is wrong
+    private static int countVerifiedUses(Value value) {
+        int count = 0;
+        for (var use : value.getUses()) {
+            var user = use.getUser();
+            if (use.getValue() != value || user.getOperands().get(use.getPos()) != value
+                    || user instanceof Instruction inst && inst.getBasicBlock() == null) {
+                return -1;
+            }
+            count++;
+        }
+        return count == value.getUseCount() ? count : -1;
+    }
+
     public void dump(PrintStream out) {
         out.printf("define dso_local %s %s(", retType.toString(), getName());
 
@@ -3,9 +3,16 @@ package sysy.backend.ir;
 import java.io.PrintStream;
 
 public class FunctionArgument extends Value {
+    private final Function function;
 
-    public FunctionArgument(IRType type) {
+    public FunctionArgument(IRType type, Function function) {
         super(type);
+        this.function = function;
+    }
+
+    @Override
+    protected NameAllocator getNameAllocator() {
+        return function.getNameAllocator();
     }
 
     @Override
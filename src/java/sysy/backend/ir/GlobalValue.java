@@ -9,11 +9,22 @@ public class GlobalValue extends Value {
     private final List<Integer> initVals = new ArrayList<>();
 
     public GlobalValue(IRType dataType, List<Integer> initVals) {
-        super(dataType.clone().ptr(dataType.getPtrNum()+1)); // the type of global var is actually the address of the data
+        super(dataType.ptr(dataType.getPtrNum()+1)); // the type of global var is actually the address of the data
         this.dataType = dataType;
         this.initVals.addAll(initVals);
     }
 
+    // the functions of a module may be optimized in parallel, and all of them may use a global
+    @Override
+    synchronized void addUse(Use use) {
+        super.addUse(use);
+    }
+
+    @Override
+    synchronized void removeUse(Use use) {
+        super.removeUse(use);
+    }
+
     public List<Integer> getInitVals() {
         return initVals;
     }
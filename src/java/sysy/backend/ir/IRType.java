@@ -1,44 +1,48 @@
 package sysy.backend.ir;
 
-import java.util.ArrayList;
 import java.util.List;
 
-public abstract class IRType implements Cloneable {
-    private int ptrNum = 0;
+// types are immutable and interned, one instance per distinct shape, so they are compared by identity and shared
+// by every value of that type
+public abstract class IRType {
+    private final int ptrNum;
 
-    public IRType ptr(int num) {
-        this.ptrNum = num;
-        return this;
+    IRType(int ptrNum) {
+        this.ptrNum = ptrNum;
     }
 
+    // the same type with num levels of pointer
+    public abstract IRType ptr(int num);
+
     public int getPtrNum() {
         return ptrNum;
     }
 
     public static BasicIRType getInt() {
-        return new BasicIRType(IRTypeEnum.INT);
+        return BasicIRType.of(IRTypeEnum.INT, 0);
     }
 
     public static BasicIRType getVoid() {
-        return new BasicIRType(IRTypeEnum.VOID);
+        return BasicIRType.of(IRTypeEnum.VOID, 0);
     }
 
     public static BasicIRType getChar() {
-        return new BasicIRType(IRTypeEnum.CHAR);
+        return BasicIRType.of(IRTypeEnum.CHAR, 0);
     }
 
     public static BasicIRType getBool() {
-        return new BasicIRType(IRTypeEnum.BOOL);
+        return BasicIRType.of(IRTypeEnum.BOOL, 0);
+    }
+
+    public static BasicIRType getLabel() {
+        return BasicIRType.of(IRTypeEnum.LABEL, 0);
     }
 
     public List<Integer> getArrayDims() {
-        return new ArrayList<>();
+        return List.of();
     }
 
     public abstract String initValsToString(List<Integer> initVals);
 
     public abstract IRTypeEnum getType();
-
-    @Override
-    public abstract IRType clone();
 }
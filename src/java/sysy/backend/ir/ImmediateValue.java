@@ -1,9 +1,10 @@
 package sysy.backend.ir;
 
+// get one from Module.getImmediateValue, which keeps a single instance per integer
 public class ImmediateValue extends Value {
     private final int value;
 
-    public ImmediateValue(int value) {
+    ImmediateValue(int value) {
         super(IRType.getInt());
         this.value = value;
     }
@@ -12,6 +13,15 @@ public class ImmediateValue extends Value {
         return value;
     }
 
+    // a constant is shared by the whole module and never replaced, so its uses are not worth keeping
+    @Override
+    void addUse(Use use) {
+    }
+
+    @Override
+    void removeUse(Use use) {
+    }
+
     @Override
     public String getName() {
         return Integer.toString(value);
@@ -0,0 +1,26 @@
+package sysy.backend.ir;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// the constants of a module, one per integer, so that equal constants are the same value. functions of a module may be
+// optimized in parallel, so the map decides which instance is canonical, and the array only caches what it decided
+class ImmediateValuePool {
+    private static final int SMALL_MIN = -128;
+    private static final int SMALL_MAX = 1023;
+
+    private final ImmediateValue[] small = new ImmediateValue[SMALL_MAX - SMALL_MIN + 1];
+    private final Map<Integer, ImmediateValue> values = new ConcurrentHashMap<>();
+
+    ImmediateValue get(int value) {
+        if (value < SMALL_MIN || value > SMALL_MAX) {
+            return values.computeIfAbsent(value, ImmediateValue::new);
+        }
+        var imm = small[value - SMALL_MIN];
+        if (imm == null) {
+            imm = values.computeIfAbsent(value, ImmediateValue::new);
+            small[value - SMALL_MIN] = imm;
+        }
+        return imm;
+    }
+}
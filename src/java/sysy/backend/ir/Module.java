@@ -10,6 +10,34 @@ import java.util.List;
 public class Module {
     List<GlobalValue> globalValues = new ArrayList<>();
     List<Function> functions = new ArrayList<>();
+    private final ImmediateValuePool immediateValues = new ImmediateValuePool();
+
+    private final Function buildInGetInt = createBuildInFunction("getint", IRType.getInt(), List.of());
+    private final Function buildInPutInt = createBuildInFunction("putint", IRType.getVoid(), List.of(IRType.getInt()));
+    private final Function buildInPutCh = createBuildInFunction("putch", IRType.getVoid(), List.of(IRType.getInt()));
+    private final Function buildInPutStr = createBuildInFunction("putstr", IRType.getVoid(), List.of(IRType.getChar().ptr(1)));
+
+    private Function createBuildInFunction(String name, IRType retType, List<IRType> argTypes) {
+        var function = new Function(this, retType, argTypes);
+        function.setName(name);
+        return function;
+    }
+
+    public Function getBuildInGetInt() {
+        return buildInGetInt;
+    }
+
+    public Function getBuildInPutInt() {
+        return buildInPutInt;
+    }
+
+    public Function getBuildInPutCh() {
+        return buildInPutCh;
+    }
+
+    public Function getBuildInPutStr() {
+        return buildInPutStr;
+    }
 
     public List<GlobalValue> getGlobalValues() {
         return globalValues;
@@ -19,6 +47,10 @@ public class Module {
         return functions;
     }
 
+    public ImmediateValue getImmediateValue(int value) {
+        return immediateValues.get(value);
+    }
+
     public GlobalValue createGlobalValue(IRType type, List<Integer> initVals) {
         var newGlobalValue = new GlobalValue(type, initVals);
         globalValues.add(newGlobalValue);
@@ -26,7 +58,7 @@ public class Module {
     }
 
     public Function createFunction(IRType retType, List<IRType> argTypes) {
-        var newFunction = new Function(retType, argTypes);
+        var newFunction = new Function(this, retType, argTypes);
         functions.add(newFunction);
         return newFunction;
     }
@@ -38,7 +70,6 @@ public class Module {
 
         for (var func : functions) {
             func.dump(out);
-            NameAllocator.getInstance().reset();
         }
     }
 
@@ -112,9 +143,9 @@ public class Module {
         var b1 = func1.createBasicBlock();
         b1.setName("b1");
 
-        var i1 = b1.createAddInst(new ImmediateValue(1), new ImmediateValue(10));
+        var i1 = b1.createAddInst(module.getImmediateValue(1), module.getImmediateValue(10));
         i1.setName("2");
-        var i2 = b1.createMulInst(i1, new ImmediateValue(20));
+        var i2 = b1.createMulInst(i1, module.getImmediateValue(20));
         i2.setName("3");
 
         var i3 = b1.createMulInst(i2, global);
@@ -127,28 +158,28 @@ public class Module {
         var b2 = func1.createBasicBlock();
         b2.setName("b2");
 
-        b2.createStoreInst(new ImmediateValue(10), i4);
+        b2.createStoreInst(module.getImmediateValue(10), i4);
 
         var load = b2.createLoadInst(global);
         load.setName("5");
 
-        var call = b2.createCallInst(Function.BUILD_IN_PUTSTR, List.of(load));
+        var call = b2.createCallInst(module.getBuildInPutStr(), List.of(load));
 
         b2.createReturnInst(null);
 
         // if (1 < 1) { putint(1); }
-        var cond = b2.createICmpInst(ICmpInstCond.EQ, new ImmediateValue(1), new ImmediateValue(1));
+        var cond = b2.createICmpInst(ICmpInstCond.EQ, module.getImmediateValue(1), module.getImmediateValue(1));
         var trueBlock = func1.createBasicBlock();
-        trueBlock.createCallInst(Function.BUILD_IN_PUTINT, List.of(new ImmediateValue(1)));
+        trueBlock.createCallInst(module.getBuildInPutInt(), List.of(module.getImmediateValue(1)));
         var finishBlock = func1.createBasicBlock();
         b2.createBrInstWithCond(cond, trueBlock, finishBlock);
 
         // if (i < 1) { putint(1); } else { putint(2); }
-        var cond2 = finishBlock.createICmpInst(ICmpInstCond.EQ, new ImmediateValue(1), new ImmediateValue(1));
+        var cond2 = finishBlock.createICmpInst(ICmpInstCond.EQ, module.getImmediateValue(1), module.getImmediateValue(1));
         var trueBlock2 = func1.createBasicBlock();
-        trueBlock2.createCallInst(Function.BUILD_IN_PUTINT, List.of(new ImmediateValue(1)));
+        trueBlock2.createCallInst(module.getBuildInPutInt(), List.of(module.getImmediateValue(1)));
         var falseBlock2 = func1.createBasicBlock();
-        falseBlock2.createCallInst(Function.BUILD_IN_PUTINT, List.of(new ImmediateValue(1)));
+        falseBlock2.createCallInst(module.getBuildInPutInt(), List.of(module.getImmediateValue(1)));
         finishBlock.createBrInstWithCond(cond, trueBlock2, falseBlock2);
         var finishBlock2 = func1.createBasicBlock();
         trueBlock2.createBrInstWithoutCond(finishBlock2);
@@ -172,24 +203,24 @@ public class Module {
 //            putint(4);
 //        }
 
-        var cond1 = currBlock.createICmpInst(ICmpInstCond.SLT, new ImmediateValue(1), new ImmediateValue(1)); // read cond
+        var cond1 = currBlock.createICmpInst(ICmpInstCond.SLT, module.getImmediateValue(1), module.getImmediateValue(1)); // read cond
         var condBlock1 = currBlock;
 
         currBlock = func1.createBasicBlock(); // create new block and visit true stmt
         var trueBlock1 = currBlock;
-        currBlock.createCallInst(Function.BUILD_IN_PUTINT, List.of(new ImmediateValue(1)));
+        currBlock.createCallInst(module.getBuildInPutInt(), List.of(module.getImmediateValue(1)));
 
-        var cond2 = currBlock.createICmpInst(ICmpInstCond.SGT, new ImmediateValue(1), new ImmediateValue(1)); // read cond
+        var cond2 = currBlock.createICmpInst(ICmpInstCond.SGT, module.getImmediateValue(1), module.getImmediateValue(1)); // read cond
         var condBlock2 = currBlock;
 
         currBlock = func1.createBasicBlock(); // create new block and visit true stmt
         var trueBlock2 = currBlock;
-        currBlock.createCallInst(Function.BUILD_IN_PUTINT, List.of(new ImmediateValue(2)));
+        currBlock.createCallInst(module.getBuildInPutInt(), List.of(module.getImmediateValue(2)));
         var lastInTrue2 = currBlock;
 
         currBlock = func1.createBasicBlock(); // return, create new block and visit false stmt
         var falseBlock2 = currBlock;
-        currBlock.createCallInst(Function.BUILD_IN_PUTINT, List.of(new ImmediateValue(3)));
+        currBlock.createCallInst(module.getBuildInPutInt(), List.of(module.getImmediateValue(3)));
 
         condBlock2.createBrInstWithCond(cond2, trueBlock2, falseBlock2); // return, add br inst to cond block
         currBlock = func1.createBasicBlock(); // block after if-else
@@ -198,7 +229,7 @@ public class Module {
 
         currBlock = func1.createBasicBlock(); // return, create new block and visit false stmt
         var falseBlock1 = currBlock;
-        currBlock.createCallInst(Function.BUILD_IN_PUTINT, List.of(new ImmediateValue(4)));
+        currBlock.createCallInst(module.getBuildInPutInt(), List.of(module.getImmediateValue(4)));
 
         condBlock1.createBrInstWithCond(cond1, trueBlock1, falseBlock1); // return, add br inst to cond block
         currBlock = func1.createBasicBlock(); // block after if-else
@@ -222,7 +253,7 @@ public class Module {
 //            putint(2);
 //        }
 
-        var cond1 = currBlock.createICmpInst(ICmpInstCond.EQ, new ImmediateValue(1), new ImmediateValue(1));
+        var cond1 = currBlock.createICmpInst(ICmpInstCond.EQ, module.getImmediateValue(1), module.getImmediateValue(1));
         var br1 = (BrInst)currBlock.createBrInstWithCond(cond1, null, null);
         var andList1 = List.of(currBlock);
         currBlock = func1.createBasicBlock();
@@ -231,12 +262,12 @@ public class Module {
         toTrue.add(andList1.get(andList1.size()-1)); // add b1
 
         List<BasicBlock> andList2 = new ArrayList<>();
-        var cond2 = currBlock.createICmpInst(ICmpInstCond.SLE, new ImmediateValue(2), new ImmediateValue(2));
+        var cond2 = currBlock.createICmpInst(ICmpInstCond.SLE, module.getImmediateValue(2), module.getImmediateValue(2));
         var br2 = (BrInst)currBlock.createBrInstWithCond(cond2, null, null);
         andList2.add(currBlock);
         currBlock = func1.createBasicBlock();
 
-        var cond3 = currBlock.createICmpInst(ICmpInstCond.SGE, new ImmediateValue(3), new ImmediateValue(3));
+        var cond3 = currBlock.createICmpInst(ICmpInstCond.SGE, module.getImmediateValue(3), module.getImmediateValue(3));
         var br3 = (BrInst)currBlock.createBrInstWithCond(cond3, null, null);
         br2.setTrueBranch(currBlock);
         andList2.add(currBlock);
@@ -252,12 +283,12 @@ public class Module {
         toTrue.add(andList2.get(andList2.size()-1)); // add b3
 
         List<BasicBlock> andList3 = new ArrayList<>();
-        var cond4 = currBlock.createICmpInst(ICmpInstCond.SLE, new ImmediateValue(4), new ImmediateValue(4));
+        var cond4 = currBlock.createICmpInst(ICmpInstCond.SLE, module.getImmediateValue(4), module.getImmediateValue(4));
         var br4 = (BrInst)currBlock.createBrInstWithCond(cond4, null, null);
         andList3.add(currBlock);
         currBlock = func1.createBasicBlock();
 
-        var cond5 = currBlock.createICmpInst(ICmpInstCond.SGE, new ImmediateValue(5), new ImmediateValue(5));
+        var cond5 = currBlock.createICmpInst(ICmpInstCond.SGE, module.getImmediateValue(5), module.getImmediateValue(5));
         var br5 = (BrInst)currBlock.createBrInstWithCond(cond5, null, null);
         andList3.add(currBlock);
         br4.setTrueBranch(currBlock);
@@ -275,7 +306,7 @@ public class Module {
         br3.setTrueBranch(currBlock);
         br5.setTrueBranch(currBlock);
 
-        currBlock.createCallInst(Function.BUILD_IN_PUTINT, List.of(new ImmediateValue(1)));
+        currBlock.createCallInst(module.getBuildInPutInt(), List.of(module.getImmediateValue(1)));
 
         var lastBlockInTrue = currBlock;
 
@@ -284,7 +315,7 @@ public class Module {
         br4.setFalseBranch(currBlock);
         br5.setFalseBranch(currBlock);
 
-        currBlock.createCallInst(Function.BUILD_IN_PUTINT, List.of(new ImmediateValue(2)));
+        currBlock.createCallInst(module.getBuildInPutInt(), List.of(module.getImmediateValue(2)));
 
         currBlock = func1.createBasicBlock();
 
@@ -301,8 +332,8 @@ public class Module {
         var b1 = func1.createBasicBlock();
 
         var arr1 = b1.createAllocaInst(IRType.getInt().dims(List.of(2, 3)));
-        var tmp1 = b1.createGetElementPtrInst(arr1, List.of(new ImmediateValue(0)));
-        b1.createGetElementPtrInst(tmp1, List.of(new ImmediateValue(0)));
+        var tmp1 = b1.createGetElementPtrInst(arr1, List.of(module.getImmediateValue(0)));
+        b1.createGetElementPtrInst(tmp1, List.of(module.getImmediateValue(0)));
 
         module.dump(System.out);
     }
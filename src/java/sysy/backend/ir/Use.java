@@ -1,9 +1,14 @@
 package sysy.backend.ir;
 
+// an operand of a user, linked into the use list of the value in it
 public class Use {
     private final User user;
     private Value value;
-    private int pos;
+    private final int pos;
+
+    // maintained by Value
+    Use prev;
+    Use next;
 
     public Use(User user, Value value, int pos) {
         this.user = user;
@@ -23,7 +28,7 @@ public class Use {
         return pos;
     }
 
-    public void setValue(Value value) {
+    void setValue(Value value) {
         this.value = value;
     }
 }
@@ -5,25 +5,71 @@ import java.util.List;
 
 public abstract class User extends Value {
     protected final List<Value> operands = new ArrayList<>();
+    private final List<Use> operandUses = new ArrayList<>(); // null where the operand is null
 
     public User(IRType type, Value... operands) {
         super(type);
 
-        int pos = 0;
         for (var op : operands) {
-            if (op != null) {
-                op.addUse(this, pos);
-            }
-            this.operands.add(op);
-            pos++;
+            addOperand(op);
+        }
+    }
+
+    protected void addOperand(Value operand) {
+        Use use = null;
+        if (operand != null) {
+            use = new Use(this, operand, operands.size());
+            operand.addUse(use);
         }
+        operands.add(operand);
+        operandUses.add(use);
+    }
+
+    // moves the last operand into the place of the removed one, for users whose operands are in no particular order
+    protected void removeOperand(int pos) {
+        int last = operands.size() - 1;
+        if (pos != last) {
+            replaceOperand(pos, operands.get(last));
+        }
+        replaceOperand(last, null);
+        operands.remove(last);
+        operandUses.remove(last);
     }
 
     public List<Value> getOperands() {
         return operands;
     }
 
+    // subclasses that keep operands in fields of their own update them here as well
     public void replaceOperand(int pos, Value newOperand) {
+        var use = operandUses.get(pos);
+        if (use != null) {
+            use.getValue().removeUse(use);
+        }
+        if (newOperand != null) {
+            if (use == null) {
+                use = new Use(this, newOperand, pos);
+                operandUses.set(pos, use);
+            } else {
+                use.setValue(newOperand);
+            }
+            newOperand.addUse(use);
+        } else {
+            operandUses.set(pos, null);
+        }
         operands.set(pos, newOperand);
     }
+
+    // unlinks the user from all of its operands, once it is no longer part of the program
+    public void dropOperands() {
+        for (int pos = 0; pos < operands.size(); pos++) {
+            if (operands.get(pos) != null) {
+                replaceOperand(pos, null);
+            }
+        }
+    }
+
+    Use getOperandUse(int pos) {
+        return operandUses.get(pos);
+    }
 }
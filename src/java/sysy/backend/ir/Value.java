@@ -1,12 +1,13 @@
 package sysy.backend.ir;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 public abstract class Value {
     private String name = null;
     private final IRType type;
-    private final List<Use> useList = new ArrayList<>();
+    private Use firstUse = null; // the uses form a doubly linked list through Use, so that unlinking one is O(1)
+    private int useCount = 0;
 
     public Value(IRType type) {
         this.type = type;
@@ -18,17 +19,75 @@ public abstract class Value {
 
     public String getName() {
         if (name == null) {
-            name = NameAllocator.getInstance().alloc();
+            name = getNameAllocator().alloc();
         }
         return name;
     }
 
-    public void addUse(User user, int pos) {
-        useList.add(new Use(user, this, pos));
+    protected NameAllocator getNameAllocator() {
+        throw new RuntimeException(); // impossible, only values inside a function have anonymous names
     }
 
-    public List<Use> getUseList() {
-        return useList;
+    void addUse(Use use) {
+        use.prev = null;
+        use.next = firstUse;
+        if (firstUse != null) {
+            firstUse.prev = use;
+        }
+        firstUse = use;
+        useCount++;
+    }
+
+    void removeUse(Use use) {
+        if (use.prev == null) {
+            firstUse = use.next;
+        } else {
+            use.prev.next = use.next;
+        }
+        if (use.next != null) {
+            use.next.prev = use.prev;
+        }
+        use.prev = null;
+        use.next = null;
+        useCount--;
+    }
+
+    // an iteration may replace the operand of the use it is at
+    public Iterable<Use> getUses() {
+        return () -> new Iterator<>() {
+            private Use next = firstUse;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Use next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                var use = next;
+                next = use.next;
+                return use;
+            }
+        };
+    }
+
+    public int getUseCount() {
+        return useCount;
+    }
+
+    public boolean hasUses() {
+        return firstUse != null;
+    }
+
+    public void replaceAllUsesWith(Value newValue) {
+        assert newValue != this;
+        for (var use : getUses()) {
+            use.getUser().replaceOperand(use.getPos(), newValue);
+        }
+        assert firstUse == null;
     }
 
     public IRType getType() {
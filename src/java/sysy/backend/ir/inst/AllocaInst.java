@@ -8,17 +8,17 @@ import java.io.PrintStream;
 public class AllocaInst extends Instruction {
 
     public AllocaInst(IRType dataType) {
-        super(dataType.clone().ptr(dataType.getPtrNum()+1)); // the type of alloca var is actually the address of the data
+        super(dataType.ptr(dataType.getPtrNum()+1)); // the type of alloca var is actually the address of the data
     }
 
     public IRType getDataType() {
-        var dataType = getType().clone().ptr(getType().getPtrNum()-1); // remove pointer
+        var dataType = getType().ptr(getType().getPtrNum()-1); // remove pointer
         return dataType;
     }
 
     @Override
     public void dump(PrintStream out) {
-        var dataType = getType().clone().ptr(getType().getPtrNum()-1); // remove pointer
+        var dataType = getType().ptr(getType().getPtrNum()-1); // remove pointer
         out.printf("  %s = alloca %s\n", getName(), dataType);
     }
 
@@ -30,14 +30,17 @@ public class BrInst extends Instruction {
 
     public void setTrueBranch(BasicBlock trueBranch) {
         this.trueBranch = trueBranch;
+        markControlFlowChanged();
     }
 
     public void setFalseBranch(BasicBlock falseBranch) {
         this.falseBranch = falseBranch;
+        markControlFlowChanged();
     }
 
     public void setDest(BasicBlock dest) {
         this.dest = dest;
+        markControlFlowChanged();
     }
 
     public Value getCond() {
@@ -56,6 +59,12 @@ public class BrInst extends Instruction {
         return dest;
     }
 
+    private void markControlFlowChanged() {
+        if (getBasicBlock() != null) {
+            getBasicBlock().getFunction().markControlFlowChanged();
+        }
+    }
+
     @Override
     public void dump(PrintStream out) {
         if (cond != null) {
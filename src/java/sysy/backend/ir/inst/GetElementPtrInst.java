@@ -1,7 +1,6 @@
 package sysy.backend.ir.inst;
 
 import sysy.backend.ir.ArrayIRType;
-import sysy.backend.ir.BasicIRType;
 import sysy.backend.ir.IRType;
 import sysy.backend.ir.Value;
 
@@ -33,13 +32,13 @@ public class GetElementPtrInst extends Instruction {
             var oriArrayDims = arrayIRType.getArrayDims();
             var rtDims = oriArrayDims.subList(offsetCount-1, oriArrayDims.size());
             if (rtDims.isEmpty()) {
-                return new BasicIRType(arrayIRType.getElmType().getType()).ptr(1);
+                return arrayIRType.getElmType().ptr(1);
             } else {
-                return new ArrayIRType(arrayIRType.getElmType(), rtDims).ptr(1);
+                return arrayIRType.getElmType().dims(rtDims).ptr(1);
             }
         } else {
             assert offsetCount == 1;
-            return elementBaseType.clone();
+            return elementBaseType;
         }
     }
 
@@ -53,7 +52,7 @@ public class GetElementPtrInst extends Instruction {
 
     @Override
     public void dump(PrintStream out) {
-        var dataType = elementBase.getType().clone().ptr(elementBase.getType().getPtrNum()-1);
+        var dataType = elementBase.getType().ptr(elementBase.getType().getPtrNum()-1);
         out.printf("  %s = getelementptr %s, %s",
                 getName(),
                 dataType,
@@ -2,13 +2,18 @@ package sysy.backend.ir.inst;
 
 import sysy.backend.ir.BasicBlock;
 import sysy.backend.ir.IRType;
+import sysy.backend.ir.NameAllocator;
 import sysy.backend.ir.User;
 import sysy.backend.ir.Value;
 
 import java.io.PrintStream;
 
 public abstract class Instruction extends User {
-    private BasicBlock basicBlock;
+    // maintained by InstructionList
+    BasicBlock basicBlock;
+    Instruction prev;
+    Instruction next;
+    private int valueNumber = 0; // scratch for value numbering, only meaningful during the pass that set it
 
     public Instruction(IRType type, Value... operands) {
         super(type, operands);
@@ -18,28 +23,43 @@ public abstract class Instruction extends User {
         return basicBlock;
     }
 
-    public void setBasicBlock(BasicBlock basicBlock) {
-        this.basicBlock = basicBlock;
+    public Instruction getPrev() {
+        return prev;
+    }
+
+    public Instruction getNext() {
+        return next;
+    }
+
+    public int getValueNumber() {
+        return valueNumber;
+    }
+
+    public void setValueNumber(int valueNumber) {
+        this.valueNumber = valueNumber;
     }
 
     public void replaceAllUseWith(Value newValue, boolean needInsert) {
-        var idx = basicBlock.getInstructions().indexOf(this);
-        if (idx < 0) {
+        if (basicBlock == null) {
             throw new RuntimeException(); // impossible
         }
         if (needInsert) {
             if (newValue instanceof Instruction newInst) {
-                basicBlock.getInstructions().set(idx, newInst);
+                basicBlock.getInstructions().replace(this, newInst);
             } else {
                 throw new RuntimeException();
             }
         } else {
-            basicBlock.getInstructions().remove(idx);
+            basicBlock.getInstructions().remove(this);
         }
 
-        for (var use : getUseList()) {
-            use.getUser().replaceOperand(use.getPos(), newValue);
-        }
+        replaceAllUsesWith(newValue);
+        dropOperands();
+    }
+
+    @Override
+    protected NameAllocator getNameAllocator() {
+        return basicBlock.getFunction().getNameAllocator();
     }
 
     @Override
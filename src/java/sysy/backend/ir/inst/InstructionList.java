@@ -0,0 +1,123 @@
+package sysy.backend.ir.inst;
+
+import sysy.backend.ir.BasicBlock;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// the instructions of a block, linked through the instructions themselves, so that inserting, removing and replacing
+// one is O(1). an iteration may remove the instruction it is at
+public class InstructionList implements Iterable<Instruction> {
+    private final BasicBlock basicBlock;
+    private Instruction first = null;
+    private Instruction last = null;
+    private int size = 0;
+
+    public InstructionList(BasicBlock basicBlock) {
+        this.basicBlock = basicBlock;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public Instruction getFirst() {
+        return first;
+    }
+
+    public Instruction getLast() {
+        return last;
+    }
+
+    public void add(Instruction inst) {
+        insertAfter(last, inst);
+    }
+
+    // pos == null inserts at the front
+    public void insertAfter(Instruction pos, Instruction inst) {
+        assert inst.basicBlock == null;
+        var next = pos == null ? first : pos.next;
+        inst.prev = pos;
+        inst.next = next;
+        if (pos == null) {
+            first = inst;
+        } else {
+            pos.next = inst;
+        }
+        if (next == null) {
+            last = inst;
+        } else {
+            next.prev = inst;
+        }
+        inst.basicBlock = basicBlock;
+        size++;
+        if (inst instanceof BrInst) {
+            basicBlock.getFunction().markControlFlowChanged();
+        }
+    }
+
+    public void insertBefore(Instruction pos, Instruction inst) {
+        insertAfter(pos.prev, inst);
+    }
+
+    public void remove(Instruction inst) {
+        if (inst.basicBlock != basicBlock) {
+            throw new RuntimeException(); // impossible
+        }
+        if (inst.prev == null) {
+            first = inst.next;
+        } else {
+            inst.prev.next = inst.next;
+        }
+        if (inst.next == null) {
+            last = inst.prev;
+        } else {
+            inst.next.prev = inst.prev;
+        }
+        inst.prev = null;
+        inst.next = null;
+        inst.basicBlock = null;
+        size--;
+        if (inst instanceof BrInst) {
+            basicBlock.getFunction().markControlFlowChanged();
+        }
+    }
+
+    public void replace(Instruction oldInst, Instruction newInst) {
+        var prev = oldInst.prev;
+        remove(oldInst);
+        insertAfter(prev, newInst);
+    }
+
+    public Stream<Instruction> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    @Override
+    public Iterator<Instruction> iterator() {
+        return new Iterator<>() {
+            private Instruction next = first;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Instruction next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                var inst = next;
+                next = inst.next; // taken before the caller may remove inst
+                return inst;
+            }
+        };
+    }
+}
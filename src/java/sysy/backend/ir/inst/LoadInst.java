@@ -8,7 +8,7 @@ public class LoadInst extends Instruction {
     Value ptr;
 
     public LoadInst(Value ptr) {
-        super(ptr.getType().clone().ptr(ptr.getType().getPtrNum()-1), ptr);
+        super(ptr.getType().ptr(ptr.getType().getPtrNum()-1), ptr);
         this.ptr = ptr;
     }
 
@@ -18,7 +18,7 @@ public class LoadInst extends Instruction {
 
     @Override
     public void dump(PrintStream out) {
-        var dataType = ptr.getType().clone().ptr(ptr.getType().getPtrNum()-1); // remove the pointer
+        var dataType = ptr.getType().ptr(ptr.getType().getPtrNum()-1); // remove the pointer
         out.printf("  %s = load %s, %s\n", getName(), dataType.toString(), ptr.toString());
     }
 
@@ -0,0 +1,53 @@
+package sysy.backend.ir.inst;
+
+import sysy.backend.ir.BasicBlock;
+import sysy.backend.ir.IRType;
+import sysy.backend.ir.Value;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+// the value coming in from each predecessor. the operands and the incoming blocks are in the same order
+public class PhiInst extends Instruction {
+    private final List<BasicBlock> incomingBlocks = new ArrayList<>();
+
+    public PhiInst(IRType type) {
+        super(type);
+    }
+
+    public void addIncoming(Value value, BasicBlock block) {
+        addOperand(value);
+        incomingBlocks.add(block);
+    }
+
+    // for an edge that is no longer taken
+    public void removeIncoming(BasicBlock block) {
+        int pos = incomingBlocks.indexOf(block);
+        int last = incomingBlocks.size() - 1;
+        incomingBlocks.set(pos, incomingBlocks.get(last));
+        incomingBlocks.remove(last);
+        removeOperand(pos);
+    }
+
+    public List<BasicBlock> getIncomingBlocks() {
+        return incomingBlocks;
+    }
+
+    public Value getIncomingValue(BasicBlock block) {
+        int pos = incomingBlocks.indexOf(block);
+        return pos == -1 ? null : operands.get(pos);
+    }
+
+    @Override
+    public void dump(PrintStream out) {
+        out.printf("  %s = phi %s ", getName(), getType());
+        for (int i = 0; i < incomingBlocks.size(); i++) {
+            if (i != 0) {
+                out.print(", ");
+            }
+            out.printf("[ %s, %s ]", operands.get(i).getName(), incomingBlocks.get(i).getName());
+        }
+        out.print("\n");
+    }
+}
@@ -0,0 +1,77 @@
+package sysy.backend.optim;
+
+import sysy.backend.ir.Function;
+
+// caches the analyses of one function across passes. the control flow ones only depend on the blocks and the branches
+// between them, so they stay valid until Function.getControlFlowVersion changes, and then are rebuilt on next request.
+// the liveness of the variables also depends on their loads and stores, so it is dropped by invalidateInstructions too,
+// which the pass manager calls after every pass that changed the function
+public class AnalysisManager {
+    private final Function function;
+    private int version;
+    private ControlFlowGraph cfg = null;
+    private DominatorTree dominatorTree = null;
+    private LiveVariableAnalyzer liveVariables = null;
+    private int builds = 0;
+
+    public AnalysisManager(Function func) {
+        this.function = func;
+        this.version = func.getControlFlowVersion();
+    }
+
+    public Function getFunction() {
+        return function;
+    }
+
+    public ControlFlowGraph getControlFlowGraph() {
+        checkVersion();
+        if (cfg == null) {
+            cfg = new ControlFlowGraph(function);
+            builds++;
+        }
+        return cfg;
+    }
+
+    public DominatorTree getDominatorTree() {
+        checkVersion();
+        if (dominatorTree == null) {
+            dominatorTree = new DominatorTree(getControlFlowGraph());
+            builds++;
+        }
+        return dominatorTree;
+    }
+
+    public LiveVariableAnalyzer getLiveVariables() {
+        checkVersion();
+        if (liveVariables == null) {
+            liveVariables = new LiveVariableAnalyzer(getControlFlowGraph());
+            liveVariables.analyze();
+            builds++;
+        }
+        return liveVariables;
+    }
+
+    // drops the cached analyses even if the version has not changed
+    public void invalidate() {
+        cfg = null;
+        dominatorTree = null;
+        liveVariables = null;
+    }
+
+    // drops what depends on the instructions, after a change that left the control flow as it was
+    public void invalidateInstructions() {
+        liveVariables = null;
+    }
+
+    // how many analyses have been built, for statistics
+    public int getBuilds() {
+        return builds;
+    }
+
+    private void checkVersion() {
+        if (version != function.getControlFlowVersion()) {
+            version = function.getControlFlowVersion();
+            invalidate();
+        }
+    }
+}
@@ -1,26 +1,25 @@
 package sysy.backend.optim;
 
-import sysy.backend.ir.inst.AllocaInst;
+import sysy.backend.ir.Value;
 
 import java.util.*;
 
 public class ConflictDiagram {
-    private final Map<AllocaInst, Set<AllocaInst>> conflict = new HashMap<>();
+    private final Map<Value, Set<Value>> conflict = new LinkedHashMap<>();
 
-    public ConflictDiagram(List<AllocaInst> elements) {
+    public ConflictDiagram(List<? extends Value> elements) {
         for (var elm : elements) {
-            conflict.put(elm, new HashSet<>());
+            conflict.put(elm, new LinkedHashSet<>());
         }
     }
 
-    public void addConflict(AllocaInst a, AllocaInst b) {
+    public void addConflict(Value a, Value b) {
         conflict.get(a).add(b);
         conflict.get(b).add(a);
     }
 
-    public void removeNode(AllocaInst node) {
-        conflict.remove(node);
-        for (var otherNode : conflict.keySet()) {
+    public void removeNode(Value node) {
+        for (var otherNode : conflict.remove(node)) {
             conflict.get(otherNode).remove(node);
         }
     }
@@ -28,7 +27,7 @@ public class ConflictDiagram {
     public ConflictDiagram copy() {
         var newDiagram = new ConflictDiagram(this.conflict.keySet().stream().toList());
         for (var node : this.conflict.keySet()) {
-            var newSet = new HashSet<>(this.conflict.get(node));
+            var newSet = new LinkedHashSet<>(this.conflict.get(node));
             newDiagram.conflict.put(node, newSet);
         }
         return newDiagram;
@@ -38,11 +37,11 @@ public class ConflictDiagram {
         return conflict.isEmpty();
     }
 
-    public Set<AllocaInst> getConflict(AllocaInst a) {
+    public Set<Value> getConflict(Value a) {
         return conflict.get(a);
     }
 
-    public Set<AllocaInst> getNodes() {
+    public Set<Value> getNodes() {
         return conflict.keySet();
     }
 }
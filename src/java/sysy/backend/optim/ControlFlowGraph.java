@@ -0,0 +1,109 @@
+package sysy.backend.optim;
+
+import sysy.backend.ir.BasicBlock;
+import sysy.backend.ir.Function;
+import sysy.backend.ir.inst.BrInst;
+
+import java.util.*;
+
+// successors and predecessors of every block of a function, and the reverse postorder of the blocks reachable from
+// the entry. built once from the branches at the ends of the blocks, see AnalysisManager for when to rebuild it
+public class ControlFlowGraph {
+    private final Function function;
+    private final Map<BasicBlock, List<BasicBlock>> successors = new HashMap<>();
+    private final Map<BasicBlock, List<BasicBlock>> predecessors = new HashMap<>();
+    private final List<BasicBlock> reversePostOrder = new ArrayList<>();
+    private final Map<BasicBlock, Integer> reversePostOrderIndex = new HashMap<>();
+
+    public ControlFlowGraph(Function func) {
+        this.function = func;
+
+        for (var block : func.getBasicBlocks()) {
+            predecessors.put(block, new ArrayList<>());
+        }
+        for (var block : func.getBasicBlocks()) {
+            var nextBlocks = getNextBlocks(block);
+            successors.put(block, nextBlocks);
+            for (var nextBlock : nextBlocks) {
+                predecessors.get(nextBlock).add(block);
+            }
+        }
+
+        buildReversePostOrder();
+    }
+
+    private static List<BasicBlock> getNextBlocks(BasicBlock block) {
+        if (!(block.getInstructions().getLast() instanceof BrInst brInst)) {
+            return List.of();
+        } else if (brInst.getDest() != null) {
+            return List.of(brInst.getDest());
+        } else if (brInst.getTrueBranch() == brInst.getFalseBranch()) {
+            return List.of(brInst.getTrueBranch());
+        } else {
+            return List.of(brInst.getTrueBranch(), brInst.getFalseBranch());
+        }
+    }
+
+    private void buildReversePostOrder() {
+        var entry = function.getFirstBasicBlock();
+        if (entry == null) {
+            return;
+        }
+
+        // iterative, since a deeply nested program makes a deep graph
+        List<BasicBlock> postOrder = new ArrayList<>();
+        Set<BasicBlock> visited = new HashSet<>();
+        Deque<BasicBlock> blockStack = new ArrayDeque<>();
+        Deque<Integer> nextSuccessorStack = new ArrayDeque<>();
+        visited.add(entry);
+        blockStack.push(entry);
+        nextSuccessorStack.push(0);
+        while (!blockStack.isEmpty()) {
+            var block = blockStack.peek();
+            int next = nextSuccessorStack.pop();
+            var nextBlocks = successors.get(block);
+            if (next < nextBlocks.size()) {
+                nextSuccessorStack.push(next + 1);
+                var nextBlock = nextBlocks.get(next);
+                if (visited.add(nextBlock)) {
+                    blockStack.push(nextBlock);
+                    nextSuccessorStack.push(0);
+                }
+            } else {
+                blockStack.pop();
+                postOrder.add(block);
+            }
+        }
+
+        for (int i = postOrder.size() - 1; i >= 0; i--) {
+            reversePostOrderIndex.put(postOrder.get(i), reversePostOrder.size());
+            reversePostOrder.add(postOrder.get(i));
+        }
+    }
+
+    public Function getFunction() {
+        return function;
+    }
+
+    public List<BasicBlock> getSuccessors(BasicBlock block) {
+        return successors.get(block);
+    }
+
+    public List<BasicBlock> getPredecessors(BasicBlock block) {
+        return Collections.unmodifiableList(predecessors.get(block));
+    }
+
+    // only the reachable blocks, the entry first
+    public List<BasicBlock> getReversePostOrder() {
+        return Collections.unmodifiableList(reversePostOrder);
+    }
+
+    // -1 if the block is unreachable
+    public int getReversePostOrderIndex(BasicBlock block) {
+        return reversePostOrderIndex.getOrDefault(block, -1);
+    }
+
+    public boolean isReachable(BasicBlock block) {
+        return reversePostOrderIndex.containsKey(block);
+    }
+}
@@ -1,78 +1,101 @@
 package sysy.backend.optim;
 
-import sysy.backend.ir.BasicBlock;
 import sysy.backend.ir.Function;
-import sysy.backend.ir.Module;
+import sysy.backend.ir.Value;
 import sysy.backend.ir.inst.*;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.ArrayDeque;
+import java.util.Deque;
 
-public class DeadCodeEliminationPass {
-    private final Module irModule;
+// mark and sweep. what has an effect is live, and so is every instruction a live one uses, found with a worklist so
+// that each instruction is marked once and no chain of them is too deep. a store into a local only has an effect once
+// the local is live, that is once something live reads it or passes it on, and a call to a side effect free function
+// only once its result is used. everything left unmarked is removed, but the allocas of the arguments, which the
+// translator expects to find.
+// the marks are indexed by Instruction.valueNumber, which the pass sets
+public class DeadCodeEliminationPass implements FunctionPass {
+    private boolean[] live;
+    private final Deque<Instruction> worklist = new ArrayDeque<>();
+    private final Deque<Value> addresses = new ArrayDeque<>();
 
-    public DeadCodeEliminationPass(Module irModule) {
-        this.irModule = irModule;
+    @Override
+    public String getName() {
+        return "DeadCodeEliminationPass";
     }
 
-    public Module pass() {
-        for (var func : irModule.getFunctions()) {
-            passFunc(func);
+    // needs no analysis
+    @Override
+    public boolean passFunc(Function func, AnalysisManager analyses) {
+        int count = 0;
+        for (var block : func.getBasicBlocks()) {
+            for (var inst : block.getInstructions()) {
+                inst.setValueNumber(count++);
+            }
         }
-
-        return irModule;
-    }
-
-    private void passFunc(Function func) {
-        Set<Instruction> initialUsefulSet = new HashSet<>();
+        live = new boolean[count];
 
         for (var block : func.getBasicBlocks()) {
             for (var inst : block.getInstructions()) {
-                if (inst instanceof ReturnInst
-                        || inst instanceof BrInst
-                        || inst instanceof CallInst
-                        || inst instanceof StoreInst) {
-                    initialUsefulSet.add(inst);
+                if (hasEffect(inst)) {
+                    mark(inst);
+                }
+            }
+        }
+        while (!worklist.isEmpty()) {
+            var inst = worklist.pop();
+            if (inst instanceof AllocaInst) {
+                markStoresInto(inst);
+            }
+            for (var operand : inst.getOperands()) {
+                if (operand instanceof Instruction instOperand) {
+                    mark(instOperand);
                 }
             }
         }
 
-        var usefulSet = getUsefulClosure(initialUsefulSet);
+        boolean changed = false;
+        int argsToSkip = func.getArguments().size(); // their allocas come first
         for (var block : func.getBasicBlocks()) {
-            var insts = block.getInstructions();
-            for (int i = 0; i < insts.size(); i++) {
-                var inst = insts.get(i);
-                if (!usefulSet.contains(inst) && !(inst instanceof AllocaInst)) {
-                    inst.replaceAllUseWith(null, false);
-                    i--;
+            for (var inst : block.getInstructions()) {
+                if (inst instanceof AllocaInst && argsToSkip > 0) {
+                    argsToSkip--;
+                } else if (!live[inst.getValueNumber()]) {
+                    inst.replaceAllUseWith(null, false); // its users are dead as well
+                    changed = true;
                 }
             }
         }
+        return changed;
     }
 
-    private Set<Instruction> getUsefulClosure(Set<Instruction> instSet) {
-        Set<Instruction> usefulSet = new HashSet<>();
-        for (var inst : instSet) {
-            usefulSet.addAll(getUsefulClosure(inst));
+    private boolean hasEffect(Instruction inst) {
+        if (inst instanceof StoreInst storeInst) {
+            return !MemoryRoots.isLocal(storeInst.getPtr());
+        }
+        if (inst instanceof CallInst callInst) {
+            return !callInst.getFunc().isSideEffectFree();
         }
-        return usefulSet;
+        return inst instanceof ReturnInst || inst instanceof BrInst;
     }
 
-    private Set<Instruction> getUsefulClosure(Instruction inst) {
-        Set<Instruction> usefulSet = new HashSet<>();
-        usefulSet.add(inst);
-        for (var operand : inst.getOperands()) {
-            if (operand instanceof Instruction instOperand) {
-                usefulSet.addAll(getUsefulClosure(instOperand));
-            }
+    private void mark(Instruction inst) {
+        if (!live[inst.getValueNumber()]) {
+            live[inst.getValueNumber()] = true;
+            worklist.push(inst);
         }
-        return usefulSet;
     }
 
-    private void passBlock(BasicBlock block) {
-        var insts = block.getInstructions();
-        for (int i = insts.size() - 1; i >= 0; i--) {
-            var inst = insts.get(i);
+    // the stores into the alloca or into an element of it
+    private void markStoresInto(Instruction allocaInst) {
+        addresses.push(allocaInst);
+        while (!addresses.isEmpty()) {
+            for (var use : addresses.pop().getUses()) {
+                if (use.getUser() instanceof StoreInst storeInst && use.getPos() == 1) {
+                    mark(storeInst);
+                } else if (use.getUser() instanceof GetElementPtrInst gep && use.getPos() == 0) {
+                    addresses.push(gep);
+                }
+            }
         }
     }
 }
@@ -0,0 +1,62 @@
+package sysy.backend.optim;
+
+import sysy.backend.ir.Function;
+import sysy.backend.ir.Module;
+import sysy.backend.ir.inst.CallInst;
+
+import java.util.*;
+
+// removes the functions never called on the way from main, so that they are neither optimized nor translated
+public class DeadFunctionEliminationPass implements ModulePass {
+    private final Module irModule;
+
+    public DeadFunctionEliminationPass(Module irModule) {
+        this.irModule = irModule;
+    }
+
+    @Override
+    public String getName() {
+        return "DeadFunctionEliminationPass";
+    }
+
+    @Override
+    public boolean passModule() {
+        Function main = null;
+        for (var func : irModule.getFunctions()) {
+            if (func.getName().equals("@main")) {
+                main = func;
+            }
+        }
+        if (main == null) {
+            return false;
+        }
+
+        Set<Function> called = new HashSet<>();
+        Deque<Function> worklist = new ArrayDeque<>();
+        called.add(main);
+        worklist.push(main);
+        while (!worklist.isEmpty()) {
+            for (var block : worklist.pop().getBasicBlocks()) {
+                for (var inst : block.getInstructions()) {
+                    if (inst instanceof CallInst callInst && called.add(callInst.getFunc())) {
+                        worklist.push(callInst.getFunc());
+                    }
+                }
+            }
+        }
+
+        for (var func : irModule.getFunctions()) {
+            if (called.contains(func)) {
+                continue;
+            }
+            // the globals and constants the body uses stay in the module, so its instructions are taken off their
+            // use lists. a call does not use its callee as an operand, so the callees are not involved
+            for (var block : func.getBasicBlocks()) {
+                for (var inst : block.getInstructions()) {
+                    inst.dropOperands();
+                }
+            }
+        }
+        return irModule.getFunctions().removeIf(func -> !called.contains(func));
+    }
+}
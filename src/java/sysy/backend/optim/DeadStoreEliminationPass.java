@@ -1,8 +1,8 @@
 package sysy.backend.optim;
 
 import sysy.backend.ir.*;
-import sysy.backend.ir.Module;
 import sysy.backend.ir.inst.AllocaInst;
+import sysy.backend.ir.inst.Instruction;
 import sysy.backend.ir.inst.LoadInst;
 import sysy.backend.ir.inst.StoreInst;
 
@@ -10,27 +10,20 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
-public class DeadStoreEliminationPass {
-    private final Module irModule;
+public class DeadStoreEliminationPass implements FunctionPass {
     private Map<BasicBlock, Set<AllocaInst>> outSets;
     private Set<AllocaInst> varAllocaInstSet;
+    private boolean changed;
 
-    public DeadStoreEliminationPass(Module irModule) {
-        this.irModule = irModule;
+    @Override
+    public String getName() {
+        return "DeadStoreEliminationPass";
     }
 
-    public Module pass() {
-        for (var func : irModule.getFunctions()) {
-            passFunc(func);
-        }
-
-        return irModule;
-    }
-
-    private void passFunc(Function func) {
-        var analyzer = new LiveVariableAnalyzer(func);
-        analyzer.analyze();
-        outSets = analyzer.getOutSets();
+    @Override
+    public boolean passFunc(Function func, AnalysisManager analyses) {
+        outSets = analyses.getLiveVariables().getOutSets();
+        changed = false;
 
         varAllocaInstSet = new HashSet<>(func.getFirstBasicBlock().getInstructions()
                 .stream()
@@ -45,15 +38,16 @@ public class DeadStoreEliminationPass {
         for (var block : func.getBasicBlocks()) {
             passBlock(block);
         }
+        return changed;
     }
 
     private void passBlock(BasicBlock block) {
         var outSet = outSets.get(block);
         Set<AllocaInst> needStore = new HashSet<>(outSet);
 
-        var insts = block.getInstructions();
-        for (int i = insts.size()-1; i >= 0; i--) {
-            var inst = insts.get(i);
+        Instruction prev;
+        for (var inst = block.getInstructions().getLast(); inst != null; inst = prev) {
+            prev = inst.getPrev(); // taken before inst may be removed
 
             if (inst instanceof LoadInst loadInst) {
                 var ptr = loadInst.getPtr();
@@ -67,6 +61,7 @@ public class DeadStoreEliminationPass {
                         needStore.remove(allocaInstPtr);
                     } else {
                         inst.replaceAllUseWith(null, false); // useList of store inst is empty, so null is safe
+                        changed = true;
                     }
                 }
             }
@@ -0,0 +1,169 @@
+package sysy.backend.optim;
+
+import sysy.backend.ir.BasicBlock;
+
+import java.util.*;
+
+// immediate dominators by the iterative algorithm of Cooper, Harvey and Kennedy, which settles in a few rounds over the
+// reverse postorder. unreachable blocks are not in the tree
+public class DominatorTree {
+    private final ControlFlowGraph cfg;
+    private final int[] idoms; // by reverse postorder index
+    private final List<List<BasicBlock>> children = new ArrayList<>();
+    private final int[] preOrderIndex;
+    private final int[] lastDescendantIndex; // largest preorder index in the subtree
+    private final List<BasicBlock> preOrder = new ArrayList<>();
+    private Map<BasicBlock, Set<BasicBlock>> frontiers = null;
+
+    public DominatorTree(ControlFlowGraph cfg) {
+        this.cfg = cfg;
+
+        var blocks = cfg.getReversePostOrder();
+        idoms = new int[blocks.size()];
+        preOrderIndex = new int[blocks.size()];
+        lastDescendantIndex = new int[blocks.size()];
+
+        computeIdoms(blocks);
+        for (int i = 0; i < blocks.size(); i++) {
+            children.add(new ArrayList<>());
+        }
+        for (int i = 1; i < blocks.size(); i++) {
+            children.get(idoms[i]).add(blocks.get(i));
+        }
+        numberPreOrder(blocks);
+    }
+
+    private void computeIdoms(List<BasicBlock> blocks) {
+        if (blocks.isEmpty()) {
+            return;
+        }
+        Arrays.fill(idoms, -1);
+        idoms[0] = 0;
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 1; i < blocks.size(); i++) {
+                int newIdom = -1;
+                for (var pred : cfg.getPredecessors(blocks.get(i))) {
+                    int p = cfg.getReversePostOrderIndex(pred);
+                    if (p < 0 || idoms[p] < 0) {
+                        continue; // unreachable, or not processed yet
+                    }
+                    newIdom = newIdom < 0 ? p : intersect(p, newIdom);
+                }
+                if (idoms[i] != newIdom) {
+                    idoms[i] = newIdom;
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    private int intersect(int a, int b) {
+        while (a != b) {
+            while (a > b) {
+                a = idoms[a];
+            }
+            while (b > a) {
+                b = idoms[b];
+            }
+        }
+        return a;
+    }
+
+    private void numberPreOrder(List<BasicBlock> blocks) {
+        if (blocks.isEmpty()) {
+            return;
+        }
+
+        // iterative, the tree is as deep as the program is nested
+        Deque<BasicBlock> stack = new ArrayDeque<>();
+        stack.push(blocks.get(0));
+        while (!stack.isEmpty()) {
+            var block = stack.pop();
+            preOrderIndex[indexOf(block)] = preOrder.size();
+            preOrder.add(block);
+            var blockChildren = children.get(indexOf(block));
+            for (int i = blockChildren.size() - 1; i >= 0; i--) {
+                stack.push(blockChildren.get(i));
+            }
+        }
+
+        // a child comes after its parent in preorder, so walking backwards finishes every subtree before its root
+        for (int i = preOrder.size() - 1; i >= 0; i--) {
+            int index = indexOf(preOrder.get(i));
+            int last = i;
+            for (var child : children.get(index)) {
+                last = Math.max(last, lastDescendantIndex[indexOf(child)]);
+            }
+            lastDescendantIndex[index] = last;
+        }
+    }
+
+    private int indexOf(BasicBlock block) {
+        return cfg.getReversePostOrderIndex(block);
+    }
+
+    public ControlFlowGraph getControlFlowGraph() {
+        return cfg;
+    }
+
+    // null for the entry and for unreachable blocks
+    public BasicBlock getImmediateDominator(BasicBlock block) {
+        int index = indexOf(block);
+        if (index <= 0) {
+            return null;
+        }
+        return cfg.getReversePostOrder().get(idoms[index]);
+    }
+
+    public List<BasicBlock> getChildren(BasicBlock block) {
+        int index = indexOf(block);
+        if (index < 0) {
+            return List.of();
+        }
+        return Collections.unmodifiableList(children.get(index));
+    }
+
+    // the reachable blocks, every block before the blocks it dominates
+    public List<BasicBlock> getPreOrder() {
+        return Collections.unmodifiableList(preOrder);
+    }
+
+    // a block dominates itself. O(1)
+    public boolean dominates(BasicBlock a, BasicBlock b) {
+        int ia = indexOf(a), ib = indexOf(b);
+        if (ia < 0 || ib < 0) {
+            return false;
+        }
+        int pb = preOrderIndex[ib];
+        return preOrderIndex[ia] <= pb && pb <= lastDescendantIndex[ia];
+    }
+
+    public Set<BasicBlock> getDominanceFrontier(BasicBlock block) {
+        if (frontiers == null) {
+            computeFrontiers();
+        }
+        return frontiers.getOrDefault(block, Set.of());
+    }
+
+    private void computeFrontiers() {
+        frontiers = new HashMap<>();
+        for (var block : cfg.getReversePostOrder()) {
+            var preds = cfg.getPredecessors(block);
+            if (preds.size() < 2) {
+                continue;
+            }
+            var idom = getImmediateDominator(block);
+            for (var pred : preds) {
+                if (!cfg.isReachable(pred)) {
+                    continue;
+                }
+                for (var runner = pred; runner != idom; runner = getImmediateDominator(runner)) {
+                    frontiers.computeIfAbsent(runner, k -> new LinkedHashSet<>()).add(block);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package sysy.backend.optim;
+
+import sysy.backend.ir.inst.Instruction;
+
+import java.util.Arrays;
+
+// an open addressing table from an expression, an opcode and the codes of two operands, to its value number and the
+// instruction computing it. the keys are primitives so that a lookup allocates nothing. entries are added in scopes
+// and removed when the scope ends, newest first
+class ExpressionTable {
+    private int[] ops;
+    private long[] lefts;
+    private long[] rights;
+    private int[] numbers;
+    private Instruction[] leaders;
+    private int mask;
+    private int size = 0;
+
+    private int[] logOps = new int[64];
+    private long[] logLefts = new long[64];
+    private long[] logRights = new long[64];
+    private int logSize = 0;
+
+    public ExpressionTable() {
+        allocate(64);
+    }
+
+    private void allocate(int capacity) {
+        ops = new int[capacity]; // op 0 marks an empty slot
+        lefts = new long[capacity];
+        rights = new long[capacity];
+        numbers = new int[capacity];
+        leaders = new Instruction[capacity];
+        mask = capacity - 1;
+    }
+
+    // the slot of the expression, or -1
+    public int find(int op, long left, long right) {
+        assert op != 0;
+        for (int slot = hash(op, left, right); ops[slot] != 0; slot = (slot + 1) & mask) {
+            if (ops[slot] == op && lefts[slot] == left && rights[slot] == right) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    public int getNumber(int slot) {
+        return numbers[slot];
+    }
+
+    // null for a part of an expression no instruction computes alone
+    public Instruction getLeader(int slot) {
+        return leaders[slot];
+    }
+
+    // the expression must not be in the table yet
+    public void insert(int op, long left, long right, int number, Instruction leader) {
+        if ((size + 1) * 2 > ops.length) {
+            grow();
+        }
+        put(op, left, right, number, leader);
+
+        if (logSize == logOps.length) {
+            logOps = Arrays.copyOf(logOps, logSize * 2);
+            logLefts = Arrays.copyOf(logLefts, logSize * 2);
+            logRights = Arrays.copyOf(logRights, logSize * 2);
+        }
+        logOps[logSize] = op;
+        logLefts[logSize] = left;
+        logRights[logSize] = right;
+        logSize++;
+    }
+
+    // where a scope starts, to be passed to undo when it ends
+    public int mark() {
+        return logSize;
+    }
+
+    public void undo(int mark) {
+        while (logSize > mark) {
+            logSize--;
+            remove(find(logOps[logSize], logLefts[logSize], logRights[logSize]));
+        }
+    }
+
+    public void clear() {
+        undo(0);
+    }
+
+    private void put(int op, long left, long right, int number, Instruction leader) {
+        int slot = hash(op, left, right);
+        while (ops[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        ops[slot] = op;
+        lefts[slot] = left;
+        rights[slot] = right;
+        numbers[slot] = number;
+        leaders[slot] = leader;
+        size++;
+    }
+
+    // shifts back the entries after the slot that would no longer be found across the hole, instead of leaving a
+    // tombstone
+    private void remove(int slot) {
+        int hole = slot;
+        for (int i = (slot + 1) & mask; ops[i] != 0; i = (i + 1) & mask) {
+            int home = hash(ops[i], lefts[i], rights[i]);
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                ops[hole] = ops[i];
+                lefts[hole] = lefts[i];
+                rights[hole] = rights[i];
+                numbers[hole] = numbers[i];
+                leaders[hole] = leaders[i];
+                hole = i;
+            }
+        }
+        ops[hole] = 0;
+        leaders[hole] = null;
+        size--;
+    }
+
+    private void grow() {
+        var oldOps = ops;
+        var oldLefts = lefts;
+        var oldRights = rights;
+        var oldNumbers = numbers;
+        var oldLeaders = leaders;
+        allocate(oldOps.length * 2);
+        size = 0;
+        for (int i = 0; i < oldOps.length; i++) {
+            if (oldOps[i] != 0) {
+                put(oldOps[i], oldLefts[i], oldRights[i], oldNumbers[i], oldLeaders[i]);
+            }
+        }
+    }
+
+    private int hash(int op, long left, long right) {
+        long h = (op * 0x9E3779B97F4A7C15L + left) * 0xC2B2AE3D27D4EB4FL + right;
+        h *= 0x165667B19E3779F9L;
+        return (int) (h >>> 32) & mask; // the high bits depend on all of the key
+    }
+}
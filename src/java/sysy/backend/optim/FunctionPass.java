@@ -0,0 +1,11 @@
+package sysy.backend.optim;
+
+import sysy.backend.ir.Function;
+
+// a pass that only looks inside one function. it tells whether it changed the function, so that the pass manager
+// knows when the cached analyses are stale and which passes have something new to look at
+public interface FunctionPass {
+    String getName();
+
+    boolean passFunc(Function func, AnalysisManager analyses);
+}
@@ -0,0 +1,232 @@
+package sysy.backend.optim;
+
+import sysy.backend.ir.*;
+import sysy.backend.ir.Module;
+import sysy.backend.ir.inst.*;
+
+import java.util.*;
+
+// global value numbering over the dominator tree. an expression computed in a block is available in every block it
+// dominates, so a later equal expression there is replaced by it. the table is scoped like the renaming of mem2reg:
+// what a block adds is undone when its subtree is done.
+// memory is only trusted along a chain of blocks each entered from the previous one alone: a load is reused, or
+// forwarded from a store, until a store that may alias it or a call that may write it
+public class GVNPass implements FunctionPass {
+    private final Module irModule;
+    private final ExpressionTable expressions = new ExpressionTable();
+    private final ExpressionTable blockAddresses = new ExpressionTable();
+    private final Map<Value, Integer> leafNumbers = new HashMap<>();
+    private int nextNumber;
+    private final Map<BasicBlock, Map<Value, Value>> blockMemories = new HashMap<>();
+    private int replaced = 0;
+
+    public GVNPass(Module irModule) {
+        this.irModule = irModule;
+    }
+
+    @Override
+    public String getName() {
+        return "GVNPass";
+    }
+
+    @Override
+    public boolean passFunc(Function func, AnalysisManager analyses) {
+        int replacedBefore = replaced;
+        var domTree = analyses.getDominatorTree();
+        var cfg = domTree.getControlFlowGraph();
+        expressions.clear();
+        leafNumbers.clear();
+        blockMemories.clear();
+        nextNumber = 1;
+
+        Deque<BasicBlock> blockStack = new ArrayDeque<>();
+        Deque<Integer> nextChildStack = new ArrayDeque<>();
+        Deque<Integer> undoMarkStack = new ArrayDeque<>();
+        var entry = cfg.getReversePostOrder().get(0);
+        undoMarkStack.push(expressions.mark());
+        passBlock(entry, new HashMap<>());
+        blockStack.push(entry);
+        nextChildStack.push(0);
+        while (!blockStack.isEmpty()) {
+            var block = blockStack.peek();
+            int next = nextChildStack.pop();
+            var children = domTree.getChildren(block);
+            if (next < children.size()) {
+                nextChildStack.push(next + 1);
+                var child = children.get(next);
+                var preds = cfg.getPredecessors(child);
+                Map<Value, Value> memory = new HashMap<>();
+                if (preds.size() == 1 && preds.get(0) == block) {
+                    inheritMemory(blockMemories.get(block), memory);
+                }
+                undoMarkStack.push(expressions.mark());
+                passBlock(child, memory);
+                blockStack.push(child);
+                nextChildStack.push(0);
+            } else {
+                blockStack.pop();
+                blockMemories.remove(block);
+                expressions.undo(undoMarkStack.pop());
+            }
+        }
+        return replaced != replacedBefore;
+    }
+
+    // the variables left in memory after mem2reg are the arguments, and they are read again in each block: that is a
+    // register the translator aliases or one lw, while a value used across blocks needs a register of its own, saved
+    // around every call
+    private void inheritMemory(Map<Value, Value> parent, Map<Value, Value> memory) {
+        for (var entry : parent.entrySet()) {
+            if (!(entry.getKey() instanceof AllocaInst)) {
+                memory.put(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    // memory maps a pointer to the value known to be at it
+    private void passBlock(BasicBlock block, Map<Value, Value> memory) {
+        blockAddresses.clear();
+        for (var inst : block.getInstructions()) {
+            inst.setValueNumber(nextNumber++);
+            if (inst instanceof LoadInst loadInst) {
+                var known = memory.get(loadInst.getPtr());
+                if (known != null) {
+                    replace(inst, known);
+                } else {
+                    memory.put(loadInst.getPtr(), inst);
+                }
+            } else if (inst instanceof StoreInst storeInst) {
+                var root = MemoryRoots.getMemoryRoot(storeInst.getPtr());
+                memory.keySet().removeIf(ptr -> MemoryRoots.mayAlias(MemoryRoots.getMemoryRoot(ptr), root));
+                if (!(storeInst.getValue() instanceof FunctionArgument)) { // the translator only knows their allocas
+                    memory.put(storeInst.getPtr(), storeInst.getValue());
+                }
+            } else if (inst instanceof CallInst callInst) {
+                if (mayWriteMemory(callInst.getFunc())) {
+                    // only the variables of this function are safe, the callee has no way to their address. its
+                    // arrays are not, they may be passed to it
+                    memory.keySet().removeIf(ptr -> !(ptr instanceof AllocaInst));
+                }
+            } else {
+                var available = findOrInsert(isConstantAddress(inst) ? blockAddresses : expressions, inst);
+                if (available != null) {
+                    replace(inst, available);
+                }
+            }
+        }
+        blockMemories.put(block, memory);
+    }
+
+    private void replace(Instruction inst, Value value) {
+        inst.replaceAllUseWith(value, false);
+        replaced++;
+    }
+
+    // an address at a constant offset into a local or global array is one instruction to compute again, cheaper than
+    // keeping it in a register across blocks, so it is only reused in its own block
+    private static boolean isConstantAddress(Instruction inst) {
+        if (!(inst instanceof GetElementPtrInst gep)
+                || !(gep.getElementBase() instanceof AllocaInst || gep.getElementBase() instanceof GlobalValue)) {
+            return false;
+        }
+        for (var offset : gep.getOffsets()) {
+            if (!(offset instanceof ImmediateValue)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean mayWriteMemory(Function func) {
+        return func != irModule.getBuildInGetInt()
+                && func != irModule.getBuildInPutInt()
+                && func != irModule.getBuildInPutCh()
+                && func != irModule.getBuildInPutStr();
+    }
+
+    private static final int OP_BINARY = 1;
+    private static final int OP_ICMP = OP_BINARY + BinaryInstOp.values().length;
+    private static final int OP_ZEXT = OP_ICMP + ICmpInstCond.values().length;
+    private static final int OP_GEP_NEXT = OP_ZEXT + 1;
+    private static final int OP_GEP = OP_GEP_NEXT + 1; // plus the number of offsets
+
+    // the instruction already computing what inst computes, or null after making inst the one. the operands are
+    // compared by value number, a commutative operation or a comparison that can be turned around has its operands
+    // in one order
+    private Instruction findOrInsert(ExpressionTable table, Instruction inst) {
+        if (inst instanceof BinaryInst binaryInst) {
+            long left = getCode(binaryInst.getLeft());
+            long right = getCode(binaryInst.getRight());
+            var op = binaryInst.getOp();
+            boolean commutative = op == BinaryInstOp.ADD || op == BinaryInstOp.MUL
+                    || op == BinaryInstOp.AND || op == BinaryInstOp.OR;
+            if (commutative && left > right) {
+                return findOrInsert(table, OP_BINARY + op.ordinal(), right, left, inst);
+            }
+            return findOrInsert(table, OP_BINARY + op.ordinal(), left, right, inst);
+        }
+        if (inst instanceof ICmpInst iCmpInst) {
+            long left = getCode(iCmpInst.getLeft());
+            long right = getCode(iCmpInst.getRight());
+            var cond = iCmpInst.getCond();
+            switch (cond) {
+                case SGT -> {
+                    return findOrInsert(table, OP_ICMP + ICmpInstCond.SLT.ordinal(), right, left, inst);
+                }
+                case SGE -> {
+                    return findOrInsert(table, OP_ICMP + ICmpInstCond.SLE.ordinal(), right, left, inst);
+                }
+                case EQ, NE -> {
+                    if (left > right) {
+                        return findOrInsert(table, OP_ICMP + cond.ordinal(), right, left, inst);
+                    }
+                }
+            }
+            return findOrInsert(table, OP_ICMP + cond.ordinal(), left, right, inst);
+        }
+        if (inst instanceof ZExtInst zExtInst) {
+            return findOrInsert(table, OP_ZEXT, getCode(zExtInst.getValue()), 0, inst);
+        }
+        if (inst instanceof GetElementPtrInst gep) {
+            // numbered one offset at a time, each step a pair of what is before and the next offset
+            var offsets = gep.getOffsets();
+            long prefix = getCode(gep.getElementBase());
+            int op = OP_GEP + offsets.size();
+            for (int i = 0; i < offsets.size() - 1; i++) {
+                long offset = getCode(offsets.get(i));
+                int slot = table.find(op, prefix, offset);
+                if (slot >= 0) {
+                    prefix = table.getNumber(slot);
+                } else {
+                    int number = nextNumber++;
+                    table.insert(op, prefix, offset, number, null);
+                    prefix = number;
+                }
+                op = OP_GEP_NEXT;
+            }
+            return findOrInsert(table, op, prefix, getCode(offsets.get(offsets.size() - 1)), inst);
+        }
+        return null; // phis, allocas and terminators are never equal to another instruction
+    }
+
+    private Instruction findOrInsert(ExpressionTable table, int op, long left, long right, Instruction inst) {
+        int slot = table.find(op, left, right);
+        if (slot >= 0) {
+            return table.getLeader(slot);
+        }
+        table.insert(op, left, right, inst.getValueNumber(), inst);
+        return null;
+    }
+
+    // an instruction is coded by its value number, a constant by its value and anything else by a number of its own,
+    // each kind apart in the high bits
+    private long getCode(Value value) {
+        if (value instanceof Instruction inst) {
+            return inst.getValueNumber();
+        }
+        if (value instanceof ImmediateValue immediateValue) {
+            return 1L << 32 | immediateValue.getValue() & 0xffffffffL;
+        }
+        return 2L << 32 | leafNumbers.computeIfAbsent(value, key -> leafNumbers.size());
+    }
+}
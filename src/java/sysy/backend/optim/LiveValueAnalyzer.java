@@ -0,0 +1,182 @@
+package sysy.backend.optim;
+
+import sysy.backend.ir.BasicBlock;
+import sysy.backend.ir.inst.*;
+
+import java.util.*;
+
+// liveness of the values that are used outside the block defining them, which only mem2reg makes: the phis, their
+// incoming values, and values used in the blocks they dominate. a value only used in its own block is left to the
+// temp registers of the translator. the incoming value of a phi is used at the end of its predecessor
+public class LiveValueAnalyzer {
+    private final ControlFlowGraph cfg;
+    private final List<Instruction> values = new ArrayList<>();
+    private final Map<Instruction, Integer> valueIndexes = new HashMap<>();
+    private final Map<BasicBlock, BitSet> inSets = new HashMap<>();
+    private final Map<BasicBlock, BitSet> outSets = new HashMap<>();
+
+    public LiveValueAnalyzer(ControlFlowGraph cfg) {
+        this.cfg = cfg;
+
+        for (var block : cfg.getFunction().getBasicBlocks()) {
+            for (var inst : block.getInstructions()) {
+                if (isLiveAcrossBlocks(inst)) {
+                    valueIndexes.put(inst, values.size());
+                    values.add(inst);
+                }
+            }
+        }
+    }
+
+    // an alloca is an address the translator assigns to the frame, not a value
+    public static boolean isLiveAcrossBlocks(Instruction inst) {
+        if (inst instanceof PhiInst) {
+            return true;
+        }
+        if (inst instanceof AllocaInst) {
+            return false;
+        }
+        for (var use : inst.getUses()) {
+            if (use.getUser() instanceof PhiInst
+                    || use.getUser() instanceof Instruction user && user.getBasicBlock() != inst.getBasicBlock()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public List<Instruction> getValues() {
+        return values;
+    }
+
+    public void analyze() {
+        var func = cfg.getFunction();
+        Map<BasicBlock, BitSet> useSets = new HashMap<>();
+        Map<BasicBlock, BitSet> defSets = new HashMap<>();
+        for (var block : func.getBasicBlocks()) {
+            var useSet = new BitSet(values.size());
+            var defSet = new BitSet(values.size());
+            for (var inst : block.getInstructions()) {
+                if (!(inst instanceof PhiInst)) {
+                    for (var operand : inst.getOperands()) {
+                        var index = valueIndexes.get(operand);
+                        if (index != null && !defSet.get(index)) {
+                            useSet.set(index);
+                        }
+                    }
+                }
+                var index = valueIndexes.get(inst);
+                if (index != null) {
+                    defSet.set(index);
+                }
+            }
+            useSets.put(block, useSet);
+            defSets.put(block, defSet);
+            inSets.put(block, (BitSet) useSet.clone());
+            outSets.put(block, new BitSet(values.size()));
+        }
+        if (values.isEmpty()) {
+            return;
+        }
+
+        // a worklist rather than passes over all blocks until nothing changes: a value live through deeply nested
+        // loops would take one pass per level of nesting
+        Deque<BasicBlock> worklist = new ArrayDeque<>();
+        Set<BasicBlock> inWorklist = new HashSet<>();
+        var blocks = func.getBasicBlocks();
+        for (int i = blocks.size() - 1; i >= 0; i--) {
+            worklist.add(blocks.get(i));
+            inWorklist.add(blocks.get(i));
+        }
+        while (!worklist.isEmpty()) {
+            var block = worklist.poll();
+            inWorklist.remove(block);
+            var outSet = outSets.get(block);
+            for (var succ : cfg.getSuccessors(block)) {
+                var succIn = (BitSet) inSets.get(succ).clone();
+                // all the phis first, then what they take from this block: a phi may take another phi of the same
+                // block, like x and y swapping in a loop, and that value is live out even though the phi is not
+                for (var inst : succ.getInstructions()) {
+                    if (!(inst instanceof PhiInst phi)) {
+                        break;
+                    }
+                    succIn.clear(valueIndexes.get(phi));
+                }
+                for (var inst : succ.getInstructions()) {
+                    if (!(inst instanceof PhiInst phi)) {
+                        break;
+                    }
+                    var index = valueIndexes.get(phi.getIncomingValue(block));
+                    if (index != null) {
+                        succIn.set(index);
+                    }
+                }
+                outSet.or(succIn);
+            }
+
+            var inSet = (BitSet) outSet.clone();
+            inSet.andNot(defSets.get(block));
+            inSet.or(useSets.get(block));
+            if (!inSet.equals(inSets.get(block))) {
+                inSets.put(block, inSet);
+                for (var pred : cfg.getPredecessors(block)) {
+                    if (inWorklist.add(pred)) {
+                        worklist.add(pred);
+                    }
+                }
+            }
+        }
+    }
+
+    // two values conflict if one is defined where the other is live. the phis of a block are defined together at its
+    // start, so they conflict with each other and with everything live into it
+    public ConflictDiagram buildConflictDiagram() {
+        var diagram = new ConflictDiagram(values);
+        for (var block : cfg.getFunction().getBasicBlocks()) {
+            var live = (BitSet) outSets.get(block).clone();
+            List<PhiInst> phis = new ArrayList<>();
+            for (var inst = block.getInstructions().getLast(); inst != null; inst = inst.getPrev()) {
+                if (inst instanceof PhiInst phi) {
+                    phis.add(phi);
+                    continue;
+                }
+                var index = valueIndexes.get(inst);
+                if (index != null) {
+                    live.clear(index);
+                    addConflicts(diagram, inst, live);
+                }
+                for (var operand : inst.getOperands()) {
+                    var operandIndex = valueIndexes.get(operand);
+                    if (operandIndex != null) {
+                        live.set(operandIndex);
+                    }
+                }
+            }
+
+            for (var phi : phis) {
+                live.clear(valueIndexes.get(phi));
+            }
+            for (int i = 0; i < phis.size(); i++) {
+                addConflicts(diagram, phis.get(i), live);
+                for (int j = i + 1; j < phis.size(); j++) {
+                    diagram.addConflict(phis.get(i), phis.get(j));
+                }
+            }
+        }
+        return diagram;
+    }
+
+    private void addConflicts(ConflictDiagram diagram, Instruction def, BitSet live) {
+        for (int i = live.nextSetBit(0); i >= 0; i = live.nextSetBit(i + 1)) {
+            diagram.addConflict(def, values.get(i));
+        }
+    }
+
+    public Map<BasicBlock, BitSet> getInSets() {
+        return inSets;
+    }
+
+    public Map<BasicBlock, BitSet> getOutSets() {
+        return outSets;
+    }
+}
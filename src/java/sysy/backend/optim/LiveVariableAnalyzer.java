@@ -8,7 +8,7 @@ import sysy.backend.ir.inst.*;
 import java.util.*;
 
 public class LiveVariableAnalyzer {
-    private final Map<BasicBlock, List<BasicBlock>> dataflowDiagram = new HashMap<>();
+    private final ControlFlowGraph cfg;
     private final Map<BasicBlock, Set<AllocaInst>> defSets = new HashMap<>();
     private final Map<BasicBlock, Set<AllocaInst>> inSets = new HashMap<>();
     private final Map<BasicBlock, Set<AllocaInst>> outSets = new HashMap<>();
@@ -16,9 +16,13 @@ public class LiveVariableAnalyzer {
     private boolean updateInIterate = true;
 
     public LiveVariableAnalyzer(Function func) {
-        basicBlocks.addAll(func.getBasicBlocks());
+        this(new ControlFlowGraph(func));
+    }
 
-        buildDataflowDiagram(func);
+    public LiveVariableAnalyzer(ControlFlowGraph cfg) {
+        this.cfg = cfg;
+        var func = cfg.getFunction();
+        basicBlocks.addAll(func.getBasicBlocks());
 
         for (var block : func.getBasicBlocks()) {
             defSets.put(block, getDefSet(block));
@@ -27,29 +31,6 @@ public class LiveVariableAnalyzer {
         }
     }
 
-    private void buildDataflowDiagram(Function func) {
-        for (var block : func.getBasicBlocks()) {
-            var nextBlocks = getNextBlocks(block);
-            dataflowDiagram.put(block, nextBlocks);
-        }
-    }
-
-    private List<BasicBlock> getNextBlocks(BasicBlock block) {
-        List<BasicBlock> nextBlocks = new ArrayList<>();
-        var insts = block.getInstructions();
-        var lastInst = insts.get(insts.size()-1);
-
-        if (lastInst instanceof BrInst brInst) {
-            if (brInst.getDest() != null) {
-                nextBlocks.add(brInst.getDest());
-            } else {
-                nextBlocks.add(brInst.getTrueBranch());
-                nextBlocks.add(brInst.getFalseBranch());
-            }
-        }
-        return nextBlocks;
-    }
-
     private Set<AllocaInst> getUseSet(BasicBlock block) {
         Set<AllocaInst> useSet = new HashSet<>();
 
@@ -100,7 +81,7 @@ public class LiveVariableAnalyzer {
     }
 
     private void updateOutSet(BasicBlock block) {
-        var nextBlocks = dataflowDiagram.get(block);
+        var nextBlocks = cfg.getSuccessors(block);
 
         var outSet = outSets.get(block);
 
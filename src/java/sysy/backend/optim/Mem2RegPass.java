@@ -0,0 +1,204 @@
+package sysy.backend.optim;
+
+import sysy.backend.ir.*;
+import sysy.backend.ir.Module;
+import sysy.backend.ir.inst.*;
+
+import java.util.*;
+
+// promotes the local scalar variables into SSA values. a load becomes the value last stored on the way to it, and a
+// phi is placed where values stored on different paths meet, at the iterated dominance frontier of the stores but only
+// where the variable is live. the allocas of the arguments stay, the translator expects them in $a0-$a3
+public class Mem2RegPass implements FunctionPass {
+    private final Module irModule;
+    private final Map<AllocaInst, Integer> varIndexes = new HashMap<>();
+    private final Map<PhiInst, Integer> phiVars = new HashMap<>();
+    private Value[] currValues;
+    private final List<Integer> undoVars = new ArrayList<>();
+    private final List<Value> undoValues = new ArrayList<>();
+
+    public Mem2RegPass(Module irModule) {
+        this.irModule = irModule;
+    }
+
+    @Override
+    public String getName() {
+        return "Mem2RegPass";
+    }
+
+    @Override
+    public boolean passFunc(Function func, AnalysisManager analyses) {
+        boolean changed = removeUnreachableBlocks(func, analyses.getControlFlowGraph());
+
+        var vars = getPromotableVars(func);
+        if (vars.isEmpty()) {
+            return changed;
+        }
+        varIndexes.clear();
+        phiVars.clear();
+        for (int i = 0; i < vars.size(); i++) {
+            varIndexes.put(vars.get(i), i);
+        }
+
+        placePhis(vars, analyses);
+        rename(analyses.getDominatorTree());
+
+        for (var var : vars) {
+            var.replaceAllUseWith(null, false);
+        }
+        return true;
+    }
+
+    // their loads and stores would never be renamed, and their branches would need phi operands that mean nothing
+    private boolean removeUnreachableBlocks(Function func, ControlFlowGraph cfg) {
+        Set<BasicBlock> unreachable = new HashSet<>();
+        for (var block : func.getBasicBlocks()) {
+            if (!cfg.isReachable(block)) {
+                unreachable.add(block);
+            }
+        }
+        func.removeBasicBlocks(unreachable);
+        return !unreachable.isEmpty();
+    }
+
+    private List<AllocaInst> getPromotableVars(Function func) {
+        List<AllocaInst> vars = new ArrayList<>();
+        int argsToSkip = func.getArguments().size(); // their allocas come first
+        for (var inst : func.getFirstBasicBlock().getInstructions()) {
+            if (!(inst instanceof AllocaInst allocaInst)) {
+                continue;
+            }
+            if (argsToSkip > 0) {
+                argsToSkip--;
+                continue;
+            }
+            var dataType = allocaInst.getDataType();
+            if (dataType.getPtrNum() != 0 || !dataType.getArrayDims().isEmpty()) {
+                continue;
+            }
+            boolean onlyLoadedAndStored = true;
+            for (var use : allocaInst.getUses()) {
+                if (!(use.getUser() instanceof LoadInst
+                        || use.getUser() instanceof StoreInst && use.getPos() == 1)) {
+                    onlyLoadedAndStored = false;
+                    break;
+                }
+            }
+            if (onlyLoadedAndStored) {
+                vars.add(allocaInst);
+            }
+        }
+        return vars;
+    }
+
+    private void placePhis(List<AllocaInst> vars, AnalysisManager analyses) {
+        var domTree = analyses.getDominatorTree();
+        var inSets = analyses.getLiveVariables().getInSets();
+
+        for (var var : vars) {
+            Set<BasicBlock> defBlocks = new HashSet<>();
+            for (var use : var.getUses()) {
+                if (use.getUser() instanceof StoreInst storeInst) {
+                    defBlocks.add(storeInst.getBasicBlock());
+                }
+            }
+
+            Deque<BasicBlock> worklist = new ArrayDeque<>(defBlocks);
+            Set<BasicBlock> visited = new HashSet<>();
+            while (!worklist.isEmpty()) {
+                var block = worklist.pop();
+                for (var frontier : domTree.getDominanceFrontier(block)) {
+                    if (!visited.add(frontier) || !inSets.get(frontier).contains(var)) {
+                        continue;
+                    }
+                    var phi = new PhiInst(var.getDataType());
+                    frontier.getInstructions().insertAfter(null, phi);
+                    phiVars.put(phi, varIndexes.get(var));
+                    if (!defBlocks.contains(frontier)) {
+                        worklist.push(frontier);
+                    }
+                }
+            }
+        }
+    }
+
+    // walks the dominator tree with an explicit stack, so that a deeply nested program cannot overflow it. the values
+    // set in a block are undone when its subtree is done
+    private void rename(DominatorTree domTree) {
+        var cfg = domTree.getControlFlowGraph();
+        currValues = new Value[varIndexes.size()];
+        Arrays.fill(currValues, irModule.getImmediateValue(0)); // read before written, undefined in SysY
+        undoVars.clear();
+        undoValues.clear();
+
+        Deque<BasicBlock> blockStack = new ArrayDeque<>();
+        Deque<Integer> nextChildStack = new ArrayDeque<>();
+        Deque<Integer> undoMarkStack = new ArrayDeque<>();
+        var entry = cfg.getReversePostOrder().get(0);
+        undoMarkStack.push(undoVars.size());
+        renameBlock(entry, cfg);
+        blockStack.push(entry);
+        nextChildStack.push(0);
+        while (!blockStack.isEmpty()) {
+            var block = blockStack.peek();
+            int next = nextChildStack.pop();
+            var children = domTree.getChildren(block);
+            if (next < children.size()) {
+                nextChildStack.push(next + 1);
+                var child = children.get(next);
+                undoMarkStack.push(undoVars.size());
+                renameBlock(child, cfg);
+                blockStack.push(child);
+                nextChildStack.push(0);
+            } else {
+                blockStack.pop();
+                int mark = undoMarkStack.pop();
+                for (int i = undoVars.size() - 1; i >= mark; i--) {
+                    currValues[undoVars.get(i)] = undoValues.get(i);
+                    undoVars.remove(i);
+                    undoValues.remove(i);
+                }
+            }
+        }
+    }
+
+    private void renameBlock(BasicBlock block, ControlFlowGraph cfg) {
+        for (var inst : block.getInstructions()) {
+            if (inst instanceof PhiInst phi) {
+                var var = phiVars.get(phi);
+                if (var != null) {
+                    setCurrValue(var, phi);
+                }
+            } else if (inst instanceof LoadInst loadInst) {
+                var var = varIndexes.get(loadInst.getPtr());
+                if (var != null) {
+                    inst.replaceAllUseWith(currValues[var], false);
+                }
+            } else if (inst instanceof StoreInst storeInst) {
+                var var = varIndexes.get(storeInst.getPtr());
+                if (var != null) {
+                    setCurrValue(var, storeInst.getValue());
+                    inst.replaceAllUseWith(null, false); // a store has no uses
+                }
+            }
+        }
+
+        for (var succ : cfg.getSuccessors(block)) {
+            for (var inst : succ.getInstructions()) {
+                if (!(inst instanceof PhiInst phi)) {
+                    break; // phis are at the front
+                }
+                var var = phiVars.get(phi);
+                if (var != null) {
+                    phi.addIncoming(currValues[var], block);
+                }
+            }
+        }
+    }
+
+    private void setCurrValue(int var, Value value) {
+        undoVars.add(var);
+        undoValues.add(currValues[var]);
+        currValues[var] = value;
+    }
+}
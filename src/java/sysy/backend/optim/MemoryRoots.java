@@ -0,0 +1,37 @@
+package sysy.backend.optim;
+
+import sysy.backend.ir.GlobalValue;
+import sysy.backend.ir.Value;
+import sysy.backend.ir.inst.AllocaInst;
+import sysy.backend.ir.inst.GetElementPtrInst;
+
+// what a pointer points into, for the passes that reason about memory
+public class MemoryRoots {
+    private MemoryRoots() {
+    }
+
+    // the alloca or the global a pointer is into, or the load of a pointer argument
+    public static Value getMemoryRoot(Value ptr) {
+        while (ptr instanceof GetElementPtrInst gep) {
+            ptr = gep.getElementBase();
+        }
+        return ptr;
+    }
+
+    // whether a pointer is into a local of the function, which nothing outside it can see
+    public static boolean isLocal(Value ptr) {
+        return getMemoryRoot(ptr) instanceof AllocaInst;
+    }
+
+    // a pointer argument may point to a global or to the same array as another one, but never to a local of the
+    // function it is passed to
+    public static boolean mayAlias(Value root1, Value root2) {
+        if (root1 == root2) {
+            return true;
+        }
+        if (root1 instanceof AllocaInst || root2 instanceof AllocaInst) {
+            return false;
+        }
+        return !(root1 instanceof GlobalValue && root2 instanceof GlobalValue);
+    }
+}
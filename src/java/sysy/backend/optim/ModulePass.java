@@ -0,0 +1,8 @@
+package sysy.backend.optim;
+
+// a pass over the whole module, run before any function pass
+public interface ModulePass {
+    String getName();
+
+    boolean passModule();
+}
@@ -0,0 +1,8 @@
+package sysy.backend.optim;
+
+import sysy.backend.ir.Module;
+
+// every pass is built for one module, like new Mem2RegPass(module)
+public interface PassFactory<T> {
+    T create(Module irModule);
+}
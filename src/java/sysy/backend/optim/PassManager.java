@@ -0,0 +1,128 @@
+package sysy.backend.optim;
+
+import sysy.backend.ir.Function;
+import sysy.backend.ir.Module;
+import sysy.stats.StatsRecorder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// runs a pipeline over a module. inside a function a pass is skipped when no pass has changed the function since it
+// last ran, since it would find nothing new.
+// the function passes may run on several threads at once, one function each, so every thread builds its own
+public class PassManager {
+    private final Module irModule;
+    private final PassPipeline pipeline;
+    private final StatsRecorder statsRecorder;
+    private final ThreadLocal<List<List<FunctionPass>>> functionPasses;
+
+    public PassManager(Module irModule, PassPipeline pipeline, StatsRecorder statsRecorder) {
+        this.irModule = irModule;
+        this.pipeline = pipeline;
+        this.statsRecorder = statsRecorder;
+        this.functionPasses = ThreadLocal.withInitial(() -> {
+            List<List<FunctionPass>> groups = new ArrayList<>();
+            for (var factories : pipeline.getGroups()) {
+                List<FunctionPass> passes = new ArrayList<>();
+                for (var factory : factories) {
+                    passes.add(factory.create(irModule));
+                }
+                groups.add(passes);
+            }
+            return groups;
+        });
+    }
+
+    public Module run() {
+        runModulePasses();
+        for (var func : irModule.getFunctions()) {
+            runFunctionPasses(func);
+        }
+        return irModule;
+    }
+
+    public void runModulePasses() {
+        for (var factory : pipeline.getModulePasses()) {
+            var pass = factory.create(irModule);
+            var timer = statsRecorder == null ? null : statsRecorder.start("optimize." + pass.getName());
+            boolean changed = pass.passModule();
+            if (timer != null) {
+                timer.stop();
+                statsRecorder.count("optimize." + pass.getName(), "changed", changed ? 1 : 0);
+            }
+        }
+    }
+
+    public void runFunctionPasses(Function func) {
+        if (pipeline.isEmpty()) {
+            return;
+        }
+
+        var timer = statsRecorder == null ? null : statsRecorder.start("optimize");
+        int instructionsBefore = statsRecorder == null ? 0 : countInstructions(func);
+
+        var analyses = new AnalysisManager(func);
+        var groups = functionPasses.get();
+        int changes = 0; // how many pass runs have changed the function
+        for (int group = 0; group < groups.size(); group++) {
+            var passes = groups.get(group);
+            int[] lastRuns = new int[passes.size()]; // the changes seen by the last run of each pass
+            Arrays.fill(lastRuns, -1);
+            int rounds = 0;
+            while (rounds < pipeline.getMaxRounds(group)) {
+                rounds++;
+                int changesBefore = changes;
+                for (int i = 0; i < passes.size(); i++) {
+                    if (lastRuns[i] == changes) {
+                        if (statsRecorder != null) {
+                            statsRecorder.count("optimize", "passesSkipped", 1);
+                        }
+                        continue;
+                    }
+                    if (runPass(passes.get(i), func, analyses)) {
+                        changes++;
+                        analyses.invalidateInstructions();
+                    }
+                    lastRuns[i] = changes;
+                }
+                if (changes == changesBefore) {
+                    break;
+                }
+            }
+            if (statsRecorder != null) {
+                statsRecorder.count("optimize", "rounds", rounds); // summed over the groups and the functions
+            }
+        }
+        assert func.verifyUses();
+
+        if (statsRecorder != null) {
+            timer.stop();
+            statsRecorder.count("optimize", "analysesBuilt", analyses.getBuilds());
+            statsRecorder.count("optimize", "instructionsRemoved", instructionsBefore - countInstructions(func));
+        }
+    }
+
+    private boolean runPass(FunctionPass pass, Function func, AnalysisManager analyses) {
+        if (statsRecorder == null) {
+            return pass.passFunc(func, analyses);
+        }
+
+        var phase = "optimize." + pass.getName();
+        int instructionsBefore = countInstructions(func);
+        var timer = statsRecorder.start(phase);
+        boolean changed = pass.passFunc(func, analyses);
+        timer.stop();
+        statsRecorder.count(phase, "blocksVisited", func.getBasicBlocks().size());
+        statsRecorder.count(phase, "instructionsRemoved", instructionsBefore - countInstructions(func));
+        return changed;
+    }
+
+    private static int countInstructions(Function func) {
+        int count = 0;
+        for (var block : func.getBasicBlocks()) {
+            count += block.getInstructions().size();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,74 @@
+package sysy.backend.optim;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// which passes to run and in what order: the module passes first, then on each function the groups of function
+// passes one after another, each group again and again until none of its passes changes anything or it has run
+// maxRounds times
+public class PassPipeline {
+    public static final String DEFAULT = "O2";
+
+    private final String name;
+    private final List<PassFactory<ModulePass>> modulePasses = new ArrayList<>();
+    private final List<List<PassFactory<FunctionPass>>> groups = new ArrayList<>();
+    private final List<Integer> groupMaxRounds = new ArrayList<>();
+
+    public PassPipeline(String name) {
+        this.name = name;
+    }
+
+    // O0 does nothing, O1 only promotes the variables and folds the constants, O2 runs everything
+    public static PassPipeline get(String name) {
+        return switch (name) {
+            case "O0" -> new PassPipeline(name);
+            case "O1" -> new PassPipeline(name)
+                    .addFunctionPasses(1, List.of(Mem2RegPass::new, SCCPPass::new,
+                            module -> new DeadCodeEliminationPass()));
+            case "O2" -> new PassPipeline(name)
+                    .addModulePass(DeadFunctionEliminationPass::new)
+                    .addModulePass(SideEffectAnalysisPass::new)
+                    .addFunctionPasses(1, List.of(Mem2RegPass::new))
+                    // a load gvn forwards from a store may be a constant for sccp to fold
+                    .addFunctionPasses(4, List.of(SCCPPass::new, GVNPass::new,
+                            module -> new DeadStoreEliminationPass(), module -> new DeadCodeEliminationPass()));
+            default -> null;
+        };
+    }
+
+    // the pipeline for a flag like -O2, or null
+    public static PassPipeline fromFlag(String flag) {
+        return flag.startsWith("-O") ? get(flag.substring(1)) : null;
+    }
+
+    public PassPipeline addModulePass(PassFactory<ModulePass> factory) {
+        modulePasses.add(factory);
+        return this;
+    }
+
+    public PassPipeline addFunctionPasses(int maxRounds, List<PassFactory<FunctionPass>> factories) {
+        groups.add(factories);
+        groupMaxRounds.add(maxRounds);
+        return this;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isEmpty() {
+        return modulePasses.isEmpty() && groups.isEmpty();
+    }
+
+    public List<PassFactory<ModulePass>> getModulePasses() {
+        return modulePasses;
+    }
+
+    public List<List<PassFactory<FunctionPass>>> getGroups() {
+        return groups;
+    }
+
+    public int getMaxRounds(int group) {
+        return groupMaxRounds.get(group);
+    }
+}
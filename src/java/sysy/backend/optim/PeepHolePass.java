@@ -30,9 +30,7 @@ public class PeepHolePass {
     }
 
     private void passBlock(BasicBlock block) {
-        var insts = block.getInstructions();
-        for (int i = 0; i < insts.size(); i++) {
-            var inst = insts.get(i);
+        for (var inst : block.getInstructions()) {
             if (inst instanceof BinaryInst binst) {
                 if (binst.getOp() == BinaryInstOp.ADD || binst.getOp() == BinaryInstOp.SUB) {
                     if (binst.getOp() != BinaryInstOp.SUB && binst.getLeft() instanceof ImmediateValue ileft && ileft.getValue() == 0) { // 0 + x
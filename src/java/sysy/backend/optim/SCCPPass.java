@@ -0,0 +1,370 @@
+package sysy.backend.optim;
+
+import sysy.backend.ir.*;
+import sysy.backend.ir.Module;
+import sysy.backend.ir.inst.*;
+
+import java.util.*;
+
+// sparse conditional constant propagation, after Wegman and Zadeck. every value starts undefined and can only fall to
+// a constant and then to overdefined, and a block is only looked at once an edge into it is known to be taken. so a
+// branch on a constant keeps everything behind its other side from spoiling the phis it reaches, and one run finds
+// what propagating and folding in turns until nothing changes would, across blocks.
+// the values are indexed by Instruction.valueNumber, which the pass sets
+public class SCCPPass implements FunctionPass {
+    private static final int UNDEFINED = 0;
+    private static final int CONSTANT = 1;
+    private static final int OVERDEFINED = 2;
+
+    private final Module irModule;
+    private ControlFlowGraph cfg;
+    private int[] states;
+    private int[] constants;
+    private boolean[] blockExecutable; // by reverse postorder index
+    private boolean[][] edgeExecutable; // by reverse postorder index and position among the successors
+    private final Deque<BasicBlock> edgeWorklist = new ArrayDeque<>(); // the block each edge taken leads to
+    private final Deque<Instruction> valueWorklist = new ArrayDeque<>();
+    private boolean changed;
+
+    public SCCPPass(Module irModule) {
+        this.irModule = irModule;
+    }
+
+    @Override
+    public String getName() {
+        return "SCCPPass";
+    }
+
+    @Override
+    public boolean passFunc(Function func, AnalysisManager analyses) {
+        if (func.getFirstBasicBlock() == null) {
+            return false;
+        }
+        cfg = analyses.getControlFlowGraph();
+        int count = 0;
+        for (var block : func.getBasicBlocks()) {
+            for (var inst : block.getInstructions()) {
+                inst.setValueNumber(count++);
+            }
+        }
+        states = new int[count];
+        constants = new int[count];
+        var blocks = cfg.getReversePostOrder();
+        blockExecutable = new boolean[blocks.size()];
+        edgeExecutable = new boolean[blocks.size()][];
+        for (int i = 0; i < blocks.size(); i++) {
+            edgeExecutable[i] = new boolean[cfg.getSuccessors(blocks.get(i)).size()];
+        }
+
+        blockExecutable[0] = true;
+        for (var inst : blocks.get(0).getInstructions()) {
+            visit(inst);
+        }
+        solve();
+        while (resolveUndefinedBranches(blocks)) {
+            solve();
+        }
+
+        changed = false;
+        rewrite(func, blocks);
+        return changed;
+    }
+
+    private void solve() {
+        while (!edgeWorklist.isEmpty() || !valueWorklist.isEmpty()) {
+            while (!edgeWorklist.isEmpty()) {
+                var block = edgeWorklist.poll();
+                int index = cfg.getReversePostOrderIndex(block);
+                if (blockExecutable[index]) {
+                    for (var inst : block.getInstructions()) {
+                        if (!(inst instanceof PhiInst)) {
+                            break; // only the phis see a new edge
+                        }
+                        visit(inst);
+                    }
+                } else {
+                    blockExecutable[index] = true;
+                    for (var inst : block.getInstructions()) {
+                        visit(inst);
+                    }
+                }
+            }
+            while (!valueWorklist.isEmpty()) {
+                var inst = valueWorklist.poll();
+                for (var use : inst.getUses()) {
+                    if (use.getUser() instanceof Instruction user && isExecutable(user.getBasicBlock())) {
+                        visit(user);
+                    }
+                }
+            }
+        }
+    }
+
+    // a branch on a value that stays undefined, like a phi only ever fed by itself, would take neither edge. such a
+    // value is made overdefined so that the branch takes both
+    private boolean resolveUndefinedBranches(List<BasicBlock> blocks) {
+        boolean resolved = false;
+        for (int i = 0; i < blocks.size(); i++) {
+            if (blockExecutable[i]
+                    && blocks.get(i).getInstructions().getLast() instanceof BrInst brInst
+                    && brInst.getCond() instanceof Instruction cond
+                    && states[cond.getValueNumber()] == UNDEFINED) {
+                states[cond.getValueNumber()] = OVERDEFINED;
+                valueWorklist.add(cond);
+                resolved = true;
+            }
+        }
+        return resolved;
+    }
+
+    private void visit(Instruction inst) {
+        if (inst instanceof BrInst brInst) {
+            if (inst == inst.getBasicBlock().getInstructions().getLast()) { // the one the successors come from
+                visitBranch(brInst);
+            }
+        } else if (inst instanceof PhiInst phi) {
+            visitPhi(phi);
+        } else if (inst instanceof BinaryInst binaryInst) {
+            visitBinary(binaryInst);
+        } else if (inst instanceof ICmpInst iCmpInst) {
+            visitICmp(iCmpInst);
+        } else if (inst instanceof ZExtInst zExtInst) {
+            lower(inst, getState(zExtInst.getValue()), getConstant(zExtInst.getValue()));
+        } else if (!(inst instanceof StoreInst || inst instanceof ReturnInst)) {
+            lower(inst, OVERDEFINED, 0); // what memory or a call gives is not known
+        }
+    }
+
+    private void visitBranch(BrInst brInst) {
+        var block = brInst.getBasicBlock();
+        if (brInst.getCond() == null) {
+            markEdge(block, brInst.getDest());
+            return;
+        }
+        var cond = brInst.getCond();
+        switch (getState(cond)) {
+            case CONSTANT -> markEdge(block, getConstant(cond) != 0 ? brInst.getTrueBranch() : brInst.getFalseBranch());
+            case OVERDEFINED -> {
+                markEdge(block, brInst.getTrueBranch());
+                markEdge(block, brInst.getFalseBranch());
+            }
+        }
+    }
+
+    private void markEdge(BasicBlock from, BasicBlock to) {
+        int pos = cfg.getSuccessors(from).indexOf(to);
+        var executable = edgeExecutable[cfg.getReversePostOrderIndex(from)];
+        if (!executable[pos]) {
+            executable[pos] = true;
+            edgeWorklist.add(to);
+        }
+    }
+
+    // only the values coming in along the edges taken so far count
+    private void visitPhi(PhiInst phi) {
+        int state = UNDEFINED;
+        int constant = 0;
+        var incomingBlocks = phi.getIncomingBlocks();
+        for (int i = 0; i < incomingBlocks.size() && state != OVERDEFINED; i++) {
+            if (!isEdgeExecutable(incomingBlocks.get(i), phi.getBasicBlock())) {
+                continue;
+            }
+            var value = phi.getOperands().get(i);
+            int valueState = getState(value);
+            if (valueState == OVERDEFINED
+                    || valueState == CONSTANT && state == CONSTANT && getConstant(value) != constant) {
+                state = OVERDEFINED;
+            } else if (valueState == CONSTANT) {
+                state = CONSTANT;
+                constant = getConstant(value);
+            }
+        }
+        lower(phi, state, constant);
+    }
+
+    private void visitBinary(BinaryInst inst) {
+        var left = inst.getLeft();
+        var right = inst.getRight();
+        int leftState = getState(left);
+        int rightState = getState(right);
+        var op = inst.getOp();
+        if (leftState == CONSTANT && rightState == CONSTANT) {
+            int l = getConstant(left);
+            int r = getConstant(right);
+            switch (op) {
+                case ADD -> lower(inst, CONSTANT, l + r);
+                case SUB -> lower(inst, CONSTANT, l - r);
+                case MUL -> lower(inst, CONSTANT, l * r);
+                case AND -> lower(inst, CONSTANT, l & r);
+                case OR -> lower(inst, CONSTANT, l | r);
+                // left to the program to fail at run time
+                case SDIV -> lower(inst, r == 0 ? OVERDEFINED : CONSTANT, r == 0 ? 0 : l / r);
+                case SREM -> lower(inst, r == 0 ? OVERDEFINED : CONSTANT, r == 0 ? 0 : l % r);
+            }
+        } else if (op == BinaryInstOp.SUB && left == right) {
+            lower(inst, CONSTANT, 0);
+        } else if ((op == BinaryInstOp.MUL || op == BinaryInstOp.AND) && (isZero(left) || isZero(right))) {
+            lower(inst, CONSTANT, 0);
+        } else if (leftState == UNDEFINED || rightState == UNDEFINED) {
+            lower(inst, UNDEFINED, 0);
+        } else {
+            lower(inst, OVERDEFINED, 0);
+        }
+    }
+
+    private void visitICmp(ICmpInst inst) {
+        var left = inst.getLeft();
+        var right = inst.getRight();
+        int leftState = getState(left);
+        int rightState = getState(right);
+        var cond = inst.getCond();
+        if (leftState == CONSTANT && rightState == CONSTANT) {
+            int l = getConstant(left);
+            int r = getConstant(right);
+            boolean result = switch (cond) {
+                case EQ -> l == r;
+                case NE -> l != r;
+                case SLT -> l < r;
+                case SGT -> l > r;
+                case SLE -> l <= r;
+                case SGE -> l >= r;
+            };
+            lower(inst, CONSTANT, result ? 1 : 0);
+        } else if (left == right) {
+            lower(inst, CONSTANT, cond == ICmpInstCond.EQ || cond == ICmpInstCond.SLE || cond == ICmpInstCond.SGE ? 1 : 0);
+        } else if (leftState == UNDEFINED || rightState == UNDEFINED) {
+            lower(inst, UNDEFINED, 0);
+        } else {
+            lower(inst, OVERDEFINED, 0);
+        }
+    }
+
+    // a state is never raised, and a constant that would change falls to overdefined
+    private void lower(Instruction inst, int state, int constant) {
+        int number = inst.getValueNumber();
+        if (state == CONSTANT && states[number] == CONSTANT && constant != constants[number]) {
+            state = OVERDEFINED;
+        }
+        if (state <= states[number]) {
+            return;
+        }
+        states[number] = state;
+        constants[number] = constant;
+        valueWorklist.add(inst);
+    }
+
+    private int getState(Value value) {
+        if (value instanceof ImmediateValue) {
+            return CONSTANT;
+        }
+        if (value instanceof Instruction inst) {
+            return states[inst.getValueNumber()];
+        }
+        return OVERDEFINED; // arguments and globals
+    }
+
+    private int getConstant(Value value) {
+        if (value instanceof ImmediateValue immediateValue) {
+            return immediateValue.getValue();
+        }
+        if (value instanceof Instruction inst) {
+            return constants[inst.getValueNumber()];
+        }
+        return 0;
+    }
+
+    private boolean isZero(Value value) {
+        return getState(value) == CONSTANT && getConstant(value) == 0;
+    }
+
+    private boolean isExecutable(BasicBlock block) {
+        int index = cfg.getReversePostOrderIndex(block);
+        return index >= 0 && blockExecutable[index];
+    }
+
+    private boolean isEdgeExecutable(BasicBlock from, BasicBlock to) {
+        int index = cfg.getReversePostOrderIndex(from);
+        return index >= 0 && edgeExecutable[index][cfg.getSuccessors(from).indexOf(to)];
+    }
+
+    // the constants go first, while the value numbers are those of the solution, then the edges never taken, the
+    // blocks never reached, the phis left with one value, and what folds to one of its operands
+    private void rewrite(Function func, List<BasicBlock> blocks) {
+        for (int i = 0; i < blocks.size(); i++) {
+            if (!blockExecutable[i]) {
+                continue;
+            }
+            for (var inst : blocks.get(i).getInstructions()) {
+                if (states[inst.getValueNumber()] == CONSTANT) {
+                    inst.replaceAllUseWith(irModule.getImmediateValue(constants[inst.getValueNumber()]), false);
+                    changed = true;
+                }
+            }
+        }
+
+        for (int i = 0; i < blocks.size(); i++) {
+            if (!blockExecutable[i]) {
+                continue;
+            }
+            var block = blocks.get(i);
+            for (var inst : block.getInstructions()) {
+                if (!(inst instanceof PhiInst phi)) {
+                    break;
+                }
+                for (var incomingBlock : List.copyOf(phi.getIncomingBlocks())) {
+                    if (!isEdgeExecutable(incomingBlock, block)) {
+                        phi.removeIncoming(incomingBlock);
+                        changed = true;
+                    }
+                }
+            }
+            if (block.getInstructions().getLast() instanceof BrInst brInst && brInst.getCond() != null
+                    && edgeExecutable[i].length == 2 && edgeExecutable[i][0] != edgeExecutable[i][1]) {
+                var dest = cfg.getSuccessors(block).get(edgeExecutable[i][0] ? 0 : 1);
+                brInst.replaceAllUseWith(new BrInst(dest), true);
+                changed = true;
+            }
+        }
+
+        Set<BasicBlock> unreachable = new HashSet<>();
+        for (var block : func.getBasicBlocks()) {
+            if (!isExecutable(block)) {
+                unreachable.add(block);
+            }
+        }
+        func.removeBasicBlocks(unreachable);
+        changed |= !unreachable.isEmpty();
+
+        for (var block : func.getBasicBlocks()) {
+            for (var inst : block.getInstructions()) {
+                if (inst instanceof PhiInst phi && phi.getOperands().size() == 1) {
+                    inst.replaceAllUseWith(phi.getOperands().get(0), false);
+                    changed = true;
+                } else if (inst instanceof BinaryInst binaryInst) {
+                    var operand = getFoldedOperand(binaryInst);
+                    if (operand != null) {
+                        inst.replaceAllUseWith(operand, false);
+                        changed = true;
+                    }
+                }
+            }
+        }
+    }
+
+    // a + 0, 0 + a, a - 0, a * 1, 1 * a and a / 1 are a
+    private static Value getFoldedOperand(BinaryInst inst) {
+        var left = inst.getLeft();
+        var right = inst.getRight();
+        return switch (inst.getOp()) {
+            case ADD -> isImmediate(left, 0) ? right : isImmediate(right, 0) ? left : null;
+            case SUB -> isImmediate(right, 0) ? left : null;
+            case MUL -> isImmediate(left, 1) ? right : isImmediate(right, 1) ? left : null;
+            case SDIV -> isImmediate(right, 1) ? left : null;
+            default -> null;
+        };
+    }
+
+    private static boolean isImmediate(Value value, int constant) {
+        return value instanceof ImmediateValue immediateValue && immediateValue.getValue() == constant;
+    }
+}
@@ -0,0 +1,66 @@
+package sysy.backend.optim;
+
+import sysy.backend.ir.Function;
+import sysy.backend.ir.Module;
+import sysy.backend.ir.inst.CallInst;
+import sysy.backend.ir.inst.StoreInst;
+
+import java.util.*;
+
+// marks the functions a call to which does nothing but compute its result: they store only into their own locals and
+// call only such functions, so never getint or the output functions. every function is assumed to return.
+// it runs before the function passes, which may run in parallel and so must not look into other functions. they can
+// only remove effects, so what it finds stays true
+public class SideEffectAnalysisPass implements ModulePass {
+    private final Module irModule;
+
+    public SideEffectAnalysisPass(Module irModule) {
+        this.irModule = irModule;
+    }
+
+    @Override
+    public String getName() {
+        return "SideEffectAnalysisPass";
+    }
+
+    @Override
+    public boolean passModule() {
+        Set<Function> sideEffectFree = new HashSet<>(irModule.getFunctions());
+        Map<Function, List<Function>> callers = new HashMap<>();
+        Deque<Function> worklist = new ArrayDeque<>();
+        for (var func : irModule.getFunctions()) {
+            boolean effect = false;
+            for (var block : func.getBasicBlocks()) {
+                for (var inst : block.getInstructions()) {
+                    if (inst instanceof StoreInst storeInst) {
+                        effect |= !MemoryRoots.isLocal(storeInst.getPtr());
+                    } else if (inst instanceof CallInst callInst) {
+                        callers.computeIfAbsent(callInst.getFunc(), key -> new ArrayList<>()).add(func);
+                    }
+                }
+            }
+            if (effect) {
+                sideEffectFree.remove(func);
+                worklist.push(func);
+            }
+        }
+
+        // the builtins have effects, and so has whatever calls a function with effects
+        worklist.addAll(List.of(irModule.getBuildInGetInt(), irModule.getBuildInPutInt(),
+                irModule.getBuildInPutCh(), irModule.getBuildInPutStr()));
+        while (!worklist.isEmpty()) {
+            for (var caller : callers.getOrDefault(worklist.pop(), List.of())) {
+                if (sideEffectFree.remove(caller)) {
+                    worklist.push(caller);
+                }
+            }
+        }
+
+        boolean changed = false;
+        for (var func : irModule.getFunctions()) {
+            changed |= func.isSideEffectFree() != sideEffectFree.contains(func);
+            func.setSideEffectFree(sideEffectFree.contains(func));
+        }
+        return changed;
+    }
+}
@@ -23,6 +23,11 @@ public class Target {
         textList.add(entry);
     }
 
+    public void append(Target fragment) {
+        dataList.addAll(fragment.dataList);
+        textList.addAll(fragment.textList);
+    }
+
     public void dump(PrintStream out, boolean debugMode) {
         out.print(".data\n");
         for (var data: dataList) {
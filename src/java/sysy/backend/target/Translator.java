@@ -3,35 +3,74 @@ package sysy.backend.target;
 import sysy.backend.ir.*;
 import sysy.backend.ir.Module;
 import sysy.backend.ir.inst.*;
+import sysy.backend.optim.LiveValueAnalyzer;
 import sysy.backend.target.inst.TextComment;
 import sysy.backend.target.inst.TextInst;
 import sysy.backend.target.inst.TextLabel;
 import sysy.backend.target.value.*;
+import sysy.stats.StatsRecorder;
 
 import java.util.*;
 import java.util.stream.Stream;
 
 public class Translator {
     private final Target asmTarget = new Target();
-    private final ValueManager valueManager = new ValueManager();
+    private final ValueManager valueManager;
     private TempRegisterPool tempRegisterPool = new TempRegisterPool(
             asmTarget,
             Stream.of("t0", "t1", "t2", "t3", "t4", "t5", "t6").map(Register.REGS::get).toList());
     private int memorySizeForLocal = 0;
     private final Map<Value, Register> registerTempMap = new HashMap<>();
+    private final Stack<Register> tempRegs = new Stack<>();
+    private final Stack<Register> tempRegsOnUse = new Stack<>();
+    private Module irModule;
+    private BasicBlock nextIrBlock = null; // the block laid out after the one being translated, which needs no jump
+    private final StatsRecorder statsRecorder;
+
+    public Translator() {
+        this(null);
+    }
+
+    public Translator(StatsRecorder statsRecorder) {
+        this(null, new ValueManager(), statsRecorder);
+    }
+
+    private Translator(Module irModule, ValueManager valueManager, StatsRecorder statsRecorder) {
+        this.irModule = irModule;
+        this.valueManager = valueManager;
+        this.statsRecorder = statsRecorder;
+
+        // 3 temp register is enough to translate inst from ir to asm
+        for (var name : List.of("t5", "t6", "t7")) {
+            tempRegs.push(Register.REGS.get(name));
+        }
+    }
 
     public Target getAsmTarget() {
         return asmTarget;
     }
 
     public void translate(Module irModule) {
+        translateGlobalValues(irModule);
+
+        for (var func : irModule.getFunctions()) {
+            asmTarget.append(translateFunction(func));
+        }
+    }
+
+    public void translateGlobalValues(Module irModule) {
+        this.irModule = irModule;
+
         for (var globalVal : irModule.getGlobalValues()) {
             translateGlobalValue(globalVal);
         }
+    }
 
-        for (var func : irModule.getFunctions()) {
-            translateFunction(func);
-        }
+    public Target translateFunction(Function irFunction) {
+        // each function is translated into its own fragment, so functions can be translated concurrently
+        var functionTranslator = new Translator(irModule, valueManager.createLocalManager(), statsRecorder);
+        functionTranslator.translateFunctionBody(irFunction);
+        return functionTranslator.asmTarget;
     }
 
     private void translateGlobalValue(GlobalValue irGlobalValue) {
@@ -52,9 +91,18 @@ public class Translator {
         valueManager.putGlobal(irGlobalValue, newDataEntry.getLabel());
     }
 
-    private void translateFunction(Function irFunction) {
+    private void translateFunctionBody(Function irFunction) {
         asmTarget.addText(new TextLabel(irFunction.getName().substring(1)));
-        var totalMemorySize = valueManager.putLocals(irFunction);
+        int totalMemorySize;
+        if (statsRecorder == null) {
+            totalMemorySize = valueManager.putLocals(irFunction);
+        } else {
+            var timer = statsRecorder.start("translate.registerAllocation");
+            totalMemorySize = valueManager.putLocals(irFunction);
+            timer.stop();
+            statsRecorder.count("translate.registerAllocation", "registersUsed", valueManager.getRegistersInUse().size());
+            statsRecorder.count("translate.registerAllocation", "frameBytes", totalMemorySize);
+        }
         memorySizeForLocal = totalMemorySize - irFunction.calcParamSpace();
 
         if (memorySizeForLocal > 0) {
@@ -62,7 +110,7 @@ public class Translator {
             asmTarget.addText(new TextInst("addiu", sp, sp, new Immediate(-memorySizeForLocal)));
         }
 
-        Set<Register> tempRegisters = new HashSet<>(
+        Set<Register> tempRegisters = new LinkedHashSet<>(
                 Stream.of("s0", "s1", "s2", "s3", "s4", "s5", "s6", "s7",
                         "t0", "t1", "t2", "t3", "t4", "t5", "t6")
                         .map(Register.REGS::get)
@@ -70,10 +118,12 @@ public class Translator {
         valueManager.getRegistersInUse().forEach(tempRegisters::remove);
         tempRegisterPool = new TempRegisterPool(asmTarget, new ArrayList<>(tempRegisters));
 
-        for (var block : irFunction.getBasicBlocks()) {
+        var blocks = irFunction.getBasicBlocks();
+        for (int i = 0; i < blocks.size(); i++) {
+            nextIrBlock = i + 1 < blocks.size() ? blocks.get(i + 1) : null;
             tempRegisterPool.reset();
             registerTempMap.clear();
-            translateBasicBlock(block);
+            translateBasicBlock(blocks.get(i));
         }
 
         valueManager.clearLocals();
@@ -110,8 +160,20 @@ public class Translator {
             translateZExtInst(i);
         } else if (inst instanceof AllocaInst i) {
             translateAllocaInst(i);
+        } // a phi needs nothing here, its predecessors copy into it
+        storeIfLiveAcrossBlocks(inst);
+        freeAllTempRegisters();
+    }
+
+    // the temp registers are forgotten at the start of every block, so a value another block reads must be in its
+    // place in memory as soon as it is defined
+    private void storeIfLiveAcrossBlocks(Instruction inst) {
+        if (valueManager.getTargetValue(inst) instanceof Offset home && LiveValueAnalyzer.isLiveAcrossBlocks(inst)) {
+            var register = tempRegisterPool.getRegister(home);
+            if (register != null) {
+                asmTarget.addText(new TextInst("sw", register, home));
+            }
         }
-        Register.freeAllTempRegisters();
     }
 
     private void translateBinaryInst(BinaryInst inst) {
@@ -127,7 +189,7 @@ public class Translator {
         }
 
         if (right instanceof Immediate) {
-            var tmpReg = Register.allocateTempRegister();
+            var tmpReg = allocateTempRegister();
             asmTarget.addText(new TextInst("li", tmpReg, right));
             right = tmpReg;
         }
@@ -186,7 +248,13 @@ public class Translator {
             var ptr = valueManager.getTargetValue(inst.getPtr());
 
             if (ptr instanceof Register regPtr) {
-                registerTempMap.put(inst, regPtr);
+                if (!LiveValueAnalyzer.isLiveAcrossBlocks(inst) && !isStoredBeforeLastUse(inst)) {
+                    registerTempMap.put(inst, regPtr);
+                    return;
+                }
+                // the variable may change before the value is read, so it is copied
+                var target = tryAllocTempRegisterForInst(inst);
+                asmTarget.addText(new TextInst("move", target, regPtr));
                 return;
             }
 
@@ -200,6 +268,23 @@ public class Translator {
         }
     }
 
+    // whether the variable is stored into before the last use of its load in the block, like "b = a; a = 1; f(b);"
+    // after mem2reg, where the register of the variable no longer holds the value loaded
+    private static boolean isStoredBeforeLastUse(LoadInst inst) {
+        int usesLeft = inst.getUseCount();
+        for (var next = inst.getNext(); next != null && usesLeft > 0; next = next.getNext()) {
+            for (var operand : next.getOperands()) {
+                if (operand == inst) {
+                    usesLeft--;
+                }
+            }
+            if (usesLeft > 0 && next instanceof StoreInst storeInst && storeInst.getPtr() == inst.getPtr()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private void translateStoreInst(StoreInst inst) {
         if (inst.getValue() instanceof FunctionArgument) {
             return;
@@ -247,7 +332,7 @@ public class Translator {
         }
 
         if (right instanceof Immediate) {
-            var tmpReg = Register.allocateTempRegister();
+            var tmpReg = allocateTempRegister();
             asmTarget.addText(new TextInst("li", tmpReg, right));
             right = tmpReg;
         }
@@ -265,7 +350,8 @@ public class Translator {
     }
 
     private void translateBrInst(BrInst inst) {
-        var nextBlock = inst.getBasicBlock().getNextBasicBlock();
+        var nextBlock = nextIrBlock;
+        var block = inst.getBasicBlock();
         if (inst.getCond() != null) {
             var cond = tryGetTempRegister(inst.getCond());
 
@@ -277,6 +363,27 @@ public class Translator {
 
 //            tempRegisterPool.writeBackToMemoryForAll();
 
+            var trueCopies = getPhiCopies(block, trueBranch);
+            var falseCopies = getPhiCopies(block, falseBranch);
+            if (!trueCopies.isEmpty() || !falseCopies.isEmpty()) {
+                // the copies of an edge must only happen on that edge, so the false one gets a stub of its own
+                var falseStubName = buildBlockLabelName(block) + ".f";
+                asmTarget.addText(new TextInst("beqz", registerCond,
+                        new Label(falseCopies.isEmpty() ? falseBranchName : falseStubName)));
+                emitParallelCopy(trueCopies);
+                if (nextBlock != trueBranch || !falseCopies.isEmpty()) {
+                    asmTarget.addText(new TextInst("j", new Label(trueBranchName)));
+                }
+                if (!falseCopies.isEmpty()) {
+                    asmTarget.addText(new TextLabel(falseStubName));
+                    emitParallelCopy(falseCopies);
+                    if (nextBlock != falseBranch) {
+                        asmTarget.addText(new TextInst("j", new Label(falseBranchName)));
+                    }
+                }
+                return;
+            }
+
             if (nextBlock != falseBranch) {
                 asmTarget.addText(new TextInst("beqz", registerCond, new Label(falseBranchName)));
             }
@@ -289,16 +396,85 @@ public class Translator {
 
 //            tempRegisterPool.writeBackToMemoryForAll();
 
+            emitParallelCopy(getPhiCopies(block, destBranch));
             if (nextBlock != destBranch) {
                 asmTarget.addText(new TextInst("j", new Label(destBranchName)));
             }
         }
     }
 
+    // pairs of a phi of succ and its value coming from block, as targets, without the ones already in place
+    private List<TargetValue[]> getPhiCopies(BasicBlock block, BasicBlock succ) {
+        List<TargetValue[]> copies = new ArrayList<>();
+        for (var inst : succ.getInstructions()) {
+            if (!(inst instanceof PhiInst phi)) {
+                break; // phis are at the front
+            }
+            var dest = valueManager.getTargetValue(phi);
+            var src = valueManager.getTargetValue(phi.getIncomingValue(block));
+            if (dest != src) {
+                copies.add(new TargetValue[]{dest, src});
+            }
+        }
+        return copies;
+    }
+
+    // the phis of a block take their values at the same time, so a copy must not overwrite the source of another copy
+    // that is still to come. a cycle of copies is broken by moving one destination aside into $t8 first
+    private void emitParallelCopy(List<TargetValue[]> copies) {
+        var pending = new ArrayList<>(copies);
+        var t8 = Register.REGS.get("t8");
+        while (!pending.isEmpty()) {
+            TargetValue[] ready = null;
+            for (var copy : pending) {
+                boolean isSource = false;
+                for (var other : pending) {
+                    if (other[1] == copy[0]) {
+                        isSource = true;
+                        break;
+                    }
+                }
+                if (!isSource) {
+                    ready = copy;
+                    break;
+                }
+            }
+
+            if (ready != null) {
+                emitCopy(ready[0], ready[1]);
+                pending.remove(ready);
+            } else {
+                var dest = pending.get(0)[0];
+                emitCopy(t8, dest);
+                for (var copy : pending) {
+                    if (copy[1] == dest) {
+                        copy[1] = t8;
+                    }
+                }
+            }
+        }
+    }
+
+    // $v1 carries a value from memory to memory
+    private void emitCopy(TargetValue dest, TargetValue src) {
+        if (dest instanceof Register) {
+            assignToRegister((Register) dest, src);
+            return;
+        }
+        Register registerSrc;
+        if (src instanceof Register register) {
+            registerSrc = register;
+        } else {
+            registerSrc = Register.REGS.get("v1");
+            assignToRegister(registerSrc, src);
+        }
+        asmTarget.addText(new TextInst("sw", registerSrc, dest));
+    }
+
     private void translateCallInst(CallInst inst) {
         var func = inst.getFunc();
-        if (func == Function.BUILD_IN_PUTINT || func == Function.BUILD_IN_PUTCH) {
-            asmTarget.addText(new TextInst("li", Register.REGS.get("v0"), new Immediate(func == Function.BUILD_IN_PUTINT ? 1 : 11)));
+        if (func == irModule.getBuildInPutInt() || func == irModule.getBuildInPutCh()) {
+            asmTarget.addText(new TextInst("li", Register.REGS.get("v0"), new Immediate(func == irModule.getBuildInPutInt() ? 1 : 11)));
 
             var inputVal = inst.getParams().get(0);
             var inputTargetValue = tryGetTempRegister(inputVal);
@@ -317,7 +493,7 @@ public class Translator {
 
             asmTarget.addText(new TextInst("move", a0, t7));
 
-        } else if (func == Function.BUILD_IN_GETINT) {
+        } else if (func == irModule.getBuildInGetInt()) {
             asmTarget.addText(new TextInst("li", Register.REGS.get("v0"), new Immediate(5)));
             asmTarget.addText(new TextInst("syscall"));
 
@@ -388,7 +564,7 @@ public class Translator {
                     var registerParam = convertToRegister(targetParam);
                     asmTarget.addText(new TextInst("sw", registerParam, new Offset(sp, base)));
 
-                    Register.freeAllTempRegisters(); // TODO: maybe wrong
+                    freeAllTempRegisters(); // TODO: maybe wrong
                 }
             }
         }
@@ -455,7 +631,7 @@ public class Translator {
             asmTarget.addText(new TextInst("la", registerBase, valueManager.getTargetValue(base)));
         }
 
-        var registerTemp = Register.allocateTempRegister();
+        var registerTemp = allocateTempRegister();
         int currDim = 0;
         for (var offset : offsets) {
             if (offset instanceof ImmediateValue immediate && immediate.getValue() == 0) {
@@ -530,11 +706,11 @@ public class Translator {
 
     private Register convertToRegister(TargetValue targetValue) {
         if (isAddress(targetValue)) {
-            var newReg = Register.allocateTempRegister();
+            var newReg = allocateTempRegister();
             asmTarget.addText(new TextInst("lw", newReg, targetValue));
             return newReg;
         } else if (isImmediate(targetValue)) {
-            var newReg = Register.allocateTempRegister();
+            var newReg = allocateTempRegister();
             asmTarget.addText(new TextInst("li", newReg, targetValue));
             return newReg;
         } else if (targetValue instanceof Register register) {
@@ -551,4 +727,19 @@ public class Translator {
     private boolean isAddress(TargetValue value) {
         return value instanceof Label || value instanceof Offset;
     }
+
+    private Register allocateTempRegister() {
+        if (tempRegs.isEmpty()) {
+            return null;
+        }
+        var allocReg = tempRegs.pop();
+        tempRegsOnUse.push(allocReg);
+        return allocReg;
+    }
+
+    private void freeAllTempRegisters() {
+        while (!tempRegsOnUse.isEmpty()) {
+            tempRegs.push(tempRegsOnUse.pop());
+        }
+    }
 }
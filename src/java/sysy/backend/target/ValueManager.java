@@ -2,15 +2,31 @@ package sysy.backend.target;
 
 import sysy.backend.ir.*;
 import sysy.backend.ir.inst.*;
+import sysy.backend.optim.ConflictDiagram;
 import sysy.backend.optim.ConflictDiagramBuilder;
+import sysy.backend.optim.ControlFlowGraph;
+import sysy.backend.optim.LiveValueAnalyzer;
 import sysy.backend.optim.LiveVariableAnalyzer;
 import sysy.backend.target.value.*;
 
 import java.util.*;
 
 public class ValueManager {
-    private final Map<Value, TargetValue> globalValueMap = new HashMap<>();
-    private final Map<Value, TargetValue> localValueMap = new HashMap<>();
+    private final Map<Value, TargetValue> globalValueMap;
+    private final Map<Value, TargetValue> localValueMap = new LinkedHashMap<>();
+
+    public ValueManager() {
+        this(new LinkedHashMap<>());
+    }
+
+    private ValueManager(Map<Value, TargetValue> globalValueMap) {
+        this.globalValueMap = globalValueMap;
+    }
+
+    public ValueManager createLocalManager() {
+        // globals are only read once functions are translated, so every function can share them
+        return new ValueManager(globalValueMap);
+    }
 
     public TargetValue getTargetValue(Value value) {
         if (value instanceof ImmediateValue immediateValue) {
@@ -63,11 +79,11 @@ public class ValueManager {
                 .filter(inst -> inst.getDataType().getArrayDims().isEmpty())
                 .toList();
 
-        Map<AllocaInst, Integer> refCounts = new HashMap<>();
+        Map<AllocaInst, Integer> refCounts = new LinkedHashMap<>();
 
         for (var inst : integerVarInsts) {
             int refCount = 0;
-            for (var use  : inst.getUseList()) {
+            for (var use : inst.getUses()) {
                 var loopWeight = ((Instruction)use.getUser()).getBasicBlock().getLoopNum();
                 if (loopWeight > 0) {
                     refCount += 5 * loopWeight;
@@ -90,7 +106,8 @@ public class ValueManager {
     }
 
     private void graphColoringGlobalRegisterManage(List<Register> registers, List<AllocaInst> varInsts, Function func) {
-        var liveVarAnalyzer = new LiveVariableAnalyzer(func);
+        var cfg = new ControlFlowGraph(func);
+        var liveVarAnalyzer = new LiveVariableAnalyzer(cfg);
         liveVarAnalyzer.analyze();
 
         varInsts = varInsts
@@ -109,15 +126,41 @@ public class ValueManager {
         }
 
         var conflictDiagram = new ConflictDiagramBuilder(varInsts, liveVarAnalyzer.getDefSets(), activeSets).getDiagram();
+        colorConflictDiagram(conflictDiagram, registers, Map.of());
 
+        // the values mem2reg made live across blocks get the registers no variable took
+        var liveValueAnalyzer = new LiveValueAnalyzer(cfg);
+        if (liveValueAnalyzer.getValues().isEmpty()) {
+            return;
+        }
+        liveValueAnalyzer.analyze();
+        var registersLeft = new ArrayList<>(registers);
+        registersLeft.removeAll(getRegistersInUse());
+
+        // a phi and its incoming values in the same register need no copy between them
+        Map<Value, List<Value>> copyRelated = new HashMap<>();
+        for (var value : liveValueAnalyzer.getValues()) {
+            if (value instanceof PhiInst phi) {
+                for (var operand : phi.getOperands()) {
+                    if (operand instanceof Instruction && operand != phi) {
+                        copyRelated.computeIfAbsent(phi, k -> new ArrayList<>()).add(operand);
+                        copyRelated.computeIfAbsent(operand, k -> new ArrayList<>()).add(phi);
+                    }
+                }
+            }
+        }
+        colorConflictDiagram(liveValueAnalyzer.buildConflictDiagram(), registersLeft, copyRelated);
+    }
+
+    private void colorConflictDiagram(ConflictDiagram conflictDiagram, List<Register> registers, Map<Value, List<Value>> copyRelated) {
         var diagramForColor = conflictDiagram.copy();
 
         int degreeThreshold = registers.size();
 
-        Stack<AllocaInst> nodesToColor = new Stack<>();
+        Stack<Value> nodesToColor = new Stack<>();
 
         while (!diagramForColor.isEmpty()) {
-            AllocaInst candidate = null;
+            Value candidate = null;
             for (var node : diagramForColor.getNodes()) {
                 if (diagramForColor.getConflict(node).size() >= degreeThreshold) {
                     continue;
@@ -152,6 +195,18 @@ public class ValueManager {
                 }
             }
 
+            Register preferredReg = null;
+            for (var relatedNode : copyRelated.getOrDefault(node, List.of())) {
+                if (localValueMap.get(relatedNode) instanceof Register reg && registers.contains(reg) && !preservedRegs.contains(reg)) {
+                    preferredReg = reg;
+                    break;
+                }
+            }
+            if (preferredReg != null) {
+                localValueMap.put(node, preferredReg);
+                continue;
+            }
+
             for (var reg : registers) {
                 if (preservedRegs.contains(reg)) {
                     continue;
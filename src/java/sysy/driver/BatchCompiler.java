@@ -0,0 +1,258 @@
+package sysy.driver;
+
+import sysy.backend.optim.PassPipeline;
+import sysy.stats.StatsRecorder;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+public class BatchCompiler {
+    private static final String USAGE = "usage: Compiler --batch <dir|source|@manifest>... [-o <outdir>] [-j <jobs>] [--function-jobs <n>] [--llvm] [-O0|-O1|-O2] [--pipeline] [--full-ast] [--stats[=json]]";
+
+    private final List<Path> sources = new ArrayList<>();
+    private Path outputDir = Path.of("out");
+    private boolean emitLLVM = false;
+    private PassPipeline passPipeline = PassPipeline.get(PassPipeline.DEFAULT);
+    private boolean pipelinedFrontend = false;
+    private boolean flatSyntaxTree = true;
+    private int jobs = 1;
+    private int functionJobs = 0; // 0 for translating the functions of a unit one after another
+    private ForkJoinPool functionPool = null;
+    private StatsRecorder statsRecorder = null;
+    private boolean statsAsJson = false;
+
+    public static int run(String[] args) throws IOException {
+        var batch = new BatchCompiler();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-o" -> {
+                    if (++i >= args.length) {
+                        System.err.println(USAGE);
+                        return 2;
+                    }
+                    batch.outputDir = Path.of(args[i]);
+                }
+                case "-j", "--jobs" -> {
+                    if (++i >= args.length || !args[i].matches("[1-9][0-9]*")) {
+                        System.err.println(USAGE);
+                        return 2;
+                    }
+                    batch.jobs = Integer.parseInt(args[i]);
+                }
+                case "--function-jobs" -> {
+                    if (++i >= args.length || !args[i].matches("[1-9][0-9]*")) {
+                        System.err.println(USAGE);
+                        return 2;
+                    }
+                    batch.functionJobs = Integer.parseInt(args[i]);
+                }
+                case "--llvm" -> batch.emitLLVM = true;
+                case "--no-optimize" -> batch.passPipeline = PassPipeline.get("O0");
+                case "-O0", "-O1", "-O2" -> batch.passPipeline = PassPipeline.fromFlag(args[i]);
+                case "--pipeline" -> batch.pipelinedFrontend = true;
+                case "--full-ast" -> batch.flatSyntaxTree = false;
+                case "--stats", "--stats=json" -> {
+                    batch.statsRecorder = new StatsRecorder();
+                    batch.statsAsJson = args[i].equals("--stats=json");
+                }
+                default -> {
+                    if (args[i].startsWith("-")) {
+                        System.err.println(USAGE);
+                        return 2;
+                    }
+                    try {
+                        if (!batch.addInput(args[i])) {
+                            System.err.println(USAGE);
+                            return 2;
+                        }
+                    } catch (IOException | InvalidPathException e) {
+                        System.err.println("cannot read " + args[i] + ": " + e);
+                        return 2;
+                    }
+                }
+            }
+        }
+
+        if (batch.sources.isEmpty()) {
+            System.err.println(USAGE);
+            return 2;
+        }
+
+        long start = System.nanoTime();
+        var results = batch.compileAll();
+        long wallTime = System.nanoTime() - start;
+        batch.printReport(System.out, results, wallTime);
+        if (batch.statsRecorder != null) {
+            // stats of every unit are summed up
+            if (batch.statsAsJson) {
+                batch.statsRecorder.dumpJson(System.out);
+            } else {
+                System.out.println();
+                batch.statsRecorder.dumpTable(System.out);
+            }
+        }
+
+        for (var result : results) {
+            if (result.status == CompileResult.Status.CRASHED) {
+                return 1;
+            }
+        }
+        return 0;
+    }
+
+    // a directory, a source, or a manifest given as @list or by a .lst or .txt name; false for anything else
+    private boolean addInput(String arg) throws IOException {
+        boolean manifest = arg.startsWith("@");
+        var input = Path.of(manifest ? arg.substring(1) : arg);
+        if (!manifest && Files.isDirectory(input)) {
+            try (var files = Files.list(input)) {
+                files.filter(path -> Files.isRegularFile(path) && isSourceName(path)).sorted().forEach(sources::add);
+            }
+        } else if (!manifest && isSourceName(input)) {
+            sources.add(input); // one that cannot be read is reported as crashed with the others
+        } else if (manifest || input.toString().endsWith(".lst") || input.toString().endsWith(".txt")) {
+            // a manifest lists one source per line, relative to the manifest itself
+            var base = input.toAbsolutePath().getParent();
+            for (var line : Files.readAllLines(input)) {
+                line = line.strip();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                sources.add(base.resolve(line).normalize());
+            }
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean isSourceName(Path path) {
+        var name = path.getFileName().toString();
+        return name.endsWith(".sy") || name.startsWith("testfile");
+    }
+
+    public List<CompileResult> compileAll() throws IOException {
+        Files.createDirectories(outputDir);
+
+        var unitDirs = new ArrayList<Path>();
+        var usedNames = new HashSet<String>();
+        for (var source : sources) {
+            var name = stemOf(source);
+            for (int i = 1; !usedNames.add(name); i++) {
+                name = stemOf(source) + "-" + i;
+            }
+            unitDirs.add(outputDir.resolve(name));
+        }
+
+        // one pool for the functions of every unit, only for as long as the batch runs
+        functionPool = functionJobs > 0 ? new ForkJoinPool(functionJobs) : null;
+        try {
+            return compileUnits(unitDirs);
+        } finally {
+            if (functionPool != null) {
+                functionPool.shutdown();
+                functionPool = null;
+            }
+        }
+    }
+
+    private List<CompileResult> compileUnits(List<Path> unitDirs) throws IOException {
+        var results = new ArrayList<CompileResult>();
+        if (jobs == 1) {
+            for (int i = 0; i < sources.size(); i++) {
+                results.add(compileOne(sources.get(i), unitDirs.get(i)));
+            }
+            return results;
+        }
+
+        // units share no state, so they can be compiled in any order; results are still reported in input order
+        var executor = Executors.newFixedThreadPool(jobs);
+        try {
+            var futures = new ArrayList<Future<CompileResult>>();
+            for (int i = 0; i < sources.size(); i++) {
+                var source = sources.get(i);
+                var unitDir = unitDirs.get(i);
+                futures.add(executor.submit(() -> compileOne(source, unitDir)));
+            }
+            for (var future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return results;
+    }
+
+    private static String stemOf(Path source) {
+        var name = source.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    private CompileResult compileOne(Path source, Path unitDir) throws IOException {
+        Files.createDirectories(unitDir);
+
+        CompileResult result;
+        long start = System.nanoTime();
+        try (var reader = Files.newBufferedReader(source)) {
+            var compilation = new Compilation(passPipeline, functionPool, statsRecorder);
+            compilation.setPipelinedFrontend(pipelinedFrontend);
+            compilation.setFlatSyntaxTree(flatSyntaxTree);
+            result = compilation.run(reader, emitLLVM);
+        } catch (IOException e) {
+            // a missing or unreadable source fails on its own, the rest of the batch goes on
+            return CompileResult.crashed("cannot read source: " + e, System.nanoTime() - start);
+        }
+
+        if (result.status == CompileResult.Status.OK) {
+            Files.writeString(unitDir.resolve("mips.txt"), result.mips);
+            if (result.llvm != null) {
+                Files.writeString(unitDir.resolve("llvm_ir.txt"), result.llvm);
+            }
+        } else if (result.status == CompileResult.Status.ERRORS) {
+            Files.writeString(unitDir.resolve("error.txt"), result.errors);
+        }
+
+        return result;
+    }
+
+    private void printReport(PrintStream out, List<CompileResult> results, long wallTime) {
+        int width = 4;
+        for (var source : sources) {
+            width = Math.max(width, source.toString().length());
+        }
+
+        long total = 0;
+        int ok = 0;
+        out.printf("%-" + width + "s  %-7s  %10s%n", "file", "status", "time(ms)");
+        for (int i = 0; i < results.size(); i++) {
+            var result = results.get(i);
+            out.printf("%-" + width + "s  %-7s  %10.3f", sources.get(i), result.status.name().toLowerCase(), result.nanos / 1e6);
+            if (result.message != null) {
+                out.printf("  %s", result.message);
+            }
+            out.println();
+            total += result.nanos;
+            if (result.status == CompileResult.Status.OK) {
+                ok++;
+            }
+        }
+        out.printf("%d files, %d ok, %d with errors or crashed, %.3f ms total, %.3f ms wall%n",
+                results.size(), ok, results.size() - ok, total / 1e6, wallTime / 1e6);
+    }
+}
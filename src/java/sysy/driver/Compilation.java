@@ -0,0 +1,277 @@
+package sysy.driver;
+
+import sysy.backend.ir.Function;
+import sysy.backend.ir.Module;
+import sysy.backend.optim.PassManager;
+import sysy.backend.optim.PassPipeline;
+import sysy.backend.target.Target;
+import sysy.backend.target.Translator;
+import sysy.error.CompileError;
+import sysy.error.ErrorRecorder;
+import sysy.exception.LexerException;
+import sysy.exception.ParserException;
+import sysy.frontend.lexer.Lexer;
+import sysy.frontend.lexer.Token;
+import sysy.frontend.lexer.TokenPipeline;
+import sysy.frontend.lexer.TokenSource;
+import sysy.frontend.parser.FlatParser;
+import sysy.frontend.parser.FlatSyntaxTree;
+import sysy.frontend.parser.Parser;
+import sysy.frontend.parser.syntaxtree.SyntaxNode;
+import sysy.frontend.visitor.Visitor;
+import sysy.stats.StatsRecorder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+public class Compilation {
+    public static final String LLVM_HEADER = """
+            declare i32 @getint()
+            declare void @putint(i32)
+            declare void @putch(i32)
+            declare void @putstr(i8*)
+            
+            """;
+
+    private final ErrorRecorder recorder = new ErrorRecorder();
+    private final PassPipeline pipeline;
+    private final ForkJoinPool functionPool;
+    private final StatsRecorder statsRecorder;
+    private boolean pipelinedFrontend = false;
+    private boolean flatSyntaxTree = true;
+
+    public Compilation(boolean optimize) {
+        this(optimize, null);
+    }
+
+    public Compilation(boolean optimize, ForkJoinPool functionPool) {
+        this(optimize, functionPool, null);
+    }
+
+    public Compilation(boolean optimize, ForkJoinPool functionPool, StatsRecorder statsRecorder) {
+        this(PassPipeline.get(optimize ? PassPipeline.DEFAULT : "O0"), functionPool, statsRecorder);
+    }
+
+    public Compilation(PassPipeline pipeline, ForkJoinPool functionPool, StatsRecorder statsRecorder) {
+        this.pipeline = pipeline;
+        this.functionPool = functionPool;
+        this.statsRecorder = statsRecorder;
+    }
+
+    // lexes on a separate thread while parsing, which only pays off for large sources
+    public void setPipelinedFrontend(boolean pipelinedFrontend) {
+        this.pipelinedFrontend = pipelinedFrontend;
+    }
+
+    // keeps the syntax tree in flat arrays with single-child chains collapsed, so that a large program takes far less
+    // memory between parsing and visiting. the full tree is only needed to print the grammar, which is never done here
+    public void setFlatSyntaxTree(boolean flatSyntaxTree) {
+        this.flatSyntaxTree = flatSyntaxTree;
+    }
+
+    public CompileResult run(Reader source, boolean emitLLVM) {
+        var mipsBuffer = new ByteArrayOutputStream();
+        var llvmBuffer = emitLLVM ? new ByteArrayOutputStream() : null;
+
+        long start = System.nanoTime();
+        try {
+            boolean success = compile(
+                    source,
+                    new PrintStream(mipsBuffer),
+                    llvmBuffer == null ? null : new PrintStream(llvmBuffer)
+            );
+            if (success) {
+                return CompileResult.ok(
+                        mipsBuffer.toString(),
+                        llvmBuffer == null ? null : llvmBuffer.toString(),
+                        System.nanoTime() - start);
+            }
+
+            var errors = new StringBuilder();
+            for (var error : getErrors()) {
+                errors.append(error).append('\n');
+            }
+            return CompileResult.errors(errors.toString(), System.nanoTime() - start);
+        } catch (LexerException | ParserException e) {
+            return CompileResult.crashed(e.getClass().getSimpleName(), System.nanoTime() - start);
+        } catch (RuntimeException | StackOverflowError e) {
+            return CompileResult.crashed(e.toString(), System.nanoTime() - start);
+        }
+    }
+
+    public boolean compile(Reader source, PrintStream mipsOut, PrintStream llvmOut) throws LexerException, ParserException {
+        if (statsRecorder != null) {
+            return compileWithStats(source, mipsOut, llvmOut);
+        }
+
+        var visitor = new Visitor(recorder);
+        Module module;
+        if (flatSyntaxTree) {
+            module = visitor.generateIR(parseFlat(source));
+        } else {
+            module = visitor.generateIR(parse(source));
+        }
+
+        if (!recorder.getErrors().isEmpty()) {
+            return false;
+        }
+
+        var translator = new Translator();
+        var passManager = new PassManager(module, pipeline, null);
+        if (functionPool == null) {
+            passManager.run();
+            translator.translate(module);
+        } else {
+            translateInParallel(module, passManager, translator);
+        }
+
+        if (llvmOut != null) {
+            llvmOut.print(LLVM_HEADER);
+            module.dump(llvmOut);
+        }
+
+        translator.getAsmTarget().dump(mipsOut, false);
+        return true;
+    }
+
+    private SyntaxNode parse(Reader source) throws LexerException, ParserException {
+        if (pipelinedFrontend) {
+            try (var pipeline = new TokenPipeline(source, recorder)) {
+                return new Parser(pipeline, recorder).parse();
+            }
+        }
+        return new Parser(new Lexer(source, recorder), recorder).parse();
+    }
+
+    private FlatSyntaxTree parseFlat(Reader source) throws LexerException, ParserException {
+        if (pipelinedFrontend) {
+            try (var pipeline = new TokenPipeline(source, recorder)) {
+                return new FlatParser(pipeline, recorder).parse();
+            }
+        }
+        return new FlatParser(new Lexer(source, recorder), recorder).parse();
+    }
+
+    private boolean compileWithStats(Reader source, PrintStream mipsOut, PrintStream llvmOut) throws LexerException, ParserException {
+        // the parser pulls tokens on demand, so the source is lexed up front to measure lexing on its own
+        var timer = statsRecorder.start("lexer");
+        var tokens = new ArrayList<Token>();
+        var lexer = new Lexer(source, recorder);
+        while (lexer.next()) {
+            tokens.add(lexer.getToken());
+        }
+        timer.stop();
+        statsRecorder.count("lexer", "tokens", tokens.size());
+
+        timer = statsRecorder.start("parser");
+        var replay = new TokenSource() {
+            private int pos = -1;
+
+            @Override
+            public boolean next() {
+                if (pos + 1 >= tokens.size()) {
+                    return false;
+                }
+                pos++;
+                return true;
+            }
+
+            @Override
+            public Token getToken() {
+                return tokens.get(pos);
+            }
+        };
+        SyntaxNode result = null;
+        FlatSyntaxTree flatResult = null;
+        if (flatSyntaxTree) {
+            flatResult = new FlatParser(replay, recorder).parse();
+        } else {
+            result = new Parser(replay, recorder).parse();
+        }
+        timer.stop();
+        if (flatResult != null) {
+            statsRecorder.count("parser", "nodes", flatResult.getNodeCount());
+        }
+
+        timer = statsRecorder.start("visitor");
+        var visitor = new Visitor(recorder);
+        var module = flatResult != null ? visitor.generateIR(flatResult) : visitor.generateIR(result);
+        timer.stop();
+        statsRecorder.count("visitor", "functions", module.getFunctions().size());
+        for (var func : module.getFunctions()) {
+            statsRecorder.count("visitor", "basicBlocks", func.getBasicBlocks().size());
+            statsRecorder.count("visitor", "instructions", countInstructions(func));
+        }
+
+        if (!recorder.getErrors().isEmpty()) {
+            return false;
+        }
+
+        // with a function pool, times of the phases below are summed over all worker threads
+        var translator = new Translator(statsRecorder);
+        var passManager = new PassManager(module, pipeline, statsRecorder);
+        if (functionPool == null) {
+            passManager.run();
+            timer = statsRecorder.start("translate");
+            translator.translate(module);
+            timer.stop();
+        } else {
+            translateInParallel(module, passManager, translator);
+        }
+
+        timer = statsRecorder.start("emit");
+        if (llvmOut != null) {
+            llvmOut.print(LLVM_HEADER);
+            module.dump(llvmOut);
+        }
+        translator.getAsmTarget().dump(mipsOut, false);
+        timer.stop();
+        return true;
+    }
+
+    private void translateInParallel(Module module, PassManager passManager, Translator translator) {
+        passManager.runModulePasses();
+        translator.translateGlobalValues(module);
+
+        // every function pass only looks inside one function, so each function can be optimized and translated on
+        // its own
+        var fragments = new ArrayList<ForkJoinTask<Target>>();
+        for (var func : module.getFunctions()) {
+            fragments.add(functionPool.submit(() -> {
+                passManager.runFunctionPasses(func);
+                if (statsRecorder == null) {
+                    return translator.translateFunction(func);
+                }
+                var timer = statsRecorder.start("translate");
+                var fragment = translator.translateFunction(func);
+                timer.stop();
+                return fragment;
+            }));
+        }
+
+        for (var fragment : fragments) {
+            translator.getAsmTarget().append(fragment.join());
+        }
+    }
+
+    public List<CompileError> getErrors() {
+        return recorder.getErrors();
+    }
+
+    public static Module optimize(Module module) {
+        return new PassManager(module, PassPipeline.get(PassPipeline.DEFAULT), null).run();
+    }
+
+    private static int countInstructions(Function func) {
+        int count = 0;
+        for (var block : func.getBasicBlocks()) {
+            count += block.getInstructions().size();
+        }
+        return count;
+    }
+}
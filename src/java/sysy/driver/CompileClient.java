@@ -0,0 +1,95 @@
+package sysy.driver;
+
+import java.io.*;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class CompileClient {
+    private static final String USAGE = "usage: CompileClient [--socket <path>] [--llvm] [--no-optimize|-O0|-O1|-O2] [<source> [<outdir>]] | --shutdown";
+
+    public static void main(String[] args) throws IOException {
+        System.exit(run(args));
+    }
+
+    public static int run(String[] args) throws IOException {
+        Path socketPath = CompileProtocol.DEFAULT_SOCKET;
+        var request = new StringBuilder("compile");
+        boolean shutdown = false;
+        Path source = Path.of("testfile.txt");
+        Path outputDir = Path.of(".");
+        int positional = 0;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--socket" -> {
+                    if (++i >= args.length) {
+                        System.err.println(USAGE);
+                        return 2;
+                    }
+                    socketPath = Path.of(args[i]);
+                }
+                case "--llvm" -> request.append(" llvm");
+                case "--no-optimize" -> request.append(" no-optimize");
+                case "-O0", "-O1", "-O2" -> request.append(' ').append(args[i].substring(1));
+                case "--shutdown" -> shutdown = true;
+                default -> {
+                    if (args[i].startsWith("-") || positional >= 2) {
+                        System.err.println(USAGE);
+                        return 2;
+                    }
+                    if (positional++ == 0) {
+                        source = Path.of(args[i]);
+                    } else {
+                        outputDir = Path.of(args[i]);
+                    }
+                }
+            }
+        }
+
+        try (var channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.connect(UnixDomainSocketAddress.of(socketPath));
+            var in = new BufferedInputStream(Channels.newInputStream(channel));
+            var out = new BufferedOutputStream(Channels.newOutputStream(channel));
+
+            if (shutdown) {
+                CompileProtocol.writeLine(out, "shutdown");
+                out.flush();
+                return 0;
+            }
+
+            var sourceBytes = Files.readAllBytes(source);
+            request.insert("compile".length(), " " + sourceBytes.length);
+            CompileProtocol.writeLine(out, request.toString());
+            out.write(sourceBytes);
+            out.flush();
+
+            var status = CompileProtocol.readLine(in);
+            if (status == null) {
+                throw new EOFException();
+            }
+            // like Compiler, mips.txt and error.txt are always written, one of them empty
+            String mips = "", errors = "";
+            String line;
+            while (!(line = CompileProtocol.readLine(in)).equals("end")) {
+                var words = line.split(" ");
+                var content = CompileProtocol.readString(in, Integer.parseInt(words[1]));
+                switch (words[0]) {
+                    case "mips" -> mips = content;
+                    case "llvm" -> Files.writeString(outputDir.resolve("llvm_ir.txt"), content, StandardCharsets.UTF_8);
+                    case "error" -> errors = content;
+                    case "message" -> System.err.println(content);
+                }
+            }
+            if (status.startsWith("crashed")) {
+                return 1;
+            }
+            Files.writeString(outputDir.resolve("mips.txt"), mips, StandardCharsets.UTF_8);
+            Files.writeString(outputDir.resolve("error.txt"), errors, StandardCharsets.UTF_8);
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package sysy.driver;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/*
+ * request:  "compile <n> [llvm] [no-optimize|O0|O1|O2]\n" followed by n bytes of source, or "shutdown\n"
+ *           without a level the source is compiled at O0
+ * response: "<ok|errors|crashed> <nanos>\n", then sections "<mips|llvm|error|message> <n>\n" each followed
+ *           by n bytes, then "end\n"
+ * all lengths are in bytes of utf-8, a connection may carry any number of requests. a request the server cannot
+ * take gets a crashed response with a message
+ */
+public class CompileProtocol {
+    public static final int MAX_SOURCE_LENGTH = 64 << 20;
+    public static final Path DEFAULT_SOCKET = Path.of(System.getProperty("java.io.tmpdir"), "sysy-compiler.sock");
+
+    public static String readLine(InputStream in) throws IOException {
+        var line = new ByteArrayOutputStream();
+        int ch;
+        while ((ch = in.read()) != '\n') {
+            if (ch < 0) {
+                if (line.size() == 0) {
+                    return null;
+                }
+                throw new EOFException();
+            }
+            line.write(ch);
+        }
+        return line.toString(StandardCharsets.UTF_8);
+    }
+
+    public static String readString(InputStream in, int length) throws IOException {
+        var bytes = in.readNBytes(length);
+        if (bytes.length != length) {
+            throw new EOFException();
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // read and drop length bytes, a chunk at a time since they may be far more than fit in memory
+    public static void skip(InputStream in, long length) throws IOException {
+        var buffer = new byte[8192];
+        while (length > 0) {
+            int read = in.read(buffer, 0, (int) Math.min(buffer.length, length));
+            if (read < 0) {
+                throw new EOFException();
+            }
+            length -= read;
+        }
+    }
+
+    public static void writeLine(OutputStream out, String line) throws IOException {
+        out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static void writeSection(OutputStream out, String name, String content) throws IOException {
+        if (content == null) {
+            return;
+        }
+        var bytes = content.getBytes(StandardCharsets.UTF_8);
+        writeLine(out, name + " " + bytes.length);
+        out.write(bytes);
+    }
+}
@@ -0,0 +1,37 @@
+package sysy.driver;
+
+public class CompileResult {
+    public enum Status {
+        OK,
+        ERRORS,
+        CRASHED,
+    }
+
+    public final Status status;
+    public final String mips; // only when ok
+    public final String llvm; // only when ok and requested
+    public final String errors; // content of error.txt, only when there are compile errors
+    public final String message; // why the compiler crashed
+    public final long nanos;
+
+    private CompileResult(Status status, String mips, String llvm, String errors, String message, long nanos) {
+        this.status = status;
+        this.mips = mips;
+        this.llvm = llvm;
+        this.errors = errors;
+        this.message = message;
+        this.nanos = nanos;
+    }
+
+    public static CompileResult ok(String mips, String llvm, long nanos) {
+        return new CompileResult(Status.OK, mips, llvm, null, null, nanos);
+    }
+
+    public static CompileResult errors(String errors, long nanos) {
+        return new CompileResult(Status.ERRORS, null, null, errors, null, nanos);
+    }
+
+    public static CompileResult crashed(String message, long nanos) {
+        return new CompileResult(Status.CRASHED, null, null, null, message, nanos);
+    }
+}
@@ -0,0 +1,167 @@
+package sysy.driver;
+
+import sysy.backend.optim.PassPipeline;
+
+import java.io.*;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class CompileServer {
+    private static final String USAGE = "usage: Compiler --server [--stdio | --socket <path>] [-j <jobs>]";
+
+    private ServerSocketChannel serverChannel = null;
+    private volatile boolean shutdown = false;
+
+    public static int run(String[] args) throws IOException {
+        Path socketPath = CompileProtocol.DEFAULT_SOCKET;
+        boolean stdio = false;
+        int jobs = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--stdio" -> stdio = true;
+                case "--socket" -> {
+                    if (++i >= args.length) {
+                        System.err.println(USAGE);
+                        return 2;
+                    }
+                    socketPath = Path.of(args[i]);
+                }
+                case "-j", "--jobs" -> {
+                    if (++i >= args.length || !args[i].matches("[1-9][0-9]*")) {
+                        System.err.println(USAGE);
+                        return 2;
+                    }
+                    jobs = Integer.parseInt(args[i]);
+                }
+                default -> {
+                    System.err.println(USAGE);
+                    return 2;
+                }
+            }
+        }
+
+        var server = new CompileServer();
+        if (stdio) {
+            try {
+                server.serve(new BufferedInputStream(System.in), new BufferedOutputStream(System.out));
+            } catch (IOException e) {
+                System.err.printf("input dropped: %s%n", e);
+                return 1;
+            } finally {
+                System.out.flush();
+            }
+        } else {
+            server.listen(socketPath, jobs);
+        }
+        return 0;
+    }
+
+    private void listen(Path socketPath, int jobs) throws IOException {
+        Files.deleteIfExists(socketPath); // left behind by a server that was killed
+        var channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        channel.bind(UnixDomainSocketAddress.of(socketPath));
+        serverChannel = channel;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                Files.deleteIfExists(socketPath);
+            } catch (IOException ignored) {
+            }
+        }));
+        System.err.printf("listening on %s%n", socketPath);
+
+        ExecutorService executor = Executors.newFixedThreadPool(jobs);
+        try (channel) {
+            while (!shutdown) {
+                SocketChannel connection;
+                try {
+                    connection = channel.accept();
+                } catch (IOException e) {
+                    if (shutdown) {
+                        break;
+                    }
+                    throw e;
+                }
+                executor.submit(() -> handleConnection(connection));
+            }
+        } finally {
+            executor.shutdown();
+            Files.deleteIfExists(socketPath);
+        }
+    }
+
+    private void handleConnection(SocketChannel connection) {
+        try (connection) {
+            var in = new BufferedInputStream(Channels.newInputStream(connection));
+            var out = new BufferedOutputStream(Channels.newOutputStream(connection));
+            serve(in, out);
+        } catch (IOException | RuntimeException e) {
+            System.err.printf("connection dropped: %s%n", e);
+        }
+    }
+
+    private void serve(InputStream in, OutputStream out) throws IOException {
+        String header;
+        while ((header = CompileProtocol.readLine(in)) != null) {
+            var words = header.split(" ");
+            if (words[0].equals("shutdown")) {
+                stop();
+                return;
+            }
+            // without a length there is no telling where the source ends, so the next line is taken as a request
+            if (!words[0].equals("compile") || words.length < 2 || !words[1].matches("[0-9]{1,18}")) {
+                writeResult(out, CompileResult.crashed("bad request: " + header, 0));
+                continue;
+            }
+            long length = Long.parseLong(words[1]);
+            if (length > CompileProtocol.MAX_SOURCE_LENGTH) {
+                CompileProtocol.skip(in, length);
+                writeResult(out, CompileResult.crashed("source longer than " + CompileProtocol.MAX_SOURCE_LENGTH + " bytes", 0));
+                continue;
+            }
+            var source = CompileProtocol.readString(in, (int) length);
+
+            boolean emitLLVM = false;
+            var pipeline = PassPipeline.get("O0"); // like Compiler without a flag
+            String badWord = null;
+            for (int i = 2; i < words.length; i++) {
+                switch (words[i]) {
+                    case "llvm" -> emitLLVM = true;
+                    case "no-optimize" -> pipeline = PassPipeline.get("O0");
+                    case "O0", "O1", "O2" -> pipeline = PassPipeline.get(words[i]);
+                    default -> badWord = words[i];
+                }
+            }
+            if (badWord != null) {
+                writeResult(out, CompileResult.crashed("bad request: unknown option " + badWord, 0));
+                continue;
+            }
+
+            // everything a compilation mutates is created by the compilation itself, so requests never see each other
+            writeResult(out, new Compilation(pipeline, null, null).run(new StringReader(source), emitLLVM));
+        }
+    }
+
+    private static void writeResult(OutputStream out, CompileResult result) throws IOException {
+        CompileProtocol.writeLine(out, result.status.name().toLowerCase() + " " + result.nanos);
+        CompileProtocol.writeSection(out, "mips", result.mips);
+        CompileProtocol.writeSection(out, "llvm", result.llvm);
+        CompileProtocol.writeSection(out, "error", result.errors);
+        CompileProtocol.writeSection(out, "message", result.message);
+        CompileProtocol.writeLine(out, "end");
+        out.flush();
+    }
+
+    private void stop() throws IOException {
+        shutdown = true;
+        if (serverChannel != null) {
+            serverChannel.close();
+        }
+    }
+}
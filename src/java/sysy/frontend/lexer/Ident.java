@@ -0,0 +1,28 @@
+package sysy.frontend.lexer;
+
+public class Ident {
+    private final String name;
+    private final int id;
+
+    public Ident(String name) {
+        this(name, -1); // not from the source, so it never equals an ident given out by an IdentPool
+    }
+
+    Ident(String name, int id) {
+        this.name = name;
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
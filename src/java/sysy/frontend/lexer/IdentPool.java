@@ -0,0 +1,65 @@
+package sysy.frontend.lexer;
+
+public class IdentPool {
+    // every spelling of an ident maps to one canonical Ident, so later phases compare idents by identity
+    private Ident[] table = new Ident[256];
+    private int[] hashes = new int[256];
+    private int size = 0;
+
+    public Ident intern(char[] buf, int start, int len, int hash) {
+        int mask = table.length - 1;
+        int i = slot(hash, mask);
+        while (table[i] != null) {
+            if (hashes[i] == hash && matches(table[i].getName(), buf, start, len)) {
+                return table[i];
+            }
+            i = (i + 1) & mask;
+        }
+
+        var ident = new Ident(new String(buf, start, len), size);
+        table[i] = ident;
+        hashes[i] = hash;
+        if (++size * 2 > table.length) {
+            grow();
+        }
+        return ident;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static int slot(int hash, int mask) {
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private static boolean matches(String name, char[] buf, int start, int len) {
+        if (name.length() != len) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (name.charAt(i) != buf[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void grow() {
+        var oldTable = table;
+        var oldHashes = hashes;
+        table = new Ident[oldTable.length * 2];
+        hashes = new int[oldTable.length * 2];
+        int mask = table.length - 1;
+        for (int j = 0; j < oldTable.length; j++) {
+            if (oldTable[j] != null) {
+                int i = slot(oldHashes[j], mask);
+                while (table[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                table[i] = oldTable[j];
+                hashes[i] = oldHashes[j];
+            }
+        }
+    }
+}
@@ -6,28 +6,15 @@ import sysy.exception.LexerException;
 
 import java.io.IOException;
 import java.io.Reader;
-import java.util.Map;
+import java.util.Arrays;
 
-public class Lexer {
-    private final Reader in;
+public class Lexer implements TokenSource {
+    private final char[] source;
+    private final int end;
     private final ErrorRecorder errorRecorder;
-    private int pushbackChar;
-    private boolean hasPushbackChar = false;
+    private int pos = 0;
     private Token token = null;
-    private final static Map<String, LexType> reserveWords = Map.ofEntries(
-            Map.entry("main", LexType.MAINTK),
-            Map.entry("const", LexType.CONSTTK),
-            Map.entry("int", LexType.INTTK),
-            Map.entry("break", LexType.BREAKTK),
-            Map.entry("continue", LexType.CONTINUETK),
-            Map.entry("if", LexType.IFTK),
-            Map.entry("else", LexType.ELSETK),
-            Map.entry("for", LexType.FORTK),
-            Map.entry("getint", LexType.GETINTTK),
-            Map.entry("printf", LexType.PRINTFTK),
-            Map.entry("return", LexType.RETURNTK),
-            Map.entry("void", LexType.VOIDTK)
-    );
+    private final IdentPool identPool = new IdentPool();
     private static final int EOF = -1;
     private int lineNum = 1;
 
@@ -51,270 +38,251 @@ public class Lexer {
         return Character.isWhitespace(ch) && ch != '\n';
     }
 
-    public Lexer(Reader in, ErrorRecorder errorRecorder) {
-        this.in = in;
+    public Lexer(Reader in, ErrorRecorder errorRecorder) throws LexerException {
+        // the whole source is read in bulk, then tokens are scanned by index and only refer to their chars
+        var buf = new char[8192];
+        int len = 0;
+        try {
+            int n;
+            while ((n = in.read(buf, len, buf.length - len)) != -1) {
+                len += n;
+                if (len == buf.length) {
+                    buf = Arrays.copyOf(buf, buf.length * 2);
+                }
+            }
+        } catch (IOException e) {
+            throw new LexerException(e);
+        }
+        this.source = buf;
+        this.end = len;
         this.errorRecorder = errorRecorder;
     }
 
+    public Lexer(char[] source, ErrorRecorder errorRecorder) {
+        this.source = source;
+        this.end = source.length;
+        this.errorRecorder = errorRecorder;
+    }
+
+    @Override
     public boolean next() throws LexerException {
-        String value;
-        LexType type;
-        StringBuilder sb = new StringBuilder();
-        int ch = getChar();
-        sb.append((char) ch);
+        while (true) {
+            int ch = getChar();
+            int start = pos - 1;
 
-        if (isWord(ch)) {
-            ch = getChar();
-            while (isWord(ch) || isDigit(ch)) {
-                sb.append((char) ch);
-                ch = getChar();
-            }
-            ungetChar(ch);
-            value = sb.toString();
-            type = reserveWords.getOrDefault(value, LexType.IDENFR);
-            token = new Token(value, type, lineNum);
-        } else if (isNonZeroDigit(ch)) {
-            ch = getChar();
-            while (isDigit(ch)) {
-                sb.append((char) ch);
-                ch = getChar();
-            }
-            ungetChar(ch);
-            value = sb.toString();
-            type = LexType.INTCON;
-            token = new Token(value, type, lineNum);
-        } else if (ch == '0') {
-            value = sb.toString();
-            type = LexType.INTCON;
-            token = new Token(value, type, lineNum);
-        } else if (ch == '\"') {
-            ch = getChar();
-            while (ch != EOF && ch != '\"') {
-                sb.append((char) ch);
-                if (ch == '%') {
-                    ch = getChar();
-                    if (ch == 'd') {
-                        sb.append((char) ch);
-                    } else {
-                        errorRecorder.addError(CompileErrorType.ILLEGAL_SYMBOL, lineNum);
-                    }
-                    if (ch == '\"') {
-                        break;
-                    }
-                } else if (ch == '\\') {
-                    ch = getChar();
-                    if (ch == 'n') {
-                        sb.append((char) ch);
-                    } else {
-                        errorRecorder.addError(CompileErrorType.ILLEGAL_SYMBOL, lineNum);
+            if (isWord(ch)) {
+                int hash = ch;
+                while (isWord(peekChar()) || isDigit(peekChar())) {
+                    hash = 31 * hash + source[pos++];
+                }
+                var type = keywordType(source, start, pos - start);
+                if (type != null) {
+                    token = createToken(start, type);
+                } else {
+                    token = new Token(source, start, identPool.intern(source, start, pos - start, hash), lineNum);
+                }
+            } else if (isNonZeroDigit(ch)) {
+                while (isDigit(peekChar())) {
+                    pos++;
+                }
+                token = createToken(start, LexType.INTCON);
+            } else if (ch == '0') {
+                token = createToken(start, LexType.INTCON);
+            } else if (ch == '\"') {
+                token = nextStrCon(start);
+            } else if (ch == '!') {
+                token = createToken(start, matchChar('=') ? LexType.NEQ : LexType.NOT);
+            } else if (ch == '&') {
+                if (!matchChar('&')) {
+                    throw new LexerException();
+                }
+                token = createToken(start, LexType.AND);
+            } else if (ch == '|') {
+                if (!matchChar('|')) {
+                    throw new LexerException();
+                }
+                token = createToken(start, LexType.OR);
+            } else if (ch == '+') {
+                token = createToken(start, LexType.PLUS);
+            } else if (ch == '-') {
+                token = createToken(start, LexType.MINU);
+            } else if (ch == '*') {
+                token = createToken(start, LexType.MULT);
+            } else if (ch == '/') {
+                if (matchChar('/')) {
+                    while (peekChar() != '\n' && peekChar() != EOF) {
+                        pos++;
                     }
-                    if (ch == '\"') {
-                        break;
+                    continue;  // note is not a token
+                } else if (matchChar('*')) {
+                    if (skipBlockComment()) {
+                        continue; // note is not a token
                     }
-                } else if (!isNormalChar(ch)) {
-                    errorRecorder.addError(CompileErrorType.ILLEGAL_SYMBOL, lineNum);
+                    return true; // an unclosed note leaves the last token as it is
+                } else {
+                    token = createToken(start, LexType.DIV);
                 }
-                ch = getChar();
-            }
-            if (ch == '\"') {
-                sb.append((char) ch);
-                value = sb.toString();
-                type = LexType.STRCON;
-                token = new Token(value, type, lineNum);
-            } else {
-                throw new LexerException();
-            }
-        } else if (ch == '!') {
-            ch = getChar();
-            if (ch == '=') {
-                sb.append((char) ch);
-                value = sb.toString();
-                type = LexType.NEQ;
-                token = new Token(value, type, lineNum);
-            } else {
-                ungetChar(ch);
-                value = sb.toString();
-                type = LexType.NOT;
-                token = new Token(value, type, lineNum);
-            }
-        } else if (ch == '&') {
-            ch = getChar();
-            if (ch == '&') {
-                sb.append((char) ch);
-                value = sb.toString();
-                type = LexType.AND;
-                token = new Token(value, type, lineNum);
+            } else if (ch == '%') {
+                token = createToken(start, LexType.MOD);
+            } else if (ch == '<') {
+                token = createToken(start, matchChar('=') ? LexType.LEQ : LexType.LSS);
+            } else if (ch == '>') {
+                token = createToken(start, matchChar('=') ? LexType.GEQ : LexType.GRE);
+            } else if (ch == '=') {
+                token = createToken(start, matchChar('=') ? LexType.EQL : LexType.ASSIGN);
+            } else if (ch == ';') {
+                token = createToken(start, LexType.SEMICN);
+            } else if (ch == ',') {
+                token = createToken(start, LexType.COMMA);
+            } else if (ch == '(') {
+                token = createToken(start, LexType.LPARENT);
+            } else if (ch == ')') {
+                token = createToken(start, LexType.RPARENT);
+            } else if (ch == '[') {
+                token = createToken(start, LexType.LBRACK);
+            } else if (ch == ']') {
+                token = createToken(start, LexType.RBRACK);
+            } else if (ch == '{') {
+                token = createToken(start, LexType.LBRACE);
+            } else if (ch == '}') {
+                token = createToken(start, LexType.RBRACE);
+            } else if (ch == '\n') {
+                lineNum++;
+                continue;
+            } else if (isWhitespaceWithoutNextLine(ch)) {
+                continue;
+            } else if (ch == EOF) {
+                return false;
             } else {
                 throw new LexerException();
             }
-        } else if (ch == '|') {
-            ch = getChar();
-            if (ch == '|') {
+            return true;
+        }
+    }
+
+    private Token nextStrCon(int start) throws LexerException {
+        StringBuilder sb = null; // only needed when an illegal char is dropped from the value
+        int ch = getChar();
+        while (ch != EOF && ch != '\"') {
+            if (sb != null) {
                 sb.append((char) ch);
-                value = sb.toString();
-                type = LexType.OR;
-                token = new Token(value, type, lineNum);
-            } else {
-                throw new LexerException();
             }
-        } else if (ch == '+') {
-            value = sb.toString();
-            type = LexType.PLUS;
-            token = new Token(value, type, lineNum);
-        } else if (ch == '-') {
-            value = sb.toString();
-            type = LexType.MINU;
-            token = new Token(value, type, lineNum);
-        } else if (ch == '*') {
-            value = sb.toString();
-            type = LexType.MULT;
-            token = new Token(value, type, lineNum);
-        } else if (ch == '/') {
-            ch = getChar();
-            if (ch == '/') {
-                sb.append((char) ch);
+            if (ch == '%' || ch == '\\') {
+                int expected = ch == '%' ? 'd' : 'n';
                 ch = getChar();
-                while (ch != '\n' && ch != EOF) {
-                    sb.append((char) ch);
-                    ch = getChar();
-                }
-                ungetChar(ch);
-                return next();  // note is not a token
-            } else if (ch == '*') {
-                sb.append((char) ch);
-                ch = getChar();
-                while (ch != EOF) {
-                    while (ch != EOF && ch != '*') {
-                        sb.append((char) ch);
-                        if (ch == '\n') {
-                            lineNum++;
-                        }
-                        ch = getChar();
-                    }
-                    while (ch == '*') {
+                if (ch == expected) {
+                    if (sb != null) {
                         sb.append((char) ch);
-                        ch = getChar();
                     }
-                    if (ch == '/') {
-                        sb.append((char) ch);
-                        return next(); // note is not a token
+                } else {
+                    errorRecorder.addError(CompileErrorType.ILLEGAL_SYMBOL, lineNum);
+                    if (sb == null) {
+                        sb = new StringBuilder().append(source, start, pos - 1 - start);
                     }
                 }
-                ungetChar(ch);
-            } else {
-                ungetChar(ch);
-                value = sb.toString();
-                type = LexType.DIV;
-                token = new Token(value, type, lineNum);
+                if (ch == '\"') {
+                    break;
+                }
+            } else if (!isNormalChar(ch)) {
+                errorRecorder.addError(CompileErrorType.ILLEGAL_SYMBOL, lineNum);
             }
-        } else if (ch == '%') {
-            value = sb.toString();
-            type = LexType.MOD;
-            token = new Token(value, type, lineNum);
-        } else if (ch == '<') {
             ch = getChar();
-            if (ch == '=') {
-                sb.append((char) ch);
-                value = sb.toString();
-                type = LexType.LEQ;
-                token = new Token(value, type, lineNum);
-            } else {
-                ungetChar(ch);
-                value = sb.toString();
-                type = LexType.LSS;
-                token = new Token(value, type, lineNum);
+        }
+        if (ch != '\"') {
+            throw new LexerException();
+        }
+        if (sb != null) {
+            return new Token(sb.append('\"').toString(), LexType.STRCON, lineNum);
+        }
+        return createToken(start, LexType.STRCON);
+    }
+
+    private boolean skipBlockComment() {
+        int ch = getChar();
+        while (ch != EOF) {
+            while (ch != EOF && ch != '*') {
+                if (ch == '\n') {
+                    lineNum++;
+                }
+                ch = getChar();
             }
-        } else if (ch == '>') {
-            ch = getChar();
-            if (ch == '=') {
-                sb.append((char) ch);
-                value = sb.toString();
-                type = LexType.GEQ;
-                token = new Token(value, type, lineNum);
-            } else {
-                ungetChar(ch);
-                value = sb.toString();
-                type = LexType.GRE;
-                token = new Token(value, type, lineNum);
+            while (ch == '*') {
+                ch = getChar();
             }
-        } else if (ch == '=') {
-            ch = getChar();
-            if (ch == '=') {
-                sb.append((char) ch);
-                value = sb.toString();
-                type = LexType.EQL;
-                token = new Token(value, type, lineNum);
-            } else {
-                ungetChar(ch);
-                value = sb.toString();
-                type = LexType.ASSIGN;
-                token = new Token(value, type, lineNum);
+            if (ch == '/') {
+                return true;
             }
-        } else if (ch == ';') {
-            value = sb.toString();
-            type = LexType.SEMICN;
-            token = new Token(value, type, lineNum);
-        } else if (ch == ',') {
-            value = sb.toString();
-            type = LexType.COMMA;
-            token = new Token(value, type, lineNum);
-        } else if (ch == '(') {
-            value = sb.toString();
-            type = LexType.LPARENT;
-            token = new Token(value, type, lineNum);
-        } else if (ch == ')') {
-            value = sb.toString();
-            type = LexType.RPARENT;
-            token = new Token(value, type, lineNum);
-        } else if (ch == '[') {
-            value = sb.toString();
-            type = LexType.LBRACK;
-            token = new Token(value, type, lineNum);
-        } else if (ch == ']') {
-            value = sb.toString();
-            type = LexType.RBRACK;
-            token = new Token(value, type, lineNum);
-        } else if (ch == '{') {
-            value = sb.toString();
-            type = LexType.LBRACE;
-            token = new Token(value, type, lineNum);
-        } else if (ch == '}') {
-            value = sb.toString();
-            type = LexType.RBRACE;
-            token = new Token(value, type, lineNum);
-        } else if (ch == '\n') {
-            lineNum++;
-            return next();
-        } else if (isWhitespaceWithoutNextLine(ch)) {
-            return next();
-        } else if (ch == EOF) {
-            ungetChar(EOF);  // EOF will always in the stream
-            return false;
-        } else {
-            throw new LexerException();
         }
-        return true;
+        return false;
     }
 
-    private int getChar() throws LexerException {
-        try {
-            if (hasPushbackChar) {
-                hasPushbackChar = false;
-                return pushbackChar;
-            } else {
-                int chByte = in.read();
-                return chByte;
+    // keywords are told apart by their first char and length, and then compared char by char
+    private static LexType keywordType(char[] buf, int start, int len) {
+        switch (buf[start]) {
+            case 'b':
+                return matches(buf, start, len, "break") ? LexType.BREAKTK : null;
+            case 'c':
+                if (len == 5) {
+                    return matches(buf, start, len, "const") ? LexType.CONSTTK : null;
+                }
+                return matches(buf, start, len, "continue") ? LexType.CONTINUETK : null;
+            case 'e':
+                return matches(buf, start, len, "else") ? LexType.ELSETK : null;
+            case 'f':
+                return matches(buf, start, len, "for") ? LexType.FORTK : null;
+            case 'g':
+                return matches(buf, start, len, "getint") ? LexType.GETINTTK : null;
+            case 'i':
+                if (len == 2) {
+                    return matches(buf, start, len, "if") ? LexType.IFTK : null;
+                }
+                return matches(buf, start, len, "int") ? LexType.INTTK : null;
+            case 'm':
+                return matches(buf, start, len, "main") ? LexType.MAINTK : null;
+            case 'p':
+                return matches(buf, start, len, "printf") ? LexType.PRINTFTK : null;
+            case 'r':
+                return matches(buf, start, len, "return") ? LexType.RETURNTK : null;
+            case 'v':
+                return matches(buf, start, len, "void") ? LexType.VOIDTK : null;
+            default:
+                return null;
+        }
+    }
+
+    private static boolean matches(char[] buf, int start, int len, String keyword) {
+        if (keyword.length() != len) {
+            return false;
+        }
+        for (int i = 1; i < len; i++) { // the first char is already matched
+            if (buf[start + i] != keyword.charAt(i)) {
+                return false;
             }
-        } catch (IOException e) {
-            throw new LexerException(e);
         }
+        return true;
     }
 
-    private void ungetChar(int chByte) {
-        hasPushbackChar = true;
-        pushbackChar = chByte;
+    private Token createToken(int start, LexType type) {
+        return new Token(source, start, pos - start, type, lineNum);
+    }
+
+    private int getChar() {
+        return pos < end ? source[pos++] : EOF;
+    }
+
+    private int peekChar() {
+        return pos < end ? source[pos] : EOF;
+    }
+
+    private boolean matchChar(int expected) {
+        if (peekChar() == expected) {
+            pos++;
+            return true;
+        }
+        return false;
     }
 
+    @Override
     public Token getToken() {
         assert token != null;
         return token;
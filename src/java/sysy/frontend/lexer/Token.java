@@ -1,20 +1,63 @@
 package sysy.frontend.lexer;
 
 public class Token {
-    private final String value;
+    private final char[] source;
+    private final int offset;
+    private final int length;
+    private String value;
+    private final Ident ident;
     private final LexType type;
     private final int lineNum;
 
     public Token(String value, LexType type, int lineNum) {
+        this.source = null;
+        this.offset = -1;
+        this.length = value.length();
         this.value = value;
+        this.ident = null;
         this.type = type;
         this.lineNum = lineNum;
     }
 
+    public Token(char[] source, int offset, int length, LexType type, int lineNum) {
+        this.source = source;
+        this.offset = offset;
+        this.length = length;
+        this.ident = null;
+        this.type = type;
+        this.lineNum = lineNum;
+    }
+
+    public Token(char[] source, int offset, Ident ident, int lineNum) {
+        this.source = source;
+        this.offset = offset;
+        this.length = ident.getName().length();
+        this.value = ident.getName();
+        this.ident = ident;
+        this.type = LexType.IDENFR;
+        this.lineNum = lineNum;
+    }
+
     public String getValue() {
+        // most tokens are punctuation whose value is never asked for, so it is only built on demand
+        if (value == null) {
+            value = new String(source, offset, length);
+        }
         return value;
     }
 
+    public Ident getIdent() {
+        return ident;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
     public LexType getType() {
         return type;
     }
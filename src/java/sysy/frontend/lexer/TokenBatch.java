@@ -0,0 +1,31 @@
+package sysy.frontend.lexer;
+
+import sysy.error.CompileError;
+import sysy.exception.LexerException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class TokenBatch {
+    final Token[] tokens;
+    int size = 0;
+    // errors met while lexing tokens[errorPositions[i]], or while lexing past the last token for the position size
+    List<CompileError> errors = null;
+    List<Integer> errorPositions = null;
+    boolean last = false;
+    LexerException exception = null;
+    Error error = null; // what the producer thread died of, if not a failure of the lexer
+
+    TokenBatch(int capacity) {
+        this.tokens = new Token[capacity];
+    }
+
+    void addError(CompileError error) {
+        if (errors == null) {
+            errors = new ArrayList<>();
+            errorPositions = new ArrayList<>();
+        }
+        errors.add(error);
+        errorPositions.add(size);
+    }
+}
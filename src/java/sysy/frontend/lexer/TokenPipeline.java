@@ -0,0 +1,125 @@
+package sysy.frontend.lexer;
+
+import sysy.error.CompileError;
+import sysy.error.ErrorRecorder;
+import sysy.exception.LexerException;
+
+import java.io.Reader;
+
+// runs a Lexer on its own thread, so the source is lexed while the tokens before are parsed
+public class TokenPipeline implements TokenSource, AutoCloseable {
+    private static final int BATCH_SIZE = 256;
+    private static final int RING_CAPACITY = 64;
+
+    private final ErrorRecorder errorRecorder;
+    private final TokenRingBuffer ring = new TokenRingBuffer(RING_CAPACITY);
+    private TokenBatch producerBatch; // only touched by the producer thread
+
+    private TokenBatch batch = null;
+    private int pos = -1;
+    private int nextError = 0;
+    private boolean finished = false;
+    private Token token = null;
+
+    public TokenPipeline(Reader in, ErrorRecorder errorRecorder) {
+        this.errorRecorder = errorRecorder;
+
+        var producer = new Thread(() -> produce(in), "lexer");
+        producer.setDaemon(true);
+        producer.start();
+    }
+
+    private void produce(Reader in) {
+        // errors are handed over with the token being lexed, so the consumer records them in the same order
+        // as a lexer called by the parser itself would
+        var recorder = new ErrorRecorder() {
+            @Override
+            public void addError(CompileError error) {
+                producerBatch.addError(error);
+            }
+        };
+
+        // made up front, so the consumer can be given a last batch even when the producer is out of memory
+        var failureBatch = new TokenBatch(0);
+        producerBatch = new TokenBatch(BATCH_SIZE);
+        boolean stopped = false;
+        try {
+            var lexer = new Lexer(in, recorder);
+            while (lexer.next()) {
+                producerBatch.tokens[producerBatch.size++] = lexer.getToken();
+                if (producerBatch.size == BATCH_SIZE) {
+                    var full = producerBatch;
+                    producerBatch = null; // belongs to the consumer once put
+                    if (!ring.put(full)) {
+                        stopped = true;
+                        return;
+                    }
+                    producerBatch = new TokenBatch(BATCH_SIZE);
+                }
+            }
+        } catch (LexerException e) {
+            lastBatch(failureBatch).exception = e;
+        } catch (RuntimeException e) {
+            lastBatch(failureBatch).exception = new LexerException(e);
+        } catch (Error e) {
+            lastBatch(failureBatch).error = e; // rethrown by the consumer, as if it had lexed itself
+        } finally {
+            // whatever stops the lexer, the consumer is waiting for a last batch
+            if (!stopped) {
+                var batch = lastBatch(failureBatch);
+                batch.last = true;
+                ring.put(batch);
+            }
+        }
+    }
+
+    private TokenBatch lastBatch(TokenBatch failureBatch) {
+        return producerBatch != null ? producerBatch : failureBatch;
+    }
+
+    @Override
+    public boolean next() throws LexerException {
+        while (!finished) {
+            if (batch != null && pos + 1 < batch.size) {
+                pos++;
+                flushErrors(pos);
+                token = batch.tokens[pos];
+                return true;
+            }
+
+            if (batch != null && batch.last) {
+                flushErrors(batch.size);
+                finished = true;
+                if (batch.error != null) {
+                    throw batch.error;
+                }
+                if (batch.exception != null) {
+                    throw batch.exception;
+                }
+            } else {
+                batch = ring.take();
+                pos = -1;
+                nextError = 0;
+            }
+        }
+        return false;
+    }
+
+    private void flushErrors(int position) {
+        while (batch.errors != null && nextError < batch.errors.size() && batch.errorPositions.get(nextError) <= position) {
+            errorRecorder.addError(batch.errors.get(nextError++));
+        }
+    }
+
+    @Override
+    public Token getToken() {
+        assert token != null;
+        return token;
+    }
+
+    // stops the producer if the tokens are not consumed to the end, for example when parsing fails
+    @Override
+    public void close() {
+        ring.close();
+    }
+}
@@ -0,0 +1,61 @@
+package sysy.frontend.lexer;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// a bounded queue for exactly one producer thread and one consumer thread; neither side ever takes a lock
+class TokenRingBuffer {
+    private final TokenBatch[] slots;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong(); // next slot to take, only written by the consumer
+    private final AtomicLong tail = new AtomicLong(); // next slot to fill, only written by the producer
+    private volatile boolean closed = false;
+
+    TokenRingBuffer(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of 2");
+        }
+        this.slots = new TokenBatch[capacity];
+        this.mask = capacity - 1;
+    }
+
+    // returns false if the consumer has gone away
+    boolean put(TokenBatch batch) {
+        long t = tail.get();
+        for (int spins = 0; t - head.get() == slots.length; spins++) {
+            if (closed) {
+                return false;
+            }
+            backOff(spins);
+        }
+        slots[(int) (t & mask)] = batch;
+        tail.set(t + 1); // publishes the slot to the consumer
+        return true;
+    }
+
+    TokenBatch take() {
+        long h = head.get();
+        for (int spins = 0; tail.get() == h; spins++) {
+            backOff(spins);
+        }
+        int index = (int) (h & mask);
+        var batch = slots[index];
+        slots[index] = null;
+        head.set(h + 1); // hands the slot back to the producer
+        return batch;
+    }
+
+    void close() {
+        closed = true;
+    }
+
+    private static void backOff(int spins) {
+        if (spins < 64) {
+            Thread.onSpinWait();
+        } else if (spins < 128) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(10_000);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package sysy.frontend.lexer;
+
+import sysy.exception.LexerException;
+
+public interface TokenSource {
+    boolean next() throws LexerException;
+
+    Token getToken();
+}
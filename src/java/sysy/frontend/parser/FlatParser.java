@@ -0,0 +1,627 @@
+package sysy.frontend.parser;
+
+import sysy.error.CompileErrorType;
+import sysy.error.ErrorRecorder;
+import sysy.exception.LexerException;
+import sysy.exception.ParserException;
+import sysy.frontend.lexer.LexType;
+import sysy.frontend.lexer.Token;
+import sysy.frontend.lexer.TokenSource;
+import sysy.frontend.parser.FlatSyntaxTree.Kind;
+
+import java.util.Arrays;
+
+// accepts the same language and reports the same errors as Parser, but builds a FlatSyntaxTree.
+// the methods follow those of Parser, except that they leave out the nodes FlatSyntaxTree implies, and that
+// expressions and statements keep what is still open in arrays instead of recursing, so any nesting depth can be parsed
+public class FlatParser {
+    private static final int PREC_COND = 1; // the weakest operator a Cond may contain
+    private static final int PREC_EXP = 5; // the weakest operator an Exp may contain
+
+    // what an expression inside brackets belongs to
+    private static final int BRACKET_NONE = 0;
+    private static final int BRACKET_PAREN = 1;
+    private static final int BRACKET_INDEX = 2;
+    private static final int BRACKET_ARG = 3;
+
+    private static final Kind[] KINDS = Kind.values();
+
+    private static final int IF_THEN = 0;
+    private static final int IF_ELSE = 1;
+
+    private final PreReadBuffer buf;
+    private final ErrorRecorder errorRecorder;
+    private final FlatSyntaxTree tree = new FlatSyntaxTree();
+    private Token currToken;
+
+    // the expression being parsed: left operands waiting for their right operand, operators not yet applied
+    // (the Kind ordinal of a binary one, or the complement of the node of a unary one) and the brackets still open
+    private int[] operands = new int[16];
+    private int operandCount = 0;
+    private int[] operators = new int[16];
+    private int operatorCount = 0;
+    private int[] bracketKinds = new int[16];
+    private int[] bracketNodes = new int[16];
+    private int[] bracketPrecs = new int[16];
+    private int[] bracketOperatorBases = new int[16];
+    private int bracketCount = 0;
+
+    // blocks, ifs and loops whose sub statements are being parsed
+    private int[] openStmts = new int[16];
+    private int[] openStmtStates = new int[16];
+    private int openStmtCount = 0;
+
+    public FlatParser(TokenSource lexer, ErrorRecorder errorRecorder) throws LexerException {
+        this.buf = new PreReadBuffer(lexer, 3);
+        this.errorRecorder = errorRecorder;
+    }
+
+    private static boolean isMatch(Token token, LexType type) {
+        return token.getType() == type;
+    }
+
+    private static boolean isNotMatch(Token token, LexType type) {
+        return token.getType() != type;
+    }
+
+    private static void matchOrThrow(Token token, LexType type) throws ParserException {
+        if (isNotMatch(token, type)) {
+            throw new ParserException(String.format("expect %s but got %s at line %d",
+                    type == null ? "EOF" : type, token.getType() == null ? "EOF" : token.getType(), token.getLineNum()));
+        }
+    }
+
+    private void next() throws LexerException {
+        currToken = buf.readNextToken();
+    }
+
+    private void parseToken(LexType type) throws LexerException, ParserException {
+        matchOrThrow(currToken, type);
+        next();
+    }
+
+    private int parseTokenAndKeep(LexType type) throws LexerException, ParserException {
+        matchOrThrow(currToken, type);
+        int token = tree.addToken(currToken);
+        next();
+        return token;
+    }
+
+    private void skipOrRecord(LexType type, CompileErrorType error) throws LexerException {
+        if (isMatch(currToken, type)) {
+            next();
+        } else {
+            errorRecorder.addError(error, buf.readPreToken().getLineNum());
+        }
+    }
+
+    private boolean isExpFirst() {
+        return isMatch(currToken, LexType.LPARENT)
+                || isMatch(currToken, LexType.IDENFR)
+                || isMatch(currToken, LexType.INTCON)
+                || isMatch(currToken, LexType.PLUS)
+                || isMatch(currToken, LexType.MINU);
+    }
+
+    public FlatSyntaxTree parse() throws LexerException, ParserException {
+        next();
+        int root = parseCompUnit();
+        matchOrThrow(currToken, null);  // if not reach end
+
+        tree.finish(root);
+        return tree;
+    }
+
+    private int parseCompUnit() throws LexerException, ParserException {
+        int node = tree.addNode(Kind.COMP_UNIT);
+
+        while (isMatch(currToken, LexType.CONSTTK)
+                || (isMatch(currToken, LexType.INTTK)
+                && isMatch(buf.readTokenByOffset(1), LexType.IDENFR)
+                && isNotMatch(buf.readTokenByOffset(2), LexType.LPARENT))
+        ) {
+            tree.addChild(node, parseDecl());
+        }
+
+        while (isMatch(currToken, LexType.VOIDTK)
+                || (isMatch(currToken, LexType.INTTK)
+                && isMatch(buf.readTokenByOffset(1), LexType.IDENFR))
+        ) {
+            tree.addChild(node, parseFuncDef());
+        }
+
+        tree.addChild(node, parseMainFuncDef());
+        return node;
+    }
+
+    private int parseFuncDef() throws LexerException, ParserException {
+        int funcType = parseFuncType();
+        int node = tree.addNode(Kind.FUNC_DEF, parseTokenAndKeep(LexType.IDENFR), funcType);
+
+        parseToken(LexType.LPARENT);
+        if (isMatch(currToken, LexType.INTTK)) {
+            tree.addChild(node, parseFuncFParams());
+        }
+        skipOrRecord(LexType.RPARENT, CompileErrorType.RPARENT_IS_MISSING);
+
+        tree.addChild(node, parseBlock());
+        return node;
+    }
+
+    private int parseFuncFParams() throws LexerException, ParserException {
+        int node = tree.addNode(Kind.FUNC_F_PARAMS, FlatSyntaxTree.NONE, parseFuncFParam());
+        while (isMatch(currToken, LexType.COMMA)) {
+            next();
+            tree.addChild(node, parseFuncFParam());
+        }
+        return node;
+    }
+
+    private int parseFuncFParam() throws LexerException, ParserException {
+        parseBType();
+        int ident = parseTokenAndKeep(LexType.IDENFR);
+        if (isNotMatch(currToken, LexType.LBRACK)) {
+            return tree.addNode(Kind.FUNC_F_PARAM, ident);
+        }
+
+        int node = tree.addNode(Kind.FUNC_F_PARAM_ARRAY, ident);
+        next();
+        skipOrRecord(LexType.RBRACK, CompileErrorType.RBRACK_IS_MISSING);
+
+        while (isMatch(currToken, LexType.LBRACK)) {
+            next();
+            tree.addChild(node, parseConstExp());
+            skipOrRecord(LexType.RBRACK, CompileErrorType.RBRACK_IS_MISSING);
+        }
+        return node;
+    }
+
+    private int parseConstExp() throws LexerException, ParserException {
+        return parseExpression(PREC_EXP);
+    }
+
+    private int parseExp() throws LexerException, ParserException {
+        return parseExpression(PREC_EXP);
+    }
+
+    private static int precedenceOf(LexType type) {
+        if (type == null) {
+            return 0;
+        }
+        return switch (type) {
+            case OR -> 1;
+            case AND -> 2;
+            case EQL, NEQ -> 3;
+            case LSS, GRE, LEQ, GEQ -> 4;
+            case PLUS, MINU -> 5;
+            case MULT, DIV, MOD -> 6;
+            default -> 0;
+        };
+    }
+
+    // precedence climbing over Exp and Cond. every operator is left associative, so an operator waiting on the stack
+    // is applied as soon as one that binds no tighter follows it. a bracket starts a new Exp that ends at the first
+    // token which cannot continue it, as it would in Parser
+    private int parseExpression(int minPrec) throws LexerException, ParserException {
+        operandCount = 0;
+        operatorCount = 0;
+        bracketCount = 0;
+        openBracket(BRACKET_NONE, FlatSyntaxTree.NONE, minPrec);
+
+        while (true) {
+            int operand = parseOperand();
+
+            while (true) {
+                int bracket = bracketCount - 1;
+                while (operatorCount > bracketOperatorBases[bracket] && operators[operatorCount - 1] < 0) {
+                    int unary = ~operators[--operatorCount];
+                    tree.addChild(unary, operand);
+                    operand = unary;
+                }
+
+                int prec = precedenceOf(currToken.getType());
+                if (prec >= bracketPrecs[bracket]) {
+                    operand = applyOperators(operand, bracketOperatorBases[bracket], prec);
+                    operands = push(operands, operandCount++, operand);
+                    operators = push(operators, operatorCount++, Kind.binaryOf(currToken.getType()).ordinal());
+                    next();
+                    break;
+                }
+
+                operand = applyOperators(operand, bracketOperatorBases[bracket], 0);
+                int node = bracketNodes[bracket];
+                switch (bracketKinds[bracket]) {
+                    case BRACKET_NONE -> {
+                        return operand;
+                    }
+                    case BRACKET_PAREN -> {
+                        bracketCount--;
+                        skipOrRecord(LexType.RPARENT, CompileErrorType.RPARENT_IS_MISSING);
+                        operand = tree.addNode(Kind.PAREN_EXP, FlatSyntaxTree.NONE, operand);
+                    }
+                    case BRACKET_INDEX -> {
+                        tree.addChild(node, operand);
+                        skipOrRecord(LexType.RBRACK, CompileErrorType.RBRACK_IS_MISSING);
+                        if (isMatch(currToken, LexType.LBRACK)) {
+                            next();
+                            break;
+                        }
+                        bracketCount--;
+                        operand = node;
+                    }
+                    default -> { // the arguments become children of the call
+                        tree.addChild(node, operand);
+                        if (isMatch(currToken, LexType.COMMA)) {
+                            next();
+                            break;
+                        }
+                        bracketCount--;
+                        skipOrRecord(LexType.RPARENT, CompileErrorType.RPARENT_IS_MISSING);
+                        operand = node;
+                    }
+                }
+                if (bracketCount - 1 == bracket) { // another index or argument follows
+                    break;
+                }
+            }
+        }
+    }
+
+    // a UnaryExp, except that its unary operators and the brackets it is in are left on the stacks
+    private int parseOperand() throws LexerException, ParserException {
+        while (true) {
+            Token preRead = buf.readTokenByOffset(1);
+            if (isMatch(currToken, LexType.LPARENT)) {
+                next();
+                openBracket(BRACKET_PAREN, FlatSyntaxTree.NONE, PREC_EXP);
+            } else if (isMatch(currToken, LexType.IDENFR) && isNotMatch(preRead, LexType.LPARENT)) {
+                int node = tree.addNode(Kind.LVAL, parseTokenAndKeep(LexType.IDENFR));
+                if (isNotMatch(currToken, LexType.LBRACK)) {
+                    return node;
+                }
+                next();
+                openBracket(BRACKET_INDEX, node, PREC_EXP);
+            } else if (isMatch(currToken, LexType.INTCON)) {
+                return tree.addNode(Kind.NUMBER, parseTokenAndKeep(LexType.INTCON));
+            } else if (isMatch(currToken, LexType.IDENFR)) {
+                int node = tree.addNode(Kind.FUNC_CALL, parseTokenAndKeep(LexType.IDENFR));
+                parseToken(LexType.LPARENT);
+                if (!isExpFirst()) {
+                    skipOrRecord(LexType.RPARENT, CompileErrorType.RPARENT_IS_MISSING);
+                    return node;
+                }
+                openBracket(BRACKET_ARG, node, PREC_EXP);
+            } else if (isMatch(currToken, LexType.PLUS)
+                    || isMatch(currToken, LexType.MINU)
+                    || isMatch(currToken, LexType.NOT)
+            ) {
+                operators = push(operators, operatorCount++, ~tree.addNode(Kind.unaryOf(currToken.getType())));
+                next();
+            } else {
+                throw new ParserException();
+            }
+        }
+    }
+
+    private void openBracket(int kind, int node, int minPrec) {
+        bracketKinds = push(bracketKinds, bracketCount, kind);
+        bracketNodes = push(bracketNodes, bracketCount, node);
+        bracketPrecs = push(bracketPrecs, bracketCount, minPrec);
+        bracketOperatorBases = push(bracketOperatorBases, bracketCount, operatorCount);
+        bracketCount++;
+    }
+
+    private static int[] push(int[] stack, int size, int value) {
+        if (size == stack.length) {
+            stack = Arrays.copyOf(stack, size * 2);
+        }
+        stack[size] = value;
+        return stack;
+    }
+
+    private int applyOperators(int rhs, int base, int minPrec) {
+        while (operatorCount > base && precedenceOf(KINDS[operators[operatorCount - 1]].getOp()) >= minPrec) {
+            int node = tree.addNode(KINDS[operators[--operatorCount]], FlatSyntaxTree.NONE, operands[--operandCount]);
+            tree.addChild(node, rhs);
+            rhs = node;
+        }
+        return rhs;
+    }
+
+    private int parseLVal() throws LexerException, ParserException {
+        int node = tree.addNode(Kind.LVAL, parseTokenAndKeep(LexType.IDENFR));
+        while (isMatch(currToken, LexType.LBRACK)) {
+            next();
+            tree.addChild(node, parseExp());
+            skipOrRecord(LexType.RBRACK, CompileErrorType.RBRACK_IS_MISSING);
+        }
+        return node;
+    }
+
+    private void parseBType() throws LexerException, ParserException {
+        parseToken(LexType.INTTK);
+    }
+
+    private int parseBlock() throws LexerException, ParserException {
+        matchOrThrow(currToken, LexType.LBRACE);
+        return parseStmt();
+    }
+
+    // a statement with the blocks, ifs and loops nested in it. a finished statement is added to the innermost open
+    // one, which may be finished by that in turn
+    private int parseStmt() throws LexerException, ParserException {
+        openStmtCount = 0;
+        while (true) {
+            int stmt = parseStmtOrOpen();
+            while (stmt != FlatSyntaxTree.NONE) {
+                if (openStmtCount == 0) {
+                    return stmt;
+                }
+                stmt = addToOpenStmt(stmt);
+            }
+        }
+    }
+
+    private void openStmt(int node, int state) {
+        openStmts = push(openStmts, openStmtCount, node);
+        openStmtStates = push(openStmtStates, openStmtCount, state);
+        openStmtCount++;
+    }
+
+    // returns the open statement if it is finished, or NONE if another sub statement follows
+    private int addToOpenStmt(int stmt) throws LexerException, ParserException {
+        int open = openStmts[openStmtCount - 1];
+        tree.addChild(open, stmt);
+        if (tree.getKind(open) == Kind.BLOCK) {
+            return parseBlockItems(open);
+        }
+        if (tree.getKind(open) == Kind.STMT_IF_ELSE
+                && openStmtStates[openStmtCount - 1] == IF_THEN
+                && isMatch(currToken, LexType.ELSETK)
+        ) {
+            next();
+            openStmtStates[openStmtCount - 1] = IF_ELSE;
+            return FlatSyntaxTree.NONE;
+        }
+        openStmtCount--;
+        return open;
+    }
+
+    // parses declarations up to the next statement of the block, and returns NONE if there is one
+    private int parseBlockItems(int block) throws LexerException, ParserException {
+        while (isNotMatch(currToken, LexType.RBRACE)) {
+            if (isMatch(currToken, LexType.INTTK) || isMatch(currToken, LexType.CONSTTK)) {
+                tree.addChild(block, parseDecl());
+            } else {
+                return FlatSyntaxTree.NONE;
+            }
+        }
+        // the closing brace is kept for the line number of a missing return
+        tree.setToken(block, parseTokenAndKeep(LexType.RBRACE));
+        openStmtCount--;
+        return block;
+    }
+
+    // parses a statement without sub statements, or opens a block, if or loop. returns NONE for the latter,
+    // unless it is an empty block
+    private int parseStmtOrOpen() throws LexerException, ParserException {
+        if (isMatch(currToken, LexType.IDENFR)
+                && (buf.findUntil(LexType.ASSIGN, LexType.SEMICN))
+        ) {
+            int lVal = parseLVal();
+            parseToken(LexType.ASSIGN);
+            if (isMatch(currToken, LexType.GETINTTK)) {
+                next();
+                parseToken(LexType.LPARENT);
+                skipOrRecord(LexType.RPARENT, CompileErrorType.RPARENT_IS_MISSING);
+                skipOrRecord(LexType.SEMICN, CompileErrorType.SEMICN_IS_MISSING);
+                return tree.addNode(Kind.STMT_GET_INT, FlatSyntaxTree.NONE, lVal);
+            } else if (isExpFirst()) {
+                int node = tree.addNode(Kind.STMT_ASSIGN, FlatSyntaxTree.NONE, lVal);
+                tree.addChild(node, parseExp());
+                skipOrRecord(LexType.SEMICN, CompileErrorType.SEMICN_IS_MISSING);
+                return node;
+            } else {
+                throw new ParserException();
+            }
+        } else if (isExpFirst()) {
+            int node = tree.addNode(Kind.STMT_EXP, FlatSyntaxTree.NONE, parseExp());
+            skipOrRecord(LexType.SEMICN, CompileErrorType.SEMICN_IS_MISSING);
+            return node;
+        } else if (isMatch(currToken, LexType.SEMICN)) {
+            next();
+            return tree.addNode(Kind.STMT_EXP);
+        } else if (isMatch(currToken, LexType.LBRACE)) {
+            next();
+            int node = tree.addNode(Kind.BLOCK);
+            openStmt(node, 0);
+            return parseBlockItems(node);
+        } else if (isMatch(currToken, LexType.IFTK)) {
+            next();
+            parseToken(LexType.LPARENT);
+
+            int node = tree.addNode(Kind.STMT_IF_ELSE, FlatSyntaxTree.NONE, parseCond());
+            skipOrRecord(LexType.RPARENT, CompileErrorType.RPARENT_IS_MISSING);
+
+            openStmt(node, IF_THEN);
+            return FlatSyntaxTree.NONE;
+        } else if (isMatch(currToken, LexType.FORTK)) {
+            next();
+            parseToken(LexType.LPARENT);
+
+            // every clause gets a child, so that the clauses can be told apart by position
+            int node = tree.addNode(Kind.STMT_LOOP);
+            tree.addChild(node, isMatch(currToken, LexType.IDENFR) ? parseForStmt() : tree.addNode(Kind.EMPTY));
+            skipOrRecord(LexType.SEMICN, CompileErrorType.SEMICN_IS_MISSING);
+
+            tree.addChild(node, isExpFirst() || isMatch(currToken, LexType.NOT) ? parseCond() : tree.addNode(Kind.EMPTY));
+            skipOrRecord(LexType.SEMICN, CompileErrorType.SEMICN_IS_MISSING);
+
+            tree.addChild(node, isMatch(currToken, LexType.IDENFR) ? parseForStmt() : tree.addNode(Kind.EMPTY));
+            skipOrRecord(LexType.RPARENT, CompileErrorType.RPARENT_IS_MISSING);
+
+            openStmt(node, 0);
+            return FlatSyntaxTree.NONE;
+        } else if (isMatch(currToken, LexType.BREAKTK) || isMatch(currToken, LexType.CONTINUETK)) {
+            int node = tree.addNode(Kind.STMT_CONTINUE_BREAK, tree.addToken(currToken));
+            next();
+            skipOrRecord(LexType.SEMICN, CompileErrorType.SEMICN_IS_MISSING);
+            return node;
+        } else if (isMatch(currToken, LexType.RETURNTK)) {
+            int node = tree.addNode(Kind.STMT_RETURN, tree.addToken(currToken));
+            next();
+            if (isExpFirst()) {
+                tree.addChild(node, parseExp());
+            }
+            skipOrRecord(LexType.SEMICN, CompileErrorType.SEMICN_IS_MISSING);
+            return node;
+        } else if (isMatch(currToken, LexType.PRINTFTK)) {
+            // the format string is kept as the token right after the printf token
+            int node = tree.addNode(Kind.STMT_PRINTF, tree.addToken(currToken));
+            next();
+            parseToken(LexType.LPARENT);
+            parseTokenAndKeep(LexType.STRCON);
+            while (isMatch(currToken, LexType.COMMA)) {
+                next();
+                tree.addChild(node, parseExp());
+            }
+            skipOrRecord(LexType.RPARENT, CompileErrorType.RPARENT_IS_MISSING);
+            skipOrRecord(LexType.SEMICN, CompileErrorType.SEMICN_IS_MISSING);
+            return node;
+        } else {
+            throw new ParserException();
+        }
+    }
+
+    private int parseCond() throws LexerException, ParserException {
+        return parseExpression(PREC_COND);
+    }
+
+    private int parseForStmt() throws LexerException, ParserException {
+        int node = tree.addNode(Kind.FOR_STMT, FlatSyntaxTree.NONE, parseLVal());
+        parseToken(LexType.ASSIGN);
+        tree.addChild(node, parseExp());
+        return node;
+    }
+
+    private int parseFuncType() throws LexerException, ParserException {
+        if (isMatch(currToken, LexType.VOIDTK) || isMatch(currToken, LexType.INTTK)) {
+            int node = tree.addNode(Kind.FUNC_TYPE, tree.addToken(currToken));
+            next();
+            return node;
+        } else {
+            throw new ParserException();
+        }
+    }
+
+    private int parseDecl() throws LexerException, ParserException {
+        if (isMatch(currToken, LexType.CONSTTK)) {
+            return parseConstDecl();
+        } else if (isMatch(currToken, LexType.INTTK)) {
+            return parseVarDecl();
+        } else {
+            throw new ParserException();
+        }
+    }
+
+    private int parseConstDecl() throws LexerException, ParserException {
+        parseToken(LexType.CONSTTK);
+
+        parseBType();
+        int node = tree.addNode(Kind.CONST_DECL, FlatSyntaxTree.NONE, parseConstDef());
+        while (isMatch(currToken, LexType.COMMA)) {
+            next();
+            tree.addChild(node, parseConstDef());
+        }
+        skipOrRecord(LexType.SEMICN, CompileErrorType.SEMICN_IS_MISSING);
+        return node;
+    }
+
+    private int parseConstDef() throws LexerException, ParserException {
+        int node = tree.addNode(Kind.CONST_DEF, parseTokenAndKeep(LexType.IDENFR));
+        while (isMatch(currToken, LexType.LBRACK)) {
+            next();
+            tree.addChild(node, parseConstExp());
+            skipOrRecord(LexType.RBRACK, CompileErrorType.RBRACK_IS_MISSING);
+        }
+        parseToken(LexType.ASSIGN);
+
+        tree.addChild(node, parseConstInitVal());
+        return node;
+    }
+
+    private int parseConstInitVal() throws LexerException, ParserException {
+        if (isExpFirst()) {
+            return parseConstExp();
+        } else if (isMatch(currToken, LexType.LBRACE)) {
+            int node = tree.addNode(Kind.ARRAY_INIT);
+            next();
+            if (isNotMatch(currToken, LexType.RBRACE)) {
+                tree.addChild(node, parseConstInitVal());
+                while (isMatch(currToken, LexType.COMMA)) {
+                    next();
+                    tree.addChild(node, parseConstInitVal());
+                }
+            }
+            parseToken(LexType.RBRACE);
+            return node;
+        } else {
+            throw new ParserException();
+        }
+    }
+
+    private int parseVarDecl() throws LexerException, ParserException {
+        parseBType();
+        int node = tree.addNode(Kind.VAR_DECL, FlatSyntaxTree.NONE, parseVarDef());
+        while (isMatch(currToken, LexType.COMMA)) {
+            next();
+            tree.addChild(node, parseVarDef());
+        }
+        skipOrRecord(LexType.SEMICN, CompileErrorType.SEMICN_IS_MISSING);
+        return node;
+    }
+
+    private int parseVarDef() throws LexerException, ParserException {
+        int node = tree.addNode(Kind.VAR_DEF, parseTokenAndKeep(LexType.IDENFR));
+        while (isMatch(currToken, LexType.LBRACK)) {
+            next();
+            tree.addChild(node, parseConstExp());
+            skipOrRecord(LexType.RBRACK, CompileErrorType.RBRACK_IS_MISSING);
+        }
+        if (isMatch(currToken, LexType.ASSIGN)) {
+            next();
+            tree.setKind(node, Kind.VAR_DEF_WITH_INIT);
+            tree.addChild(node, parseInitVal());
+        }
+        return node;
+    }
+
+    private int parseInitVal() throws LexerException, ParserException {
+        if (isExpFirst()) {
+            return parseExp();
+        } else if (isMatch(currToken, LexType.LBRACE)) {
+            int node = tree.addNode(Kind.ARRAY_INIT);
+            next();
+            if (isNotMatch(currToken, LexType.RBRACK)) { // same check as Parser, so that {} is rejected alike
+                tree.addChild(node, parseInitVal());
+                while (isMatch(currToken, LexType.COMMA)) {
+                    next();
+                    tree.addChild(node, parseInitVal());
+                }
+            }
+            parseToken(LexType.RBRACE);
+            return node;
+        } else {
+            throw new ParserException();
+        }
+    }
+
+    private int parseMainFuncDef() throws LexerException, ParserException {
+        parseToken(LexType.INTTK);
+        parseToken(LexType.MAINTK);
+        parseToken(LexType.LPARENT);
+        skipOrRecord(LexType.RPARENT, CompileErrorType.RPARENT_IS_MISSING);
+
+        return tree.addNode(Kind.MAIN_FUNC_DEF, FlatSyntaxTree.NONE, parseBlock());
+    }
+}
@@ -0,0 +1,262 @@
+package sysy.frontend.parser;
+
+import sysy.frontend.lexer.Ident;
+import sysy.frontend.lexer.LexType;
+import sysy.frontend.lexer.Token;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// the syntax tree kept in parallel arrays instead of one object per node; a node is an index into them.
+// only nodes that carry information are stored: single-child chains such as Exp -> AddExp -> MulExp -> UnaryExp,
+// BType, BlockItem and Decl wrappers are implied by the position of a node and are rebuilt by FlatTreeAdapter
+public class FlatSyntaxTree {
+    public enum Kind {
+        COMP_UNIT,
+        CONST_DECL,
+        VAR_DECL,
+        CONST_DEF,
+        VAR_DEF,
+        VAR_DEF_WITH_INIT, // the initial value is the last child
+        ARRAY_INIT,
+        FUNC_DEF,
+        MAIN_FUNC_DEF,
+        FUNC_TYPE,
+        FUNC_F_PARAMS,
+        FUNC_F_PARAM,
+        FUNC_F_PARAM_ARRAY, // a parameter declared with [], even if no dimension follows
+        BLOCK,
+        STMT_ASSIGN,
+        STMT_EXP,
+        STMT_IF_ELSE,
+        STMT_LOOP,
+        STMT_CONTINUE_BREAK,
+        STMT_RETURN,
+        STMT_GET_INT,
+        STMT_PRINTF,
+        FOR_STMT,
+        LVAL,
+        NUMBER,
+        PAREN_EXP,
+        FUNC_CALL,
+        POS(LexType.PLUS, false),
+        NEG(LexType.MINU, false),
+        NOT(LexType.NOT, false),
+        ADD(LexType.PLUS, true),
+        SUB(LexType.MINU, true),
+        MUL(LexType.MULT, true),
+        DIV(LexType.DIV, true),
+        MOD(LexType.MOD, true),
+        LSS(LexType.LSS, true),
+        GRE(LexType.GRE, true),
+        LEQ(LexType.LEQ, true),
+        GEQ(LexType.GEQ, true),
+        EQL(LexType.EQL, true),
+        NEQ(LexType.NEQ, true),
+        AND(LexType.AND, true),
+        OR(LexType.OR, true),
+        EMPTY; // stands for a missing optional part, e.g. the clauses of a for loop
+
+        private final LexType op;
+        private final boolean binary;
+
+        Kind() {
+            this(null, false);
+        }
+
+        Kind(LexType op, boolean binary) {
+            this.op = op;
+            this.binary = binary;
+        }
+
+        public LexType getOp() {
+            return op;
+        }
+
+        public boolean isUnary() {
+            return op != null && !binary;
+        }
+
+        public boolean isBinary() {
+            return binary;
+        }
+
+        public static Kind unaryOf(LexType op) {
+            return switch (op) {
+                case PLUS -> POS;
+                case MINU -> NEG;
+                case NOT -> NOT;
+                default -> throw new RuntimeException(); // impossible
+            };
+        }
+
+        public static Kind binaryOf(LexType op) {
+            return switch (op) {
+                case PLUS -> ADD;
+                case MINU -> SUB;
+                case MULT -> MUL;
+                case DIV -> DIV;
+                case MOD -> MOD;
+                case LSS -> LSS;
+                case GRE -> GRE;
+                case LEQ -> LEQ;
+                case GEQ -> GEQ;
+                case EQL -> EQL;
+                case NEQ -> NEQ;
+                case AND -> AND;
+                case OR -> OR;
+                default -> throw new RuntimeException(); // impossible
+            };
+        }
+    }
+
+    public static final int NONE = -1;
+
+    private static final Kind[] KINDS = Kind.values();
+    private static final LexType[] LEX_TYPES = LexType.values();
+
+    private byte[] kinds = new byte[1024];
+    private int[] firstChildren = new int[1024];
+    private int[] nextSiblings = new int[1024];
+    private int[] tokens = new int[1024];
+    private int[] lastChildren = new int[1024]; // only needed while building
+    private int nodeCount = 0;
+
+    // only the tokens a node refers to are kept, i.e. identifiers, constants and keywords whose line is reported
+    private byte[] tokenTypes = new byte[256];
+    private int[] tokenLines = new int[256];
+    private Object[] tokenValues = new Object[256]; // Ident of identifiers, String of constants
+    private int tokenCount = 0;
+    private Map<String, Integer> numberTokens = new HashMap<>();
+
+    private int root = NONE;
+
+    int addNode(Kind kind, int token) {
+        if (nodeCount == kinds.length) {
+            int capacity = nodeCount * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            firstChildren = Arrays.copyOf(firstChildren, capacity);
+            nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+            tokens = Arrays.copyOf(tokens, capacity);
+            lastChildren = Arrays.copyOf(lastChildren, capacity);
+        }
+        int node = nodeCount++;
+        kinds[node] = (byte) kind.ordinal();
+        firstChildren[node] = NONE;
+        nextSiblings[node] = NONE;
+        tokens[node] = token;
+        lastChildren[node] = NONE;
+        return node;
+    }
+
+    int addNode(Kind kind) {
+        return addNode(kind, NONE);
+    }
+
+    int addNode(Kind kind, int token, int child) {
+        int node = addNode(kind, token);
+        addChild(node, child);
+        return node;
+    }
+
+    void addChild(int parent, int child) {
+        if (lastChildren[parent] == NONE) {
+            firstChildren[parent] = child;
+        } else {
+            nextSiblings[lastChildren[parent]] = child;
+        }
+        lastChildren[parent] = child;
+    }
+
+    void setKind(int node, Kind kind) {
+        kinds[node] = (byte) kind.ordinal();
+    }
+
+    void setToken(int node, int token) {
+        tokens[node] = token;
+    }
+
+    int addToken(Token token) {
+        if (token.getType() == LexType.INTCON) {
+            // the line of a number is never reported, so equal numbers share one entry
+            return numberTokens.computeIfAbsent(token.getValue(), value -> appendToken(token));
+        }
+        return appendToken(token);
+    }
+
+    private int appendToken(Token token) {
+        if (tokenCount == tokenTypes.length) {
+            int capacity = tokenCount * 2;
+            tokenTypes = Arrays.copyOf(tokenTypes, capacity);
+            tokenLines = Arrays.copyOf(tokenLines, capacity);
+            tokenValues = Arrays.copyOf(tokenValues, capacity);
+        }
+        var type = token.getType();
+        tokenTypes[tokenCount] = (byte) type.ordinal();
+        tokenLines[tokenCount] = token.getLineNum();
+        if (type == LexType.IDENFR) {
+            tokenValues[tokenCount] = token.getIdent();
+        } else if (type == LexType.INTCON || type == LexType.STRCON) {
+            tokenValues[tokenCount] = token.getValue();
+        }
+        return tokenCount++;
+    }
+
+    void finish(int root) {
+        this.root = root;
+        kinds = Arrays.copyOf(kinds, nodeCount);
+        firstChildren = Arrays.copyOf(firstChildren, nodeCount);
+        nextSiblings = Arrays.copyOf(nextSiblings, nodeCount);
+        tokens = Arrays.copyOf(tokens, nodeCount);
+        lastChildren = null;
+        tokenTypes = Arrays.copyOf(tokenTypes, tokenCount);
+        tokenLines = Arrays.copyOf(tokenLines, tokenCount);
+        tokenValues = Arrays.copyOf(tokenValues, tokenCount);
+        numberTokens = null;
+    }
+
+    public int getRoot() {
+        return root;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public Kind getKind(int node) {
+        return KINDS[kinds[node]];
+    }
+
+    public int getFirstChild(int node) {
+        return firstChildren[node];
+    }
+
+    public int getNextSibling(int node) {
+        return nextSiblings[node];
+    }
+
+    public int getToken(int node) {
+        return tokens[node];
+    }
+
+    public int getTokenCount() {
+        return tokenCount;
+    }
+
+    public LexType getTokenType(int token) {
+        return LEX_TYPES[tokenTypes[token]];
+    }
+
+    public int getTokenLineNum(int token) {
+        return tokenLines[token];
+    }
+
+    public Ident getTokenIdent(int token) {
+        return (Ident) tokenValues[token];
+    }
+
+    public String getTokenValue(int token) {
+        return (String) tokenValues[token];
+    }
+}
@@ -0,0 +1,479 @@
+package sysy.frontend.parser;
+
+import sysy.frontend.parser.FlatSyntaxTree.Kind;
+import sysy.frontend.parser.syntaxtree.*;
+
+import java.util.ArrayList;
+
+// builds syntax tree objects out of a FlatSyntaxTree on demand, so that code written against them can still be used.
+// wrappers left out of the flat tree are rebuilt from where a node appears, e.g. an operand of + becomes a MulExp.
+// a condensed adapter does not rebuild expressions and the items of blocks at all, but hands out nodes that refer to
+// the flat tree
+public class FlatTreeAdapter {
+    private final FlatSyntaxTree tree;
+    private final boolean condensed;
+
+    public FlatTreeAdapter(FlatSyntaxTree tree) {
+        this(tree, false);
+    }
+
+    public FlatTreeAdapter(FlatSyntaxTree tree, boolean condensed) {
+        this.tree = tree;
+        this.condensed = condensed;
+    }
+
+    public FlatSyntaxTree getTree() {
+        return tree;
+    }
+
+    public CompUnitNode toCompUnit() {
+        var rt = new CompUnitNode();
+        for (int child = tree.getFirstChild(tree.getRoot()); child != FlatSyntaxTree.NONE; child = tree.getNextSibling(child)) {
+            switch (tree.getKind(child)) {
+                case CONST_DECL, VAR_DECL -> rt.declares.add(toDecl(child));
+                case FUNC_DEF -> rt.funcs.add(toFuncDef(child));
+                default -> rt.mainFunc = toMainFuncDef(child);
+            }
+        }
+        return rt;
+    }
+
+    public DeclNode toDecl(int node) {
+        if (tree.getKind(node) == Kind.CONST_DECL) {
+            var rt = new DeclNodeForConstDecl();
+            rt.constDecl = toConstDecl(node);
+            return rt;
+        } else {
+            var rt = new DeclNodeForVarDecl();
+            rt.varDecl = toVarDecl(node);
+            return rt;
+        }
+    }
+
+    public FuncDefNode toFuncDef(int node) {
+        var rt = new FuncDefNode();
+        int token = tree.getToken(node);
+        rt.ident = tree.getTokenIdent(token);
+        rt.identLineNum = tree.getTokenLineNum(token);
+
+        int child = tree.getFirstChild(node);
+        rt.funcType = new FuncTypeNode();
+        rt.funcType.type = tree.getTokenType(tree.getToken(child));
+
+        child = tree.getNextSibling(child);
+        if (tree.getKind(child) == Kind.FUNC_F_PARAMS) {
+            rt.params = new FuncFParamsNode();
+            for (int param = tree.getFirstChild(child); param != FlatSyntaxTree.NONE; param = tree.getNextSibling(param)) {
+                rt.params.params.add(toFuncFParam(param));
+            }
+            child = tree.getNextSibling(child);
+        }
+        rt.block = toBlock(child);
+        return rt;
+    }
+
+    public MainFuncDefNode toMainFuncDef(int node) {
+        var rt = new MainFuncDefNode();
+        rt.mainBlock = toBlock(tree.getFirstChild(node));
+        return rt;
+    }
+
+    private FuncFParamNode toFuncFParam(int node) {
+        var rt = new FuncFParamNode();
+        int token = tree.getToken(node);
+        rt.ident = tree.getTokenIdent(token);
+        rt.identLineNum = tree.getTokenLineNum(token);
+
+        rt.type = new BTypeNode();
+        if (tree.getKind(node) == Kind.FUNC_F_PARAM_ARRAY) {
+            rt.dimensions = new ArrayList<>();
+            for (int child = tree.getFirstChild(node); child != FlatSyntaxTree.NONE; child = tree.getNextSibling(child)) {
+                rt.dimensions.add(toConstExp(child));
+            }
+        }
+        return rt;
+    }
+
+    private ConstDeclNode toConstDecl(int node) {
+        var rt = new ConstDeclNode();
+        rt.type = new BTypeNode();
+        for (int child = tree.getFirstChild(node); child != FlatSyntaxTree.NONE; child = tree.getNextSibling(child)) {
+            rt.constDefs.add(toConstDef(child));
+        }
+        return rt;
+    }
+
+    private ConstDefNode toConstDef(int node) {
+        var rt = new ConstDefNode();
+        int token = tree.getToken(node);
+        rt.ident = tree.getTokenIdent(token);
+        rt.identLineNum = tree.getTokenLineNum(token);
+
+        // the initial value comes last
+        for (int child = tree.getFirstChild(node); child != FlatSyntaxTree.NONE; child = tree.getNextSibling(child)) {
+            if (tree.getNextSibling(child) != FlatSyntaxTree.NONE) {
+                rt.dimensions.add(toConstExp(child));
+            } else {
+                rt.constInitVal = toConstInitVal(child);
+            }
+        }
+        return rt;
+    }
+
+    private ConstInitValNode toConstInitVal(int node) {
+        if (tree.getKind(node) != Kind.ARRAY_INIT) {
+            var rt = new ConstInitValNodeForConstExp();
+            rt.constExp = toConstExp(node);
+            return rt;
+        } else {
+            var rt = new ConstInitValNodeForArrayInit();
+            for (int child = tree.getFirstChild(node); child != FlatSyntaxTree.NONE; child = tree.getNextSibling(child)) {
+                rt.initValues.add(toConstInitVal(child));
+            }
+            return rt;
+        }
+    }
+
+    private VarDeclNode toVarDecl(int node) {
+        var rt = new VarDeclNode();
+        rt.type = new BTypeNode();
+        for (int child = tree.getFirstChild(node); child != FlatSyntaxTree.NONE; child = tree.getNextSibling(child)) {
+            rt.varDefs.add(toVarDef(child));
+        }
+        return rt;
+    }
+
+    private VarDefNode toVarDef(int node) {
+        var rt = new VarDefNode();
+        int token = tree.getToken(node);
+        rt.ident = tree.getTokenIdent(token);
+        rt.identLineNum = tree.getTokenLineNum(token);
+
+        boolean withInit = tree.getKind(node) == Kind.VAR_DEF_WITH_INIT;
+        for (int child = tree.getFirstChild(node); child != FlatSyntaxTree.NONE; child = tree.getNextSibling(child)) {
+            if (withInit && tree.getNextSibling(child) == FlatSyntaxTree.NONE) {
+                rt.initVal = toInitVal(child);
+            } else {
+                rt.dimensions.add(toConstExp(child));
+            }
+        }
+        return rt;
+    }
+
+    private InitValNode toInitVal(int node) {
+        if (tree.getKind(node) != Kind.ARRAY_INIT) {
+            var rt = new InitValNodeForExp();
+            rt.exp = toExp(node);
+            return rt;
+        } else {
+            var rt = new InitValNodeForArray();
+            for (int child = tree.getFirstChild(node); child != FlatSyntaxTree.NONE; child = tree.getNextSibling(child)) {
+                rt.initVals.add(toInitVal(child));
+            }
+            return rt;
+        }
+    }
+
+    public BlockNode toBlock(int node) {
+        if (condensed) {
+            var rt = new BlockNodeForFlat();
+            rt.adapter = this;
+            rt.node = node;
+            rt.blockRLineNum = tree.getTokenLineNum(tree.getToken(node));
+            return rt;
+        }
+        var rt = new BlockNode();
+        rt.blockRLineNum = tree.getTokenLineNum(tree.getToken(node));
+        for (int child = tree.getFirstChild(node); child != FlatSyntaxTree.NONE; child = tree.getNextSibling(child)) {
+            var kind = tree.getKind(child);
+            if (kind == Kind.CONST_DECL || kind == Kind.VAR_DECL) {
+                var blockItem = new BlockItemNodeForDecl();
+                blockItem.decl = toDecl(child);
+                rt.blockItems.add(blockItem);
+            } else {
+                var blockItem = new BlockItemNodeForStmt();
+                blockItem.stmt = toStmt(child);
+                rt.blockItems.add(blockItem);
+            }
+        }
+        return rt;
+    }
+
+    public StmtNode toStmt(int node) {
+        int child = tree.getFirstChild(node);
+        switch (tree.getKind(node)) {
+            case STMT_ASSIGN -> {
+                var rt = new StmtNodeForAssign();
+                rt.lVal = toLVal(child);
+                rt.exp = toExp(tree.getNextSibling(child));
+                return rt;
+            }
+            case STMT_EXP -> {
+                var rt = new StmtNodeForExp();
+                if (child != FlatSyntaxTree.NONE) {
+                    rt.exp = toExp(child);
+                }
+                return rt;
+            }
+            case BLOCK -> {
+                var rt = new StmtNodeForBlock();
+                rt.block = toBlock(node);
+                return rt;
+            }
+            case STMT_IF_ELSE -> {
+                var rt = new StmtNodeForIfElse();
+                rt.cond = toCond(child);
+                child = tree.getNextSibling(child);
+                rt.ifStmt = toStmt(child);
+                child = tree.getNextSibling(child);
+                if (child != FlatSyntaxTree.NONE) {
+                    rt.elseStmt = toStmt(child);
+                }
+                return rt;
+            }
+            case STMT_LOOP -> {
+                var rt = new StmtNodeForLoop();
+                if (tree.getKind(child) != Kind.EMPTY) {
+                    rt.forStmt1 = toForStmt(child);
+                }
+                child = tree.getNextSibling(child);
+                if (tree.getKind(child) != Kind.EMPTY) {
+                    rt.cond = toCond(child);
+                }
+                child = tree.getNextSibling(child);
+                if (tree.getKind(child) != Kind.EMPTY) {
+                    rt.forStmt2 = toForStmt(child);
+                }
+                rt.stmt = toStmt(tree.getNextSibling(child));
+                return rt;
+            }
+            case STMT_CONTINUE_BREAK -> {
+                var rt = new StmtNodeForContinueBreak();
+                int token = tree.getToken(node);
+                rt.type = tree.getTokenType(token);
+                rt.tkLineNum = tree.getTokenLineNum(token);
+                return rt;
+            }
+            case STMT_RETURN -> {
+                var rt = new StmtNodeForReturn();
+                rt.returnLineNum = tree.getTokenLineNum(tree.getToken(node));
+                if (child != FlatSyntaxTree.NONE) {
+                    rt.exp = toExp(child);
+                }
+                return rt;
+            }
+            case STMT_GET_INT -> {
+                var rt = new StmtNodeForGetInt();
+                rt.lVal = toLVal(child);
+                return rt;
+            }
+            case STMT_PRINTF -> {
+                var rt = new StmtNodeForPrintf();
+                int token = tree.getToken(node);
+                rt.printfLineNum = tree.getTokenLineNum(token);
+                rt.formatString = tree.getTokenValue(token + 1);
+                for (; child != FlatSyntaxTree.NONE; child = tree.getNextSibling(child)) {
+                    rt.exps.add(toExp(child));
+                }
+                return rt;
+            }
+            default -> throw new RuntimeException(); // impossible
+        }
+    }
+
+    public ForStmtNode toForStmt(int node) {
+        var rt = new ForStmtNode();
+        int child = tree.getFirstChild(node);
+        rt.lVal = toLVal(child);
+        rt.exp = toExp(tree.getNextSibling(child));
+        return rt;
+    }
+
+    public ExpNode toExp(int node) {
+        if (condensed) {
+            var rt = new ExpNodeForFlat();
+            rt.adapter = this;
+            rt.node = node;
+            return rt;
+        }
+        var rt = new ExpNode();
+        rt.addExp = toAddExp(node);
+        return rt;
+    }
+
+    public ConstExpNode toConstExp(int node) {
+        if (condensed) {
+            var rt = new ConstExpNodeForFlat();
+            rt.adapter = this;
+            rt.node = node;
+            return rt;
+        }
+        var rt = new ConstExpNode();
+        rt.addExp = toAddExp(node);
+        return rt;
+    }
+
+    public CondNode toCond(int node) {
+        if (condensed) {
+            var rt = new CondNodeForFlat();
+            rt.adapter = this;
+            rt.node = node;
+            return rt;
+        }
+        var rt = new CondNode();
+        rt.lOrExp = toLOrExp(node);
+        return rt;
+    }
+
+    // a binary node of a lower precedence level only appears inside parentheses, so the operator tells the level
+    private LOrExpNode toLOrExp(int node) {
+        if (tree.getKind(node) != Kind.OR) {
+            var rt = new LOrExpNodeForSingle();
+            rt.lAndExp = toLAndExp(node);
+            return rt;
+        }
+        int child = tree.getFirstChild(node);
+        var rt = new LOrExpNodeForDouble();
+        rt.lOrExp = toLOrExp(child);
+        rt.lAndExp = toLAndExp(tree.getNextSibling(child));
+        return rt;
+    }
+
+    private LAndExpNode toLAndExp(int node) {
+        if (tree.getKind(node) != Kind.AND) {
+            var rt = new LAndExpNodeForSingle();
+            rt.eqExp = toEqExp(node);
+            return rt;
+        }
+        int child = tree.getFirstChild(node);
+        var rt = new LAndExpNodeForDouble();
+        rt.lAndExp = toLAndExp(child);
+        rt.eqExp = toEqExp(tree.getNextSibling(child));
+        return rt;
+    }
+
+    private EqExpNode toEqExp(int node) {
+        var kind = tree.getKind(node);
+        if (kind != Kind.EQL && kind != Kind.NEQ) {
+            var rt = new EqExpNodeForSingle();
+            rt.relExp = toRelExp(node);
+            return rt;
+        }
+        int child = tree.getFirstChild(node);
+        var rt = new EqExpNodeForDouble();
+        rt.eqExp = toEqExp(child);
+        rt.op = kind.getOp();
+        rt.relExp = toRelExp(tree.getNextSibling(child));
+        return rt;
+    }
+
+    private RelExpNode toRelExp(int node) {
+        var kind = tree.getKind(node);
+        if (kind != Kind.LSS && kind != Kind.GRE && kind != Kind.LEQ && kind != Kind.GEQ) {
+            var rt = new RelExpNodeForSingle();
+            rt.addExp = toAddExp(node);
+            return rt;
+        }
+        int child = tree.getFirstChild(node);
+        var rt = new RelExpNodeForDouble();
+        rt.relExp = toRelExp(child);
+        rt.op = kind.getOp();
+        rt.addExp = toAddExp(tree.getNextSibling(child));
+        return rt;
+    }
+
+    private AddExpNode toAddExp(int node) {
+        var kind = tree.getKind(node);
+        if (kind != Kind.ADD && kind != Kind.SUB) {
+            var rt = new AddExpNodeForSingle();
+            rt.mulExp = toMulExp(node);
+            return rt;
+        }
+        int child = tree.getFirstChild(node);
+        var rt = new AddExpNodeForDouble();
+        rt.addExp = toAddExp(child);
+        rt.op = kind.getOp();
+        rt.mulExp = toMulExp(tree.getNextSibling(child));
+        return rt;
+    }
+
+    private MulExpNode toMulExp(int node) {
+        var kind = tree.getKind(node);
+        if (kind != Kind.MUL && kind != Kind.DIV && kind != Kind.MOD) {
+            var rt = new MulExpNodeForSingle();
+            rt.unaryExp = toUnaryExp(node);
+            return rt;
+        }
+        int child = tree.getFirstChild(node);
+        var rt = new MulExpNodeForDouble();
+        rt.mulExp = toMulExp(child);
+        rt.op = kind.getOp();
+        rt.unaryExp = toUnaryExp(tree.getNextSibling(child));
+        return rt;
+    }
+
+    private UnaryExpNode toUnaryExp(int node) {
+        var kind = tree.getKind(node);
+        if (kind == Kind.FUNC_CALL) {
+            return toFuncCall(node);
+        } else if (kind.isUnary()) {
+            var rt = new UnaryExpNodeForUnaryOp();
+            rt.op = new UnaryOpNode();
+            rt.op.opType = kind.getOp();
+            rt.exp = toUnaryExp(tree.getFirstChild(node));
+            return rt;
+        } else {
+            var rt = new UnaryExpNodeForPrimaryExp();
+            rt.primaryExp = toPrimaryExp(node);
+            return rt;
+        }
+    }
+
+    private PrimaryExpNode toPrimaryExp(int node) {
+        switch (tree.getKind(node)) {
+            case PAREN_EXP -> {
+                var rt = new PrimaryExpNodeForExp();
+                rt.exp = toExp(tree.getFirstChild(node));
+                return rt;
+            }
+            case LVAL -> {
+                var rt = new PrimaryExpNodeForLVal();
+                rt.lVal = toLVal(node);
+                return rt;
+            }
+            case NUMBER -> {
+                var rt = new PrimaryExpNodeForNumber();
+                rt.number = new NumberNode();
+                rt.number.intConst = tree.getTokenValue(tree.getToken(node));
+                return rt;
+            }
+            default -> throw new RuntimeException(); // impossible
+        }
+    }
+
+    public UnaryExpNodeForFuncCall toFuncCall(int node) {
+        var rt = new UnaryExpNodeForFuncCall();
+        int token = tree.getToken(node);
+        rt.ident = tree.getTokenIdent(token);
+        rt.identLineNum = tree.getTokenLineNum(token);
+        int child = tree.getFirstChild(node);
+        if (child != FlatSyntaxTree.NONE) {
+            rt.params = new FuncRParamsNode();
+            for (; child != FlatSyntaxTree.NONE; child = tree.getNextSibling(child)) {
+                rt.params.exps.add(toExp(child));
+            }
+        }
+        return rt;
+    }
+
+    public LValNode toLVal(int node) {
+        var rt = new LValNode();
+        int token = tree.getToken(node);
+        rt.ident = tree.getTokenIdent(token);
+        rt.identLineNum = tree.getTokenLineNum(token);
+        for (int child = tree.getFirstChild(node); child != FlatSyntaxTree.NONE; child = tree.getNextSibling(child)) {
+            rt.dimensions.add(toExp(child));
+        }
+        return rt;
+    }
+}
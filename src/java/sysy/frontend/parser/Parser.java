@@ -6,18 +6,16 @@ import sysy.exception.LexerException;
 import sysy.exception.ParserException;
 import sysy.frontend.parser.syntaxtree.*;
 import sysy.frontend.lexer.LexType;
-import sysy.frontend.lexer.Lexer;
 import sysy.frontend.lexer.Token;
+import sysy.frontend.lexer.TokenSource;
 
-import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Queue;
 
 public class Parser {
     private final PreReadBuffer buf;
     private final ErrorRecorder errorRecorder;
 
-    public Parser(Lexer lexer, ErrorRecorder errorRecorder) throws LexerException {
+    public Parser(TokenSource lexer, ErrorRecorder errorRecorder) throws LexerException {
         this.buf = new PreReadBuffer(lexer, 3);
         this.errorRecorder = errorRecorder;
     }
@@ -30,14 +28,16 @@ public class Parser {
         return token.getType() != type;
     }
 
-    private static void matchOrThrow(Token token, LexType type, ParserException e) throws ParserException {
+    private static void matchOrThrow(Token token, LexType type) throws ParserException {
         if (isNotMatch(token, type)) {
-            throw e;
+            // only built on failure, since capturing the stack trace of a deep descent is expensive
+            throw new ParserException(String.format("expect %s but got %s at line %d",
+                    type == null ? "EOF" : type, token.getType() == null ? "EOF" : token.getType(), token.getLineNum()));
         }
     }
 
-    private Token parseToken(Token token, LexType type, ParserException onFail) throws LexerException, ParserException {
-        matchOrThrow(token, type, onFail);
+    private Token parseToken(Token token, LexType type) throws LexerException, ParserException {
+        matchOrThrow(token, type);
         return buf.readNextToken();
     }
 
@@ -45,7 +45,7 @@ public class Parser {
         Token currToken = buf.readNextToken();
         ParseResult result = parseCompUnit(currToken);
         currToken = result.getNextToken();
-        matchOrThrow(currToken, null, new ParserException());  // if not reach end
+        matchOrThrow(currToken, null);  // if not reach end
 
         return result.getSubtree();
     }
@@ -97,10 +97,10 @@ public class Parser {
         currToken = result.getNextToken();
         subTree.funcType = (FuncTypeNode) result.getSubtree();
 
-        subTree.ident = currToken.getValue();
+        subTree.ident = currToken.getIdent();
         subTree.identLineNum = currToken.getLineNum();
-        currToken = parseToken(currToken, LexType.IDENFR, new ParserException());
-        currToken = parseToken(currToken, LexType.LPARENT, new ParserException());
+        currToken = parseToken(currToken, LexType.IDENFR);
+        currToken = parseToken(currToken, LexType.LPARENT);
         if (isMatch(currToken, LexType.INTTK)) {
             result = parseFuncFParams(currToken);
             currToken = result.getNextToken();
@@ -148,9 +148,9 @@ public class Parser {
         currToken = result.getNextToken();
         subTree.type = (BTypeNode) result.getSubtree();
 
-        subTree.ident = currToken.getValue();
+        subTree.ident = currToken.getIdent();
         subTree.identLineNum = currToken.getLineNum();
-        currToken = parseToken(currToken, LexType.IDENFR, new ParserException());
+        currToken = parseToken(currToken, LexType.IDENFR);
         if (isMatch(currToken, LexType.LBRACK)) {
             subTree.dimensions = new ArrayList<>();
             currToken = buf.readNextToken();
@@ -257,11 +257,11 @@ public class Parser {
             subTree = newNode;
         } else if (isMatch(currToken, LexType.IDENFR) && isMatch(preRead, LexType.LPARENT)) {
             var newNode = new UnaryExpNodeForFuncCall();
-            newNode.ident = currToken.getValue();
+            newNode.ident = currToken.getIdent();
             newNode.identLineNum = currToken.getLineNum();
 
-            currToken = parseToken(currToken, LexType.IDENFR, new ParserException());
-            currToken = parseToken(currToken, LexType.LPARENT, new ParserException());
+            currToken = parseToken(currToken, LexType.IDENFR);
+            currToken = parseToken(currToken, LexType.LPARENT);
             if (isMatch(currToken, LexType.LPARENT)
                     || isMatch(currToken, LexType.IDENFR)
                     || isMatch(currToken, LexType.INTCON)
@@ -390,9 +390,9 @@ public class Parser {
         LValNode subTree = new LValNode();
         ParseResult result;
 
-        subTree.ident = currToken.getValue();
+        subTree.ident = currToken.getIdent();
         subTree.identLineNum = currToken.getLineNum();
-        currToken = parseToken(currToken, LexType.IDENFR, new ParserException());
+        currToken = parseToken(currToken, LexType.IDENFR);
         while (isMatch(currToken, LexType.LBRACK)) {
             currToken = buf.readNextToken();
 
@@ -413,7 +413,7 @@ public class Parser {
     private ParseResult parseNumber(Token currToken) throws LexerException, ParserException {
         NumberNode subTree = new NumberNode();
         subTree.intConst = currToken.getValue();
-        currToken = parseToken(currToken, LexType.INTCON, new ParserException());
+        currToken = parseToken(currToken, LexType.INTCON);
 
         return new ParseResult(currToken, subTree);
     }
@@ -422,7 +422,7 @@ public class Parser {
         BTypeNode subTree = new BTypeNode();
 
         subTree.type = currToken.getType();
-        currToken = parseToken(currToken, LexType.INTTK, new ParserException());
+        currToken = parseToken(currToken, LexType.INTTK);
 
         return new ParseResult(currToken, subTree);
     }
@@ -431,7 +431,7 @@ public class Parser {
         BlockNode subTree = new BlockNode();
         ParseResult result;
 
-        currToken = parseToken(currToken, LexType.LBRACE, new ParserException());
+        currToken = parseToken(currToken, LexType.LBRACE);
         while (isNotMatch(currToken, LexType.RBRACE)) {
             result = parseBlockItem(currToken);
             currToken = result.getNextToken();
@@ -481,13 +481,13 @@ public class Parser {
             currToken = result.getNextToken();
             tmpLVal = (LValNode) result.getSubtree();
 
-            currToken = parseToken(currToken, LexType.ASSIGN, new ParserException());
+            currToken = parseToken(currToken, LexType.ASSIGN);
             if (isMatch(currToken, LexType.GETINTTK)) {
                 var newNode = new StmtNodeForGetInt();
                 newNode.lVal = tmpLVal;
 
                 currToken = buf.readNextToken();
-                currToken = parseToken(currToken, LexType.LPARENT, new ParserException());
+                currToken = parseToken(currToken, LexType.LPARENT);
 
                 if (isMatch(currToken, LexType.RPARENT)) {
                     currToken = buf.readNextToken();
@@ -557,7 +557,7 @@ public class Parser {
             var newNode = new StmtNodeForIfElse();
 
             currToken = buf.readNextToken();
-            currToken = parseToken(currToken, LexType.LPARENT, new ParserException());
+            currToken = parseToken(currToken, LexType.LPARENT);
 
             result = parseCond(currToken);
             currToken = result.getNextToken();
@@ -586,7 +586,7 @@ public class Parser {
             var newNode = new StmtNodeForLoop();
 
             currToken = buf.readNextToken();
-            currToken = parseToken(currToken, LexType.LPARENT, new ParserException());
+            currToken = parseToken(currToken, LexType.LPARENT);
             if (isMatch(currToken, LexType.IDENFR)) {
                 result = parseForStmt(currToken);
                 currToken = result.getNextToken();
@@ -690,10 +690,10 @@ public class Parser {
             newNode.printfLineNum = currToken.getLineNum();
 
             currToken = buf.readNextToken();
-            currToken = parseToken(currToken, LexType.LPARENT, new ParserException());
+            currToken = parseToken(currToken, LexType.LPARENT);
 
             newNode.formatString = currToken.getValue();
-            currToken = parseToken(currToken, LexType.STRCON, new ParserException());
+            currToken = parseToken(currToken, LexType.STRCON);
             while (isMatch(currToken, LexType.COMMA)) {
                 currToken = buf.readNextToken();
 
@@ -837,7 +837,7 @@ public class Parser {
         currToken = result.getNextToken();
         subTree.lVal = (LValNode) result.getSubtree();
 
-        currToken = parseToken(currToken, LexType.ASSIGN, new ParserException());
+        currToken = parseToken(currToken, LexType.ASSIGN);
 
         result = parseExp(currToken);
         currToken = result.getNextToken();
@@ -890,7 +890,7 @@ public class Parser {
         ConstDeclNode subTree = new ConstDeclNode();
         ParseResult result;
 
-        currToken = parseToken(currToken, LexType.CONSTTK, new ParserException());
+        currToken = parseToken(currToken, LexType.CONSTTK);
 
         result = parseBType(currToken);
         currToken = result.getNextToken();
@@ -921,9 +921,9 @@ public class Parser {
         ConstDefNode subTree = new ConstDefNode();
         ParseResult result;
 
-        subTree.ident = currToken.getValue();
+        subTree.ident = currToken.getIdent();
         subTree.identLineNum = currToken.getLineNum();
-        currToken = parseToken(currToken, LexType.IDENFR, new ParserException());
+        currToken = parseToken(currToken, LexType.IDENFR);
         while (isMatch(currToken, LexType.LBRACK)) {
             currToken = buf.readNextToken();
 
@@ -937,7 +937,7 @@ public class Parser {
                 errorRecorder.addError(CompileErrorType.RBRACK_IS_MISSING, buf.readPreToken().getLineNum());
             }
         }
-        currToken = parseToken(currToken, LexType.ASSIGN, new ParserException());
+        currToken = parseToken(currToken, LexType.ASSIGN);
 
         result = parseConstInitVal(currToken);
         currToken = result.getNextToken();
@@ -980,7 +980,7 @@ public class Parser {
                     newNode.initValues.add((ConstInitValNode) result.getSubtree());
                 }
             }
-            currToken = parseToken(currToken, LexType.RBRACE, new ParserException());
+            currToken = parseToken(currToken, LexType.RBRACE);
 
             subTree = newNode;
         } else {
@@ -1023,9 +1023,9 @@ public class Parser {
         VarDefNode subTree = new VarDefNode();
         ParseResult result;
 
-        subTree.ident = currToken.getValue();
+        subTree.ident = currToken.getIdent();
         subTree.identLineNum = currToken.getLineNum();
-        currToken = parseToken(currToken, LexType.IDENFR, new ParserException());
+        currToken = parseToken(currToken, LexType.IDENFR);
         while (isMatch(currToken, LexType.LBRACK)) {
             currToken = buf.readNextToken();
 
@@ -1084,7 +1084,7 @@ public class Parser {
                     newNode.initVals.add((InitValNode) result.getSubtree());
                 }
             }
-            currToken = parseToken(currToken, LexType.RBRACE, new ParserException());
+            currToken = parseToken(currToken, LexType.RBRACE);
 
             subTree = newNode;
         } else {
@@ -1098,9 +1098,9 @@ public class Parser {
         MainFuncDefNode subTree = new MainFuncDefNode();
         ParseResult result;
 
-        currToken = parseToken(currToken, LexType.INTTK, new ParserException());
-        currToken = parseToken(currToken, LexType.MAINTK, new ParserException());
-        currToken = parseToken(currToken, LexType.LPARENT, new ParserException());
+        currToken = parseToken(currToken, LexType.INTTK);
+        currToken = parseToken(currToken, LexType.MAINTK);
+        currToken = parseToken(currToken, LexType.LPARENT);
 
         if (isMatch(currToken, LexType.RPARENT)) {
             currToken = buf.readNextToken();
@@ -1117,75 +1117,6 @@ public class Parser {
 }
 
 
-class PreReadBuffer {
-    private final Lexer lexer;
-    private final int tokenBufLen;
-    private final Token[] tokenBuf;
-    private int currTokenPos = 0;
-    private final Queue<Token> findBuffer = new ArrayDeque<>();
-    private Token preToken = null;
-
-    public PreReadBuffer(Lexer lexer, int bufLen) throws LexerException {
-        assert bufLen >= 2;
-
-        this.lexer = lexer;
-        this.tokenBufLen = bufLen;
-        this.tokenBuf = new Token[this.tokenBufLen];
-
-        for (int i = 1; i < this.tokenBufLen; i++) {
-            if (this.lexer.next()) {
-                this.tokenBuf[i] = lexer.getToken();
-            } else {
-                this.tokenBuf[i] = new Token("EOF", null, 0);  // token not null
-            }
-        }
-    }
-
-    public Token readNextToken() throws LexerException {
-        preToken = tokenBuf[currTokenPos];
-        if (!findBuffer.isEmpty()) {
-            tokenBuf[currTokenPos] = findBuffer.poll();
-        } else if (lexer.next()) {
-            tokenBuf[currTokenPos] = lexer.getToken();
-        } else {
-            tokenBuf[currTokenPos] = new Token("EOF", null, 0);  // token not null
-        }
-        currTokenPos = (currTokenPos + 1) % tokenBufLen;
-        return tokenBuf[currTokenPos];
-    }
-
-    public Token readTokenByOffset(int offset) {
-        assert offset < tokenBufLen;
-        return tokenBuf[(currTokenPos + offset) % tokenBufLen];
-    }
-
-    public boolean findUntil(LexType find, LexType until) throws LexerException {
-        for (int i = 0, j = currTokenPos; i < tokenBufLen; i++, j = (currTokenPos + 1) % tokenBufLen) {
-            if (tokenBuf[j].getType() == find) {
-                return true;
-            } else if (tokenBuf[j].getType() == until) {
-                return false;
-            }
-        }
-
-        while (lexer.next()) {
-            var token = lexer.getToken();
-            findBuffer.add(lexer.getToken());
-            if (token.getType() == find) {
-                return true;
-            } else if (token.getType() == until) {
-                return false;
-            }
-        }
-        return false;
-    }
-
-    public Token readPreToken() {
-        return preToken;
-    }
-}
-
-
 class ParseResult {
     private final Token nextToken;
     private final SyntaxNode subtree;
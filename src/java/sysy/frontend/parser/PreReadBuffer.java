@@ -0,0 +1,77 @@
+package sysy.frontend.parser;
+
+import sysy.exception.LexerException;
+import sysy.frontend.lexer.LexType;
+import sysy.frontend.lexer.Token;
+import sysy.frontend.lexer.TokenSource;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+class PreReadBuffer {
+    private final TokenSource lexer;
+    private final int tokenBufLen;
+    private final Token[] tokenBuf;
+    private int currTokenPos = 0;
+    private final Queue<Token> findBuffer = new ArrayDeque<>();
+    private Token preToken = null;
+
+    public PreReadBuffer(TokenSource lexer, int bufLen) throws LexerException {
+        assert bufLen >= 2;
+
+        this.lexer = lexer;
+        this.tokenBufLen = bufLen;
+        this.tokenBuf = new Token[this.tokenBufLen];
+
+        for (int i = 1; i < this.tokenBufLen; i++) {
+            if (this.lexer.next()) {
+                this.tokenBuf[i] = lexer.getToken();
+            } else {
+                this.tokenBuf[i] = new Token("EOF", null, 0);  // token not null
+            }
+        }
+    }
+
+    public Token readNextToken() throws LexerException {
+        preToken = tokenBuf[currTokenPos];
+        if (!findBuffer.isEmpty()) {
+            tokenBuf[currTokenPos] = findBuffer.poll();
+        } else if (lexer.next()) {
+            tokenBuf[currTokenPos] = lexer.getToken();
+        } else {
+            tokenBuf[currTokenPos] = new Token("EOF", null, 0);  // token not null
+        }
+        currTokenPos = (currTokenPos + 1) % tokenBufLen;
+        return tokenBuf[currTokenPos];
+    }
+
+    public Token readTokenByOffset(int offset) {
+        assert offset < tokenBufLen;
+        return tokenBuf[(currTokenPos + offset) % tokenBufLen];
+    }
+
+    public boolean findUntil(LexType find, LexType until) throws LexerException {
+        for (int i = 0, j = currTokenPos; i < tokenBufLen; i++, j = (currTokenPos + 1) % tokenBufLen) {
+            if (tokenBuf[j].getType() == find) {
+                return true;
+            } else if (tokenBuf[j].getType() == until) {
+                return false;
+            }
+        }
+
+        while (lexer.next()) {
+            var token = lexer.getToken();
+            findBuffer.add(lexer.getToken());
+            if (token.getType() == find) {
+                return true;
+            } else if (token.getType() == until) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    public Token readPreToken() {
+        return preToken;
+    }
+}
@@ -0,0 +1,29 @@
+package sysy.frontend.parser.syntaxtree;
+
+import sysy.frontend.parser.FlatSyntaxTree;
+import sysy.frontend.parser.FlatTreeAdapter;
+import sysy.frontend.parser.syntaxtree.symbol.NonTerminalSymbol;
+import sysy.frontend.parser.syntaxtree.symbol.TerminalSymbol;
+
+import java.util.function.Consumer;
+
+// a block kept in a FlatSyntaxTree, whose items are visited straight from the tree
+public class BlockNodeForFlat extends BlockNode {
+    public FlatTreeAdapter adapter;
+    public int node;
+
+    @Override
+    public boolean isWithoutReturn() {
+        var tree = adapter.getTree();
+        int last = FlatSyntaxTree.NONE;
+        for (int child = tree.getFirstChild(node); child != FlatSyntaxTree.NONE; child = tree.getNextSibling(child)) {
+            last = child;
+        }
+        return last == FlatSyntaxTree.NONE || tree.getKind(last) != FlatSyntaxTree.Kind.STMT_RETURN;
+    }
+
+    @Override
+    public void walk(Consumer<TerminalSymbol> terminalConsumer, Consumer<NonTerminalSymbol> nonTerminalConsumer) {
+        new FlatTreeAdapter(adapter.getTree()).toBlock(node).walk(terminalConsumer, nonTerminalConsumer);
+    }
+}
@@ -0,0 +1,17 @@
+package sysy.frontend.parser.syntaxtree;
+
+import sysy.frontend.parser.FlatTreeAdapter;
+import sysy.frontend.parser.syntaxtree.symbol.NonTerminalSymbol;
+import sysy.frontend.parser.syntaxtree.symbol.TerminalSymbol;
+
+import java.util.function.Consumer;
+
+public class ConstExpNodeForFlat extends ConstExpNode {
+    public FlatTreeAdapter adapter;
+    public int node;
+
+    @Override
+    public void walk(Consumer<TerminalSymbol> terminalConsumer, Consumer<NonTerminalSymbol> nonTerminalConsumer) {
+        new FlatTreeAdapter(adapter.getTree()).toConstExp(node).walk(terminalConsumer, nonTerminalConsumer);
+    }
+}
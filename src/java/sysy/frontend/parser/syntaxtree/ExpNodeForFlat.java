@@ -0,0 +1,18 @@
+package sysy.frontend.parser.syntaxtree;
+
+import sysy.frontend.parser.FlatTreeAdapter;
+import sysy.frontend.parser.syntaxtree.symbol.NonTerminalSymbol;
+import sysy.frontend.parser.syntaxtree.symbol.TerminalSymbol;
+
+import java.util.function.Consumer;
+
+// an expression kept in a FlatSyntaxTree; the Exp, AddExp, MulExp... chain is only built if it is walked
+public class ExpNodeForFlat extends ExpNode {
+    public FlatTreeAdapter adapter;
+    public int node;
+
+    @Override
+    public void walk(Consumer<TerminalSymbol> terminalConsumer, Consumer<NonTerminalSymbol> nonTerminalConsumer) {
+        new FlatTreeAdapter(adapter.getTree()).toExp(node).walk(terminalConsumer, nonTerminalConsumer);
+    }
+}
@@ -1,5 +1,6 @@
 package sysy.frontend.parser.syntaxtree;
 
+import sysy.frontend.lexer.Ident;
 import sysy.frontend.lexer.LexType;
 import sysy.frontend.parser.syntaxtree.symbol.NonTerminalSymbol;
 import sysy.frontend.parser.syntaxtree.symbol.TerminalSymbol;
@@ -8,7 +9,7 @@ import java.util.function.Consumer;
 
 public class FuncDefNode extends SyntaxNode {
     public FuncTypeNode funcType;
-    public String ident;
+    public Ident ident;
     public FuncFParamsNode params;
     public BlockNode block;
     public int identLineNum = -1;
@@ -17,7 +18,7 @@ public class FuncDefNode extends SyntaxNode {
     public void walk(Consumer<TerminalSymbol> terminalConsumer, Consumer<NonTerminalSymbol> nonTerminalConsumer) {
         funcType.walk(terminalConsumer, nonTerminalConsumer);
 
-        terminalConsumer.accept(new TerminalSymbol(LexType.IDENFR, ident));
+        terminalConsumer.accept(new TerminalSymbol(LexType.IDENFR, ident.getName()));
 
         terminalConsumer.accept(new TerminalSymbol(LexType.LPARENT));
 
@@ -1,5 +1,6 @@
 package sysy.frontend.parser.syntaxtree;
 
+import sysy.frontend.lexer.Ident;
 import sysy.frontend.lexer.LexType;
 import sysy.frontend.parser.syntaxtree.symbol.NonTerminalSymbol;
 import sysy.frontend.parser.syntaxtree.symbol.TerminalSymbol;
@@ -9,7 +10,7 @@ import java.util.function.Consumer;
 
 public class FuncFParamNode extends SyntaxNode {
     public BTypeNode type;
-    public String ident;
+    public Ident ident;
     public List<ConstExpNode> dimensions;
     public int identLineNum = -1;
 
@@ -17,7 +18,7 @@ public class FuncFParamNode extends SyntaxNode {
     public void walk(Consumer<TerminalSymbol> terminalConsumer, Consumer<NonTerminalSymbol> nonTerminalConsumer) {
         type.walk(terminalConsumer, nonTerminalConsumer);
 
-        terminalConsumer.accept(new TerminalSymbol(LexType.IDENFR, ident));
+        terminalConsumer.accept(new TerminalSymbol(LexType.IDENFR, ident.getName()));
 
         if (dimensions != null) {
             terminalConsumer.accept(new TerminalSymbol(LexType.LBRACK));
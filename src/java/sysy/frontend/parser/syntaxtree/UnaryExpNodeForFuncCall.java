@@ -1,5 +1,6 @@
 package sysy.frontend.parser.syntaxtree;
 
+import sysy.frontend.lexer.Ident;
 import sysy.frontend.lexer.LexType;
 import sysy.frontend.parser.syntaxtree.symbol.NonTerminalSymbol;
 import sysy.frontend.parser.syntaxtree.symbol.TerminalSymbol;
@@ -7,13 +8,13 @@ import sysy.frontend.parser.syntaxtree.symbol.TerminalSymbol;
 import java.util.function.Consumer;
 
 public class UnaryExpNodeForFuncCall extends UnaryExpNode {
-    public String ident;
+    public Ident ident;
     public FuncRParamsNode params;
     public int identLineNum = -1;
 
     @Override
     public void walk(Consumer<TerminalSymbol> terminalConsumer, Consumer<NonTerminalSymbol> nonTerminalConsumer) {
-        terminalConsumer.accept(new TerminalSymbol(LexType.IDENFR, ident));
+        terminalConsumer.accept(new TerminalSymbol(LexType.IDENFR, ident.getName()));
         terminalConsumer.accept(new TerminalSymbol(LexType.LPARENT));
 
         if (params != null) {
@@ -1,5 +1,6 @@
 package sysy.frontend.parser.syntaxtree;
 
+import sysy.frontend.lexer.Ident;
 import sysy.frontend.lexer.LexType;
 import sysy.frontend.parser.syntaxtree.symbol.NonTerminalSymbol;
 import sysy.frontend.parser.syntaxtree.symbol.TerminalSymbol;
@@ -9,14 +10,14 @@ import java.util.List;
 import java.util.function.Consumer;
 
 public class VarDefNode extends SyntaxNode {
-    public String ident;
+    public Ident ident;
     public List<ConstExpNode> dimensions = new ArrayList<>();
     public InitValNode initVal;
     public int identLineNum = -1;
 
     @Override
     public void walk(Consumer<TerminalSymbol> terminalConsumer, Consumer<NonTerminalSymbol> nonTerminalConsumer) {
-        terminalConsumer.accept(new TerminalSymbol(LexType.IDENFR, ident));
+        terminalConsumer.accept(new TerminalSymbol(LexType.IDENFR, ident.getName()));
 
         for (var dim : dimensions) {
             terminalConsumer.accept(new TerminalSymbol(LexType.LBRACK));
@@ -1,36 +1,80 @@
 package sysy.frontend.symtable;
 
+import sysy.frontend.lexer.Ident;
 import sysy.frontend.symtable.symbol.Symbol;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 public class SymbolTable {
     private SymbolTable preTable = null;
     private final List<SymbolTable> nextTables = new ArrayList<>();
-    private final Map<String, Symbol> symbolMap = new HashMap<>();
+    // open addressing on the id of the ident, which is canonical, so no name is ever hashed or compared
+    private Symbol[] symbols = null;
+    private int size = 0;
 
-    public boolean contains(String name) {
-        return symbolMap.containsKey(name);
+    public boolean contains(Ident ident) {
+        return find(ident) != null;
     }
 
     public void insertSymbol(Symbol symbol) {
-        symbolMap.put(symbol.ident, symbol);
         symbol.table = this;
+
+        if (symbols == null) {
+            symbols = new Symbol[4];
+        }
+        int mask = symbols.length - 1;
+        int i = symbol.ident.getId() & mask;
+        while (symbols[i] != null) {
+            if (symbols[i].ident == symbol.ident) {
+                symbols[i] = symbol;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        symbols[i] = symbol;
+
+        if (++size * 2 > symbols.length) {
+            grow();
+        }
     }
 
-    public Symbol getSymbol(String ident) {
-        if (symbolMap.containsKey(ident)) {
-            return symbolMap.get(ident);
+    public Symbol getSymbol(Ident ident) {
+        for (var table = this; table != null; table = table.preTable) {
+            var symbol = table.find(ident);
+            if (symbol != null) {
+                return symbol;
+            }
         }
+        return null;
+    }
 
-        if (preTable != null) {
-            return preTable.getSymbol(ident);
-        } else {
+    private Symbol find(Ident ident) {
+        if (symbols == null) {
             return null;
         }
+        int mask = symbols.length - 1;
+        for (int i = ident.getId() & mask; symbols[i] != null; i = (i + 1) & mask) {
+            if (symbols[i].ident == ident) {
+                return symbols[i];
+            }
+        }
+        return null;
+    }
+
+    private void grow() {
+        var oldSymbols = symbols;
+        symbols = new Symbol[oldSymbols.length * 2];
+        int mask = symbols.length - 1;
+        for (var symbol : oldSymbols) {
+            if (symbol != null) {
+                int i = symbol.ident.getId() & mask;
+                while (symbols[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                symbols[i] = symbol;
+            }
+        }
     }
 
     public SymbolTable createSubTable() {
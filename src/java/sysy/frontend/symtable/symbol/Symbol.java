@@ -1,10 +1,11 @@
 package sysy.frontend.symtable.symbol;
 
 import sysy.backend.ir.Value;
+import sysy.frontend.lexer.Ident;
 import sysy.frontend.symtable.SymbolTable;
 
 public abstract class Symbol {
-    public String ident;
+    public Ident ident;
     public SymbolTable table;
     public Value targetValue;
 }
@@ -5,18 +5,51 @@ import sysy.backend.ir.Module;
 import sysy.backend.ir.inst.*;
 import sysy.error.CompileErrorType;
 import sysy.error.ErrorRecorder;
+import sysy.frontend.lexer.Ident;
 import sysy.frontend.lexer.LexType;
+import sysy.frontend.parser.FlatSyntaxTree;
+import sysy.frontend.parser.FlatTreeAdapter;
 import sysy.frontend.parser.syntaxtree.*;
 import sysy.frontend.symtable.SymbolTable;
 import sysy.frontend.symtable.symbol.FunctionSymbol;
 import sysy.frontend.symtable.symbol.Type;
 import sysy.frontend.symtable.symbol.VarSymbol;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Stack;
 
 public class Visitor {
+    private static class IfElseState {
+        VisitResult cond;
+        BasicBlock trueBlock;
+        BasicBlock lastBlockInTrue;
+        BasicBlock falseBlock;
+    }
+
+    private static class LoopState {
+        VisitResult cond;
+        BasicBlock loopEntryBlock;
+        BasicBlock stmtBlock;
+    }
+
+    // a block, if or loop of a flat tree whose sub statements are being visited
+    private static class FlatStmtFrame {
+        final int node;
+        int next; // the next sub statement
+        int stage = 0;
+        boolean isScope = false;
+        IfElseState ifElse;
+        LoopState loop;
+
+        FlatStmtFrame(int node, int next) {
+            this.node = node;
+            this.next = next;
+        }
+    }
+
     private final Module irModule = new Module();
     private Function currFunction = null;
     private BasicBlock currBasicBlock = null;
@@ -37,23 +70,25 @@ public class Visitor {
     }
 
     public VisitResult visitAddExpNodeForDouble(AddExpNodeForDouble elm) {
+        return visitAdd(elm.op, visitAddExpNode(elm.addExp), visitMulExpNode(elm.mulExp));
+    }
+
+    private VisitResult visitAdd(LexType op, VisitResult r1, VisitResult r2) {
         var rt = new VisitResult();
-        var r1 = visitAddExpNode(elm.addExp);
-        var r2 = visitMulExpNode(elm.mulExp);
         var val1 = r1.constVal;
         var val2 = r2.constVal;
 
         assert r1.expType.equals(r2.expType);
         rt.expType = r1.expType;
         if (val1 != null && val2 != null) {
-            if (elm.op == LexType.PLUS) {
+            if (op == LexType.PLUS) {
                 rt.constVal = val1 + val2;
             } else {
                 rt.constVal = val1 - val2;
             }
         }
         if (currBasicBlock != null) {
-            if (elm.op == LexType.PLUS) {
+            if (op == LexType.PLUS) {
                 rt.irValue = currBasicBlock.createAddInst(r1.irValue, r2.irValue);
             } else {
                 rt.irValue = currBasicBlock.createSubInst(r1.irValue, r2.irValue);
@@ -91,6 +126,10 @@ public class Visitor {
     }
 
     public void visitBlockNode(BlockNode elm) {
+        if (elm instanceof BlockNodeForFlat e) {
+            visitFlatBlock(e.adapter, e.node);
+            return;
+        }
         for (var blockItem : elm.blockItems) {
             visitBlockItemNode(blockItem);
         }
@@ -110,6 +149,25 @@ public class Visitor {
         }
     }
 
+    public Module generateIR(FlatSyntaxTree tree) {
+        // same as visitCompUnitNode, but only one top level item is turned into syntax tree objects at a time
+        var adapter = new FlatTreeAdapter(tree, true);
+        int item = tree.getFirstChild(tree.getRoot());
+
+        isGlobalVar = true;
+        for (; tree.getKind(item) == FlatSyntaxTree.Kind.CONST_DECL || tree.getKind(item) == FlatSyntaxTree.Kind.VAR_DECL; item = tree.getNextSibling(item)) {
+            visitDeclNode(adapter.toDecl(item));
+        }
+        isGlobalVar = false;
+
+        for (; tree.getKind(item) == FlatSyntaxTree.Kind.FUNC_DEF; item = tree.getNextSibling(item)) {
+            visitFuncDefNode(adapter.toFuncDef(item));
+        }
+
+        visitMainFuncDefNode(adapter.toMainFuncDef(item));
+        return irModule;
+    }
+
     public void visitCompUnitNode(CompUnitNode elm) {
         isGlobalVar = true;
         for (var declare : elm.declares) {
@@ -125,6 +183,9 @@ public class Visitor {
     }
 
     public VisitResult visitCondNode(CondNode elm) {
+        if (elm instanceof CondNodeForFlat e) {
+            return visitFlatLOrExp(e.adapter, e.node);
+        }
         return visitLOrExpNode(elm.lOrExp);
     }
 
@@ -155,7 +216,7 @@ public class Visitor {
 
         if (isGlobalVar) {
             var globalVar = irModule.createGlobalValue(IRType.getInt().dims(varSym.varType.dims), varSym.values);
-            globalVar.setName(varSym.ident);
+            globalVar.setName(varSym.ident.getName());
             varSym.targetValue = globalVar;
         } else {
             var localVar = currFunction.getFirstBasicBlock().createAllocaInstAndInsertToFront(IRType.getInt().dims(varSym.varType.dims));
@@ -172,10 +233,10 @@ public class Visitor {
                     }
 
                     var initVal = initValues.get(i);
-                    var arrayPtr = currBasicBlock.createGetElementPtrInst(varSym.targetValue, List.of(new ImmediateValue(0), new ImmediateValue(0)));
+                    var arrayPtr = currBasicBlock.createGetElementPtrInst(varSym.targetValue, List.of(irModule.getImmediateValue(0), irModule.getImmediateValue(0)));
                     for (int j = 0; j < idxs.length; j++) {
                         var visitIdx = idxs[j];
-                        List<Value> offsets = j == idxs.length - 1 ? List.of(new ImmediateValue(visitIdx)) : List.of(new ImmediateValue(visitIdx), new ImmediateValue(0));
+                        List<Value> offsets = j == idxs.length - 1 ? List.of(irModule.getImmediateValue(visitIdx)) : List.of(irModule.getImmediateValue(visitIdx), irModule.getImmediateValue(0));
                         arrayPtr = currBasicBlock.createGetElementPtrInst(arrayPtr, offsets);
                     }
                     currBasicBlock.createStoreInst(initVal, arrayPtr);
@@ -187,7 +248,7 @@ public class Visitor {
     }
 
     public VisitResult visitConstExpNode(ConstExpNode elm) {
-        var rt = visitAddExpNode(elm.addExp);
+        var rt = elm instanceof ConstExpNodeForFlat e ? visitFlatExp(e.adapter, e.node) : visitAddExpNode(elm.addExp);
         assert rt.constVal != null;
         return rt;
     }
@@ -235,9 +296,11 @@ public class Visitor {
     }
 
     public VisitResult visitEqExpNodeForDouble(EqExpNodeForDouble elm) {
+        return visitEq(elm.op, visitEqExpNode(elm.eqExp), visitRelExpNode(elm.relExp));
+    }
+
+    private VisitResult visitEq(LexType op, VisitResult r1, VisitResult r2) {
         var rt = new VisitResult();
-        var r1 = visitEqExpNode(elm.eqExp);
-        var r2 = visitRelExpNode(elm.relExp);
 
         if (r1.irValue instanceof ICmpInst) {
             r1.irValue = currBasicBlock.createZExtInst(IRType.getInt(), r1.irValue);
@@ -246,7 +309,7 @@ public class Visitor {
             r2.irValue = currBasicBlock.createZExtInst(IRType.getInt(), r2.irValue);
         }
 
-        ICmpInstCond cond = elm.op == LexType.EQL ? ICmpInstCond.EQ : ICmpInstCond.NE;
+        ICmpInstCond cond = op == LexType.EQL ? ICmpInstCond.EQ : ICmpInstCond.NE;
         rt.irValue = currBasicBlock.createICmpInst(cond, r1.irValue, r2.irValue);
         return rt;
     }
@@ -264,9 +327,227 @@ public class Visitor {
     }
 
     public VisitResult visitExpNode(ExpNode elm) {
+        if (elm instanceof ExpNodeForFlat e) {
+            return visitFlatExp(e.adapter, e.node);
+        }
         return visitAddExpNode(elm.addExp);
     }
 
+    // the statements of a flat tree, the same as visitBlockNode and visitStmtNode would do for a syntax tree. the
+    // blocks, ifs and loops that are being visited are kept on a stack, so that nesting does not use the call stack
+    public void visitFlatBlock(FlatTreeAdapter adapter, int block) {
+        var tree = adapter.getTree();
+        var frames = new ArrayDeque<FlatStmtFrame>();
+        frames.push(new FlatStmtFrame(block, tree.getFirstChild(block)));
+        while (!frames.isEmpty()) {
+            int stmt = nextFlatStmt(adapter, frames.peek());
+            if (stmt == FlatSyntaxTree.NONE) {
+                frames.pop();
+                continue;
+            }
+
+            int child = tree.getFirstChild(stmt);
+            switch (tree.getKind(stmt)) {
+                case CONST_DECL, VAR_DECL -> visitDeclNode(adapter.toDecl(stmt));
+                case BLOCK -> {
+                    currTable = currTable.createSubTable();
+                    var frame = new FlatStmtFrame(stmt, child);
+                    frame.isScope = true;
+                    frames.push(frame);
+                }
+                case STMT_IF_ELSE -> {
+                    var frame = new FlatStmtFrame(stmt, tree.getNextSibling(child));
+                    frame.ifElse = beginIfElse(visitCondNode(adapter.toCond(child)));
+                    frames.push(frame);
+                }
+                case STMT_LOOP -> {
+                    int cond = tree.getNextSibling(child);
+                    int body = tree.getNextSibling(tree.getNextSibling(cond));
+                    var frame = new FlatStmtFrame(stmt, body);
+                    frame.loop = beginLoop(
+                            tree.getKind(child) == FlatSyntaxTree.Kind.EMPTY ? null : adapter.toForStmt(child),
+                            tree.getKind(cond) == FlatSyntaxTree.Kind.EMPTY ? null : adapter.toCond(cond));
+                    frames.push(frame);
+                }
+                default -> visitStmtNode(adapter.toStmt(stmt));
+            }
+        }
+    }
+
+    // does what comes between the sub statements of a frame, and returns the next one, or NONE once the frame is done
+    private int nextFlatStmt(FlatTreeAdapter adapter, FlatStmtFrame frame) {
+        var tree = adapter.getTree();
+        int next = frame.next;
+        switch (tree.getKind(frame.node)) {
+            case BLOCK -> {
+                if (next == FlatSyntaxTree.NONE) {
+                    if (frame.isScope) {
+                        currTable = currTable.getPreTable();
+                    }
+                    return FlatSyntaxTree.NONE;
+                }
+                frame.next = tree.getNextSibling(next);
+                return next;
+            }
+            case STMT_IF_ELSE -> {
+                if (frame.stage == 0) {
+                    frame.stage = 1;
+                    frame.next = tree.getNextSibling(next);
+                    return next;
+                }
+                if (frame.stage == 1) {
+                    beginElse(frame.ifElse);
+                    if (next != FlatSyntaxTree.NONE) {
+                        frame.stage = 2;
+                        return next;
+                    }
+                } else {
+                    endElse();
+                }
+                endIfElse(frame.ifElse);
+                return FlatSyntaxTree.NONE;
+            }
+            default -> {
+                if (frame.stage == 0) {
+                    frame.stage = 1;
+                    return next;
+                }
+                int forStmt2 = tree.getNextSibling(tree.getNextSibling(tree.getFirstChild(frame.node)));
+                endLoop(frame.loop, tree.getKind(forStmt2) == FlatSyntaxTree.Kind.EMPTY ? null : adapter.toForStmt(forStmt2));
+                return FlatSyntaxTree.NONE;
+            }
+        }
+    }
+
+    // an expression of a condensed tree, where each operator is visited once instead of once per level of the grammar.
+    // a node is left once all of its children are, and the results of the children wait on a stack until then, so that
+    // neither long nor deeply nested expressions use the call stack
+    public VisitResult visitFlatExp(FlatTreeAdapter adapter, int root) {
+        var tree = adapter.getTree();
+        int[] nodes = new int[16];
+        int[] nextChildren = new int[16];
+        int[] resultBases = new int[16];
+        Object[] symbols = new Object[16];
+        int depth = 0;
+        var results = new ArrayList<VisitResult>();
+
+        int node = root;
+        while (true) {
+            var kind = tree.getKind(node);
+            int child = tree.getFirstChild(node);
+            Object sym = null;
+            VisitResult rt = null;
+            if (kind == FlatSyntaxTree.Kind.NUMBER) {
+                rt = visitNumber(tree.getTokenValue(tree.getToken(node)));
+            } else if (kind == FlatSyntaxTree.Kind.LVAL || kind == FlatSyntaxTree.Kind.FUNC_CALL) {
+                int token = tree.getToken(node);
+                if (kind == FlatSyntaxTree.Kind.LVAL) {
+                    sym = lookUpLVal(tree.getTokenIdent(token), tree.getTokenLineNum(token));
+                } else {
+                    sym = lookUpFunction(tree.getTokenIdent(token), tree.getTokenLineNum(token));
+                }
+                if (sym == null) {
+                    rt = visitUndefinedName();
+                } else if (child == FlatSyntaxTree.NONE) {
+                    rt = leaveFlatExp(tree, node, sym, List.of());
+                }
+            }
+
+            if (rt == null) {
+                if (depth == nodes.length) {
+                    nodes = Arrays.copyOf(nodes, depth * 2);
+                    nextChildren = Arrays.copyOf(nextChildren, depth * 2);
+                    resultBases = Arrays.copyOf(resultBases, depth * 2);
+                    symbols = Arrays.copyOf(symbols, depth * 2);
+                }
+                nodes[depth] = node;
+                nextChildren[depth] = tree.getNextSibling(child);
+                resultBases[depth] = results.size();
+                symbols[depth] = sym;
+                depth++;
+                node = child;
+                continue;
+            }
+            results.add(rt);
+
+            while (depth > 0 && nextChildren[depth - 1] == FlatSyntaxTree.NONE) {
+                depth--;
+                var childResults = results.subList(resultBases[depth], results.size());
+                rt = leaveFlatExp(tree, nodes[depth], symbols[depth], childResults);
+                childResults.clear();
+                results.add(rt);
+            }
+            if (depth == 0) {
+                return results.get(0);
+            }
+            node = nextChildren[depth - 1];
+            nextChildren[depth - 1] = tree.getNextSibling(node);
+        }
+    }
+
+    private VisitResult leaveFlatExp(FlatSyntaxTree tree, int node, Object sym, List<VisitResult> children) {
+        var kind = tree.getKind(node);
+        return switch (kind) {
+            case LVAL -> loadLVal(visitLVal((VarSymbol) sym, children));
+            case FUNC_CALL -> {
+                VisitResult params = null;
+                if (!children.isEmpty()) {
+                    params = new VisitResult();
+                    for (var r : children) {
+                        params.paramTypes.add(r.expType);
+                        params.irValues.add(r.irValue);
+                    }
+                }
+                yield visitFuncCall((FunctionSymbol) sym, tree.getTokenLineNum(tree.getToken(node)), params);
+            }
+            case PAREN_EXP -> children.get(0);
+            case POS, NEG, NOT -> visitUnary(kind.getOp(), children.get(0));
+            case ADD, SUB -> visitAdd(kind.getOp(), children.get(0), children.get(1));
+            case MUL, DIV, MOD -> visitMul(kind.getOp(), children.get(0), children.get(1));
+            case LSS, GRE, LEQ, GEQ -> visitRel(kind.getOp(), children.get(0), children.get(1));
+            case EQL, NEQ -> visitEq(kind.getOp(), children.get(0), children.get(1));
+            default -> throw new RuntimeException(); // impossible
+        };
+    }
+
+    // a chain a && b && c is nested to the left, so it is visited from its innermost node outwards
+    public VisitResult visitFlatLAndExp(FlatTreeAdapter adapter, int node) {
+        var tree = adapter.getTree();
+        int[] chain = leftChainOf(tree, node, FlatSyntaxTree.Kind.AND);
+        var rt = new VisitResult();
+        branchOnLAndOperand(rt, visitFlatExp(adapter, chain.length == 0 ? node : tree.getFirstChild(chain[chain.length - 1])));
+        for (int i = chain.length - 1; i >= 0; i--) {
+            var r1 = rt;
+            rt = new VisitResult();
+            continueLAnd(rt, r1);
+            branchOnLAndOperand(rt, visitFlatExp(adapter, tree.getNextSibling(tree.getFirstChild(chain[i]))));
+        }
+        return rt;
+    }
+
+    public VisitResult visitFlatLOrExp(FlatTreeAdapter adapter, int node) {
+        var tree = adapter.getTree();
+        int[] chain = leftChainOf(tree, node, FlatSyntaxTree.Kind.OR);
+        var rt = visitLOr(visitFlatLAndExp(adapter, chain.length == 0 ? node : tree.getFirstChild(chain[chain.length - 1])));
+        for (int i = chain.length - 1; i >= 0; i--) {
+            rt = visitLOr(rt, visitFlatLAndExp(adapter, tree.getNextSibling(tree.getFirstChild(chain[i]))));
+        }
+        return rt;
+    }
+
+    // the nodes of the given kind from node down its first children, outermost first
+    private static int[] leftChainOf(FlatSyntaxTree tree, int node, FlatSyntaxTree.Kind kind) {
+        int length = 0;
+        for (int n = node; tree.getKind(n) == kind; n = tree.getFirstChild(n)) {
+            length++;
+        }
+        int[] chain = new int[length];
+        for (int i = 0, n = node; i < length; i++, n = tree.getFirstChild(n)) {
+            chain[i] = n;
+        }
+        return chain;
+    }
+
     public void visitForStmtNode(ForStmtNode elm) {
         var r1 = visitLValNode(elm.lVal);
         var r2 = visitExpNode(elm.exp);
@@ -303,7 +584,7 @@ public class Visitor {
             }
         }
         currFunction = irModule.createFunction(sym.retType.type.equals("void") ? IRType.getVoid() : IRType.getInt(), irArgTypes);
-        currFunction.setName(sym.ident);
+        currFunction.setName(sym.ident.getName());
         sym.targetValue = currFunction;
         currBasicBlock = currFunction.createBasicBlock();
         currBasicBlock.setLoopNum(isInLoop);
@@ -415,38 +696,32 @@ public class Visitor {
 
     public VisitResult visitLAndExpNodeForDouble(LAndExpNodeForDouble elm) {
         var rt = new VisitResult();
-
-        var r1 = visitLAndExpNode(elm.lAndExp);
-        var lastAndBlock = r1.andBlocks.get(r1.andBlocks.size()-1);
-        var brInLastAndBlock = (BrInst)lastAndBlock.getInstructions().get(lastAndBlock.getInstructions().size()-1);
-        brInLastAndBlock.setTrueBranch(currBasicBlock);
-        rt.andBlocks.addAll(r1.andBlocks);
-
-        var r2 = visitEqExpNode(elm.eqExp);
-        if (!(r2.irValue instanceof ICmpInst)) {
-            r2.irValue = currBasicBlock.createICmpInst(ICmpInstCond.NE, new ImmediateValue(0), r2.irValue);
-        }
-        currBasicBlock.createBrInstWithCond(r2.irValue, null, null);
-        rt.andBlocks.add(currBasicBlock);
-        currBasicBlock = currFunction.createBasicBlock();
-        currBasicBlock.setLoopNum(isInLoop);
-
+        continueLAnd(rt, visitLAndExpNode(elm.lAndExp));
+        branchOnLAndOperand(rt, visitEqExpNode(elm.eqExp));
         return rt;
     }
 
     public VisitResult visitLAndExpNodeForSingle(LAndExpNodeForSingle elm) {
         var rt = new VisitResult();
+        branchOnLAndOperand(rt, visitEqExpNode(elm.eqExp));
+        return rt;
+    }
+
+    private void continueLAnd(VisitResult rt, VisitResult r1) {
+        var lastAndBlock = r1.andBlocks.get(r1.andBlocks.size()-1);
+        var brInLastAndBlock = (BrInst)lastAndBlock.getInstructions().getLast();
+        brInLastAndBlock.setTrueBranch(currBasicBlock);
+        rt.andBlocks = r1.andBlocks; // r1 is done with, and copying would make a long chain quadratic
+    }
 
-        var r = visitEqExpNode(elm.eqExp);
+    private void branchOnLAndOperand(VisitResult rt, VisitResult r) {
         if (!(r.irValue instanceof ICmpInst)) {
-            r.irValue = currBasicBlock.createICmpInst(ICmpInstCond.NE, new ImmediateValue(0), r.irValue);
+            r.irValue = currBasicBlock.createICmpInst(ICmpInstCond.NE, irModule.getImmediateValue(0), r.irValue);
         }
         currBasicBlock.createBrInstWithCond(r.irValue, null, null);
         rt.andBlocks.add(currBasicBlock);
         currBasicBlock = currFunction.createBasicBlock();
         currBasicBlock.setLoopNum(isInLoop);
-
-        return rt;
     }
 
     public VisitResult visitLAndExpNode(LAndExpNode elm) {
@@ -458,16 +733,16 @@ public class Visitor {
     }
 
     public VisitResult visitLOrExpNodeForDouble(LOrExpNodeForDouble elm) {
-        var rt = new VisitResult();
-
-        var r1 = visitLOrExpNode(elm.lOrExp);
-        rt.blocksToTrue.addAll(r1.blocksToTrue);
+        return visitLOr(visitLOrExpNode(elm.lOrExp), visitLAndExpNode(elm.lAndExp));
+    }
 
-        var r2 = visitLAndExpNode(elm.lAndExp);
+    private VisitResult visitLOr(VisitResult r1, VisitResult r2) {
+        var rt = new VisitResult();
+        rt.blocksToTrue = r1.blocksToTrue;
         rt.blocksToTrue.add(r2.andBlocks.get(r2.andBlocks.size()-1));
         var firstAndBlock = r2.andBlocks.get(0);
         for (var nearAndBlock : r1.nearAndBlocks) {
-            var brInst = (BrInst)nearAndBlock.getInstructions().get(nearAndBlock.getInstructions().size()-1);
+            var brInst = (BrInst)nearAndBlock.getInstructions().getLast();
             brInst.setFalseBranch(firstAndBlock);
         }
         rt.nearAndBlocks.addAll(r2.andBlocks);
@@ -477,9 +752,11 @@ public class Visitor {
     }
 
     public VisitResult visitLOrExpNodeForSingle(LOrExpNodeForSingle elm) {
-        var rt = new VisitResult();
+        return visitLOr(visitLAndExpNode(elm.lAndExp));
+    }
 
-        var r = visitLAndExpNode(elm.lAndExp);
+    private VisitResult visitLOr(VisitResult r) {
+        var rt = new VisitResult();
         rt.blocksToTrue.add(r.andBlocks.get(r.andBlocks.size()-1));
         rt.nearAndBlocks.addAll(r.andBlocks);
         rt.blocksToFalse.addAll(rt.nearAndBlocks);
@@ -496,20 +773,39 @@ public class Visitor {
     }
 
     public VisitResult visitLValNode(LValNode elm) {
-        var rt = new VisitResult();
+        var varSym = lookUpLVal(elm.ident, elm.identLineNum);
+        if (varSym == null) {
+            return visitUndefinedName();
+        }
+
+        List<VisitResult> dims = new ArrayList<>();
+        for (var dim : elm.dimensions) {
+            dims.add(visitExpNode(dim));
+        }
+        return visitLVal(varSym, dims);
+    }
 
-        var sym = currTable.getSymbol(elm.ident);
+    private VarSymbol lookUpLVal(Ident ident, int identLineNum) {
+        var sym = currTable.getSymbol(ident);
         if (sym == null) {
-            errorRecorder.addError(CompileErrorType.UNDEFINED_NAME, elm.identLineNum);
-            rt.expType.type = "int";
-            return rt;
+            errorRecorder.addError(CompileErrorType.UNDEFINED_NAME, identLineNum);
+            return null;
         }
-        var varSym = (VarSymbol) sym;
+        return (VarSymbol) sym;
+    }
+
+    private VisitResult visitUndefinedName() {
+        var rt = new VisitResult();
+        rt.expType.type = "int"; // maybe wrong
+        return rt;
+    }
+
+    private VisitResult visitLVal(VarSymbol varSym, List<VisitResult> indices) {
+        var rt = new VisitResult();
 
         List<Integer> accessDims = new ArrayList<>();
         List<Value> irVisitDims = new ArrayList<>();
-        for (var dim : elm.dimensions) {
-            var rtExp = visitExpNode(dim);
+        for (var rtExp : indices) {
             accessDims.add(rtExp.constVal);
             irVisitDims.add(rtExp.irValue);
         }
@@ -559,12 +855,12 @@ public class Visitor {
                 if (symValue instanceof AllocaInst allcaSymVal && allcaSymVal.getDataType().getPtrNum() != 0) {
                     arrayPtr = currBasicBlock.createLoadInst(symValue);
                 } else {
-                    arrayPtr = currBasicBlock.createGetElementPtrInst(symValue, List.of(new ImmediateValue(0), new ImmediateValue(0)));
+                    arrayPtr = currBasicBlock.createGetElementPtrInst(symValue, List.of(irModule.getImmediateValue(0), irModule.getImmediateValue(0)));
                 }
 
                 for (int i = 0; i < irVisitDims.size(); i++) {
                     var visitDim = irVisitDims.get(i);
-                    var offsets = (i == dims.size() - 1) ? List.of(visitDim) : List.of(visitDim, new ImmediateValue(0));
+                    var offsets = (i == dims.size() - 1) ? List.of(visitDim) : List.of(visitDim, irModule.getImmediateValue(0));
                     arrayPtr = currBasicBlock.createGetElementPtrInst(arrayPtr, offsets);
                 }
 
@@ -572,7 +868,7 @@ public class Visitor {
                 rt.lvalLoadNotNeed = dims.size() != irVisitDims.size();
             } else {
                 if (varSym.isConst) {
-                    rt.irValue = new ImmediateValue(varSym.values.get(0));
+                    rt.irValue = irModule.getImmediateValue(varSym.values.get(0));
                     rt.lvalLoadNotNeed = true;
                 } else {
                     rt.irValue = varSym.targetValue;
@@ -586,7 +882,7 @@ public class Visitor {
     public void visitMainFuncDefNode(MainFuncDefNode elm) {
         var sym = new FunctionSymbol();
         sym.retType.type = "int";
-        sym.ident = "main";
+        sym.ident = new Ident("main");
         currTable.insertSymbol(sym);
 
         currTable = currTable.createSubTable();
@@ -613,9 +909,11 @@ public class Visitor {
     }
 
     public VisitResult visitMulExpNodeForDouble(MulExpNodeForDouble elm) {
+        return visitMul(elm.op, visitMulExpNode(elm.mulExp), visitUnaryExpNode(elm.unaryExp));
+    }
+
+    private VisitResult visitMul(LexType op, VisitResult r1, VisitResult r2) {
         var rt = new VisitResult();
-        var r1 = visitMulExpNode(elm.mulExp);
-        var r2 = visitUnaryExpNode(elm.unaryExp);
         var val1 = r1.constVal;
         var val2 = r2.constVal;
 
@@ -623,18 +921,18 @@ public class Visitor {
         rt.expType = r1.expType;
 
         if (val1 != null && val2 != null) {
-            if (elm.op == LexType.MULT) {
+            if (op == LexType.MULT) {
                 rt.constVal = val1 * val2;
-            } else if (elm.op == LexType.DIV) {
+            } else if (op == LexType.DIV) {
                 rt.constVal = val1 / val2;
             } else {
                 rt.constVal = val1 % val2;
             }
         }
         if (currBasicBlock != null) {
-            if (elm.op == LexType.MULT) {
+            if (op == LexType.MULT) {
                 rt.irValue = currBasicBlock.createMulInst(r1.irValue, r2.irValue);
-            } else if (elm.op == LexType.DIV) {
+            } else if (op == LexType.DIV) {
                 rt.irValue = currBasicBlock.createSDivInst(r1.irValue, r2.irValue);
             } else {
                 rt.irValue = currBasicBlock.createSRemInst(r1.irValue, r2.irValue);
@@ -657,10 +955,14 @@ public class Visitor {
     }
 
     public VisitResult visitNumberNode(NumberNode elm) {
+        return visitNumber(elm.intConst);
+    }
+
+    private VisitResult visitNumber(String intConst) {
         var rt = new VisitResult();
         rt.expType.type = "int";
-        rt.constVal = Integer.parseInt(elm.intConst);
-        rt.irValue = new ImmediateValue(rt.constVal);
+        rt.constVal = Integer.parseInt(intConst);
+        rt.irValue = irModule.getImmediateValue(rt.constVal);
         return rt;
     }
 
@@ -669,7 +971,10 @@ public class Visitor {
     }
 
     public VisitResult visitPrimaryExpNodeForLVal(PrimaryExpNodeForLVal elm) {
-        var r = visitLValNode(elm.lVal);
+        return loadLVal(visitLValNode(elm.lVal));
+    }
+
+    private VisitResult loadLVal(VisitResult r) {
         if (currBasicBlock != null) {
             if (r.lvalLoadNotNeed) {
                 return r;
@@ -694,9 +999,11 @@ public class Visitor {
     }
 
     public VisitResult visitRelExpNodeForDouble(RelExpNodeForDouble elm) {
+        return visitRel(elm.op, visitRelExpNode(elm.relExp), visitAddExpNode(elm.addExp));
+    }
+
+    private VisitResult visitRel(LexType op, VisitResult r1, VisitResult r2) {
         var rt = new VisitResult();
-        var r1 = visitRelExpNode(elm.relExp);
-        var r2 = visitAddExpNode(elm.addExp);
 
         if (r1.irValue instanceof ICmpInst) {
             r1.irValue = currBasicBlock.createZExtInst(IRType.getInt(), r1.irValue);
@@ -705,7 +1012,7 @@ public class Visitor {
             r2.irValue = currBasicBlock.createZExtInst(IRType.getInt(), r2.irValue);
         }
 
-        ICmpInstCond cond = switch (elm.op) {
+        ICmpInstCond cond = switch (op) {
             case LSS -> ICmpInstCond.SLT;
             case GRE -> ICmpInstCond.SGT;
             case LEQ -> ICmpInstCond.SLE;
@@ -779,66 +1086,92 @@ public class Visitor {
         if (lValSym instanceof VarSymbol lValVarSym && lValVarSym.isConst) {
             errorRecorder.addError(CompileErrorType.TRY_TO_CHANGE_VAL_OF_CONST, elm.lVal.identLineNum);
         }
-        var getIntVal = currBasicBlock.createCallInst(Function.BUILD_IN_GETINT, List.of());
+        var getIntVal = currBasicBlock.createCallInst(irModule.getBuildInGetInt(), List.of());
         currBasicBlock.createStoreInst(getIntVal, r.irValue);
     }
 
+    // an if or loop is visited in steps around its sub statements, so that visitFlatBlock can do the same steps
     public void visitStmtNodeForIfElse(StmtNodeForIfElse elm) {
-        var r = visitCondNode(elm.cond);
-
-        var trueBlock = currBasicBlock;
+        var state = beginIfElse(visitCondNode(elm.cond));
         visitStmtNode(elm.ifStmt);
+        beginElse(state);
+        if (elm.elseStmt != null) {
+            visitStmtNode(elm.elseStmt);
+            endElse();
+        }
+        endIfElse(state);
+    }
+
+    private IfElseState beginIfElse(VisitResult cond) {
+        var state = new IfElseState();
+        state.cond = cond;
+        state.trueBlock = currBasicBlock;
+        return state;
+    }
 
-        var lastBlockInTrue = currBasicBlock;
+    private void beginElse(IfElseState state) {
+        state.lastBlockInTrue = currBasicBlock;
         currBasicBlock = currFunction.createBasicBlock();
         currBasicBlock.setLoopNum(isInLoop);
 
-        var falseBlock = currBasicBlock;
+        state.falseBlock = currBasicBlock;
+    }
 
-        if (elm.elseStmt != null) {
-            visitStmtNode(elm.elseStmt);
-            var lastBlockInFalse = currBasicBlock;
-            currBasicBlock = currFunction.createBasicBlock();
-            currBasicBlock.setLoopNum(isInLoop);
+    private void endElse() {
+        var lastBlockInFalse = currBasicBlock;
+        currBasicBlock = currFunction.createBasicBlock();
+        currBasicBlock.setLoopNum(isInLoop);
 
-            lastBlockInFalse.createBrInstWithoutCond(currBasicBlock);
-        }
-        lastBlockInTrue.createBrInstWithoutCond(currBasicBlock);
+        lastBlockInFalse.createBrInstWithoutCond(currBasicBlock);
+    }
+
+    private void endIfElse(IfElseState state) {
+        state.lastBlockInTrue.createBrInstWithoutCond(currBasicBlock);
 
-        for (var blockToTrue : r.blocksToTrue) {
-            var brInst = (BrInst)blockToTrue.getInstructions().get(blockToTrue.getInstructions().size()-1);
-            brInst.setTrueBranch(trueBlock);
+        for (var blockToTrue : state.cond.blocksToTrue) {
+            var brInst = (BrInst)blockToTrue.getInstructions().getLast();
+            brInst.setTrueBranch(state.trueBlock);
         }
 
-        for (var blockToFalse : r.blocksToFalse) {
-            var brInst = (BrInst)blockToFalse.getInstructions().get(blockToFalse.getInstructions().size()-1);
-            brInst.setFalseBranch(falseBlock);
+        for (var blockToFalse : state.cond.blocksToFalse) {
+            var brInst = (BrInst)blockToFalse.getInstructions().getLast();
+            brInst.setFalseBranch(state.falseBlock);
         }
     }
 
     public void visitStmtNodeForLoop(StmtNodeForLoop elm) {
+        var state = beginLoop(elm.forStmt1, elm.cond);
+        visitStmtNode(elm.stmt);
+        endLoop(state, elm.forStmt2);
+    }
+
+    private LoopState beginLoop(ForStmtNode forStmt1, CondNode cond) {
+        var state = new LoopState();
         breakBrInsts.push(new ArrayList<>());
         continueBrInsts.push(new ArrayList<>());
 
         var forStmt1Block = currBasicBlock;
-        if (elm.forStmt1 != null) {
-            visitForStmtNode(elm.forStmt1);
+        if (forStmt1 != null) {
+            visitForStmtNode(forStmt1);
         }
 
         currBasicBlock = currFunction.createBasicBlock();
         currBasicBlock.setLoopNum(isInLoop);
 
         forStmt1Block.createBrInstWithoutCond(currBasicBlock);
-        var loopEntryBlock = currBasicBlock;
+        state.loopEntryBlock = currBasicBlock;
 
-        var condRt = new VisitResult();
-        if (elm.cond != null) {
-            condRt = visitCondNode(elm.cond);
+        state.cond = new VisitResult();
+        if (cond != null) {
+            state.cond = visitCondNode(cond);
         }
-        var stmtBlock = currBasicBlock;
+        state.stmtBlock = currBasicBlock;
 
         isInLoop++;
-        visitStmtNode(elm.stmt);
+        return state;
+    }
+
+    private void endLoop(LoopState state, ForStmtNode forStmt2) {
         isInLoop--;
 
         var lastBlockInStmt = currBasicBlock;
@@ -848,23 +1181,23 @@ public class Visitor {
         lastBlockInStmt.createBrInstWithoutCond(currBasicBlock);
         var forStmt2Block = currBasicBlock;
 
-        if (elm.forStmt2 != null) {
-            visitForStmtNode(elm.forStmt2);
+        if (forStmt2 != null) {
+            visitForStmtNode(forStmt2);
         }
-        forStmt2Block.createBrInstWithoutCond(loopEntryBlock);
+        forStmt2Block.createBrInstWithoutCond(state.loopEntryBlock);
 
         currBasicBlock = currFunction.createBasicBlock();
         currBasicBlock.setLoopNum(isInLoop);
 
         var loopExitBlock = currBasicBlock;
 
-        for (var blockToTrue : condRt.blocksToTrue) {
-            var brInst = (BrInst)blockToTrue.getInstructions().get(blockToTrue.getInstructions().size()-1);
-            brInst.setTrueBranch(stmtBlock);
+        for (var blockToTrue : state.cond.blocksToTrue) {
+            var brInst = (BrInst)blockToTrue.getInstructions().getLast();
+            brInst.setTrueBranch(state.stmtBlock);
         }
 
-        for (var blockToFalse : condRt.blocksToFalse) {
-            var brInst = (BrInst)blockToFalse.getInstructions().get(blockToFalse.getInstructions().size()-1);
+        for (var blockToFalse : state.cond.blocksToFalse) {
+            var brInst = (BrInst)blockToFalse.getInstructions().getLast();
             brInst.setFalseBranch(loopExitBlock);
         }
 
@@ -893,13 +1226,13 @@ public class Visitor {
             for (int i = 1, j = 0; i < elm.formatString.length() - 1; i++) {
                 char ch = elm.formatString.charAt(i);
                 if (ch == '%') {
-                    currBasicBlock.createCallInst(Function.BUILD_IN_PUTINT, List.of(expValues.get(j++)));
+                    currBasicBlock.createCallInst(irModule.getBuildInPutInt(), List.of(expValues.get(j++)));
                     i++;
                 } else if (ch == '\\') {
-                    currBasicBlock.createCallInst(Function.BUILD_IN_PUTCH, List.of(new ImmediateValue('\n')));
+                    currBasicBlock.createCallInst(irModule.getBuildInPutCh(), List.of(irModule.getImmediateValue('\n')));
                     i++;
                 } else {
-                    currBasicBlock.createCallInst(Function.BUILD_IN_PUTCH, List.of(new ImmediateValue(ch)));
+                    currBasicBlock.createCallInst(irModule.getBuildInPutCh(), List.of(irModule.getImmediateValue(ch)));
                 }
             }
         } catch (IndexOutOfBoundsException e) {
@@ -943,35 +1276,43 @@ public class Visitor {
     }
 
     public VisitResult visitUnaryExpNodeForFuncCall(UnaryExpNodeForFuncCall elm) {
-        var rt = new VisitResult();
-        var sym = currTable.getSymbol(elm.ident);
+        var funcSym = lookUpFunction(elm.ident, elm.identLineNum);
+        if (funcSym == null) {
+            return visitUndefinedName();
+        }
+        return visitFuncCall(funcSym, elm.identLineNum, elm.params == null ? null : visitFuncRParamsNode(elm.params));
+    }
+
+    private FunctionSymbol lookUpFunction(Ident ident, int identLineNum) {
+        var sym = currTable.getSymbol(ident);
         if (sym == null) {
-            errorRecorder.addError(CompileErrorType.UNDEFINED_NAME, elm.identLineNum);
-            rt.expType.type = "int"; // maybe wrong
-            return rt;
+            errorRecorder.addError(CompileErrorType.UNDEFINED_NAME, identLineNum);
+            return null;
         }
-        FunctionSymbol funcSym = (FunctionSymbol) sym;
+        return (FunctionSymbol) sym;
+    }
 
+    // params is null if the call has no arguments
+    private VisitResult visitFuncCall(FunctionSymbol funcSym, int identLineNum, VisitResult params) {
+        var rt = new VisitResult();
         rt.expType = funcSym.retType;
 
-        if (elm.params != null) {
-            var r = visitFuncRParamsNode(elm.params);
-
-            if (elm.params.exps.size() != funcSym.paramTypeList.size()) {
-                errorRecorder.addError(CompileErrorType.NUM_OF_PARAM_NOT_MATCH, elm.identLineNum);
+        if (params != null) {
+            if (params.paramTypes.size() != funcSym.paramTypeList.size()) {
+                errorRecorder.addError(CompileErrorType.NUM_OF_PARAM_NOT_MATCH, identLineNum);
                 return rt;
             }
 
             for (int i = 0; i < funcSym.paramTypeList.size(); i++) {
-                if (!funcSym.paramTypeList.get(i).equals(r.paramTypes.get(i))) {
-                    errorRecorder.addError(CompileErrorType.TYPE_OF_PARAM_NOT_MATCH, elm.identLineNum);
+                if (!funcSym.paramTypeList.get(i).equals(params.paramTypes.get(i))) {
+                    errorRecorder.addError(CompileErrorType.TYPE_OF_PARAM_NOT_MATCH, identLineNum);
                 }
             }
 
-            rt.irValue = currBasicBlock.createCallInst((Function) funcSym.targetValue, r.irValues);
+            rt.irValue = currBasicBlock.createCallInst((Function) funcSym.targetValue, params.irValues);
         } else {
             if (!funcSym.paramTypeList.isEmpty()) {
-                errorRecorder.addError(CompileErrorType.NUM_OF_PARAM_NOT_MATCH, elm.identLineNum);
+                errorRecorder.addError(CompileErrorType.NUM_OF_PARAM_NOT_MATCH, identLineNum);
                 return rt;
             }
 
@@ -986,14 +1327,17 @@ public class Visitor {
     }
 
     public VisitResult visitUnaryExpNodeForUnaryOp(UnaryExpNodeForUnaryOp elm) {
-        var rt = new VisitResult();
         var r = visitUnaryExpNode(elm.exp);
+        return visitUnary(visitUnaryOpNode(elm.op), r);
+    }
+
+    private VisitResult visitUnary(LexType op, VisitResult r) {
+        var rt = new VisitResult();
         var val = r.constVal;
 
         assert r.expType != null;
         rt.expType = r.expType;
         if (val != null) {
-            var op = visitUnaryOpNode(elm.op);
             if (op == LexType.MINU) {
                 rt.constVal = -val;
             } else if (op == LexType.PLUS) {
@@ -1003,13 +1347,12 @@ public class Visitor {
             }
         }
         if (currBasicBlock != null) {
-            var op = visitUnaryOpNode(elm.op);
             if (op == LexType.MINU) {
-                rt.irValue = currBasicBlock.createSubInst(new ImmediateValue(0), r.irValue);
+                rt.irValue = currBasicBlock.createSubInst(irModule.getImmediateValue(0), r.irValue);
             } else if (op == LexType.PLUS) {
                 rt.irValue = r.irValue; // if op is +, do nothing
             } else {
-                rt.irValue = currBasicBlock.createICmpInst(ICmpInstCond.EQ, new ImmediateValue(0), r.irValue);
+                rt.irValue = currBasicBlock.createICmpInst(ICmpInstCond.EQ, irModule.getImmediateValue(0), r.irValue);
             }
         }
         return rt;
@@ -1057,7 +1400,7 @@ public class Visitor {
                 varSym.values.addAll(r.constInitVals);
             }
             var globalVar = irModule.createGlobalValue(IRType.getInt().dims(varSym.varType.dims), varSym.values);
-            globalVar.setName(varSym.ident);
+            globalVar.setName(varSym.ident.getName());
             varSym.targetValue = globalVar;
         } else {
             var localVar = currFunction.getFirstBasicBlock().createAllocaInstAndInsertToFront(IRType.getInt().dims(varSym.varType.dims));
@@ -1077,10 +1420,10 @@ public class Visitor {
                         }
 
                         var initVal = initValues.get(i);
-                        var arrayPtr = currBasicBlock.createGetElementPtrInst(varSym.targetValue, List.of(new ImmediateValue(0), new ImmediateValue(0)));
+                        var arrayPtr = currBasicBlock.createGetElementPtrInst(varSym.targetValue, List.of(irModule.getImmediateValue(0), irModule.getImmediateValue(0)));
                         for (int j = 0; j < idxs.length; j++) {
                             var visitIdx = idxs[j];
-                            List<Value> offsets = j == idxs.length - 1 ? List.of(new ImmediateValue(visitIdx)) : List.of(new ImmediateValue(visitIdx), new ImmediateValue(0));
+                            List<Value> offsets = j == idxs.length - 1 ? List.of(irModule.getImmediateValue(visitIdx)) : List.of(irModule.getImmediateValue(visitIdx), irModule.getImmediateValue(0));
                             arrayPtr = currBasicBlock.createGetElementPtrInst(arrayPtr, offsets);
                         }
                         currBasicBlock.createStoreInst(initVal, arrayPtr);
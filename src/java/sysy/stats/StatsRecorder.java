@@ -0,0 +1,139 @@
+package sysy.stats;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class StatsRecorder {
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final Map<String, PhaseStats> phases = new LinkedHashMap<>();
+
+    public static class PhaseStats {
+        private final String name;
+        private int runs = 0;
+        private long nanos = 0;
+        private long bytes = 0;
+        private final Map<String, Long> counters = new LinkedHashMap<>();
+
+        private PhaseStats(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getRuns() {
+            return runs;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public Map<String, Long> getCounters() {
+            return counters;
+        }
+    }
+
+    // time and allocation are taken from the current thread, so a timer must be resumed and paused on one thread
+    public class Timer {
+        private final String phase;
+        private long nanos = 0;
+        private long bytes = 0;
+        private long startNanos;
+        private long startBytes;
+
+        private Timer(String phase) {
+            this.phase = phase;
+        }
+
+        public void resume() {
+            startBytes = THREAD_BEAN.getCurrentThreadAllocatedBytes();
+            startNanos = System.nanoTime();
+        }
+
+        public void pause() {
+            nanos += System.nanoTime() - startNanos;
+            bytes += THREAD_BEAN.getCurrentThreadAllocatedBytes() - startBytes;
+        }
+
+        public void stop() {
+            pause();
+            record(phase, nanos, bytes);
+        }
+    }
+
+    public Timer timer(String phase) {
+        getPhase(phase); // phases are listed in the order they are first started, so outer phases come first
+        return new Timer(phase);
+    }
+
+    public Timer start(String phase) {
+        var timer = timer(phase);
+        timer.resume();
+        return timer;
+    }
+
+    public synchronized void record(String phase, long nanos, long bytes) {
+        var stats = getPhase(phase);
+        stats.runs++;
+        stats.nanos += nanos;
+        stats.bytes += bytes;
+    }
+
+    public synchronized void count(String phase, String counter, long amount) {
+        getPhase(phase).counters.merge(counter, amount, Long::sum);
+    }
+
+    public synchronized List<PhaseStats> getPhases() {
+        return new ArrayList<>(phases.values());
+    }
+
+    private synchronized PhaseStats getPhase(String phase) {
+        return phases.computeIfAbsent(phase, PhaseStats::new);
+    }
+
+    public synchronized void dumpTable(PrintStream out) {
+        int width = 5;
+        for (var name : phases.keySet()) {
+            width = Math.max(width, name.length());
+        }
+
+        // a phase named "a.b" runs inside phase "a", so its time and allocation are also counted in "a"
+        out.printf("%-" + width + "s  %6s  %12s  %12s  %s%n", "phase", "runs", "time(ms)", "alloc(KB)", "counters");
+        for (var stats : phases.values()) {
+            out.printf("%-" + width + "s  %6d  %12.3f  %12.1f", stats.name, stats.runs, stats.nanos / 1e6, stats.bytes / 1e3);
+            var separator = "  ";
+            for (var counter : stats.counters.entrySet()) {
+                out.printf("%s%s=%d", separator, counter.getKey(), counter.getValue());
+                separator = ", ";
+            }
+            out.println();
+        }
+    }
+
+    public synchronized void dumpJson(PrintStream out) {
+        out.println("{\"phases\": [");
+        int i = 0;
+        for (var stats : phases.values()) {
+            out.printf("  {\"name\": \"%s\", \"runs\": %d, \"nanos\": %d, \"allocatedBytes\": %d, \"counters\": {",
+                    stats.name, stats.runs, stats.nanos, stats.bytes);
+            int j = 0;
+            for (var counter : stats.counters.entrySet()) {
+                out.printf("%s\"%s\": %d", j++ == 0 ? "" : ", ", counter.getKey(), counter.getValue());
+            }
+            out.println(++i < phases.size() ? "}}," : "}}");
+        }
+        out.println("]}");
+    }
+}
@@ -0,0 +1,56 @@
+package sysy.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// the phases of PhaseBenchmark under jmh, for throughput with the numbers jmh gives about them. the allocation rate
+// comes from running it with -prof gc. the input of a phase is rebuilt before every invocation, like PhaseBenchmark
+// does, since most phases change what they are given
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xss64m", "-Xmx4g"})
+public class JmhPhaseBenchmark {
+    @Param({"Lexer.next", "Parser.parse", "Parser.parse pipelined", "FlatParser.parse",
+            "Visitor.generateIR", "Visitor.generateIR flat",
+            "Mem2RegPass", "SCCPPass", "GVNPass", "DeadStoreEliminationPass",
+            "DeadCodeEliminationPass", "DeadCodeEliminationPass ssa",
+            "Translator.translate", "Translator.translate opt", "Target.dump"})
+    public String phase;
+
+    // a file in testfiles (the directory is the sysy.bench.testfiles property) or scaled-<lines> for a generated
+    // program. testfile6 is left out since it does not parse, and scaled-500000 has to be asked for, with a heap
+    // larger than -Xmx4g
+    @Param({"testfile1.txt", "testfile2.txt", "testfile3.txt", "testfile4.txt", "testfile5.txt", "testfile7.txt",
+            "scaled-10000", "scaled-100000"})
+    public String input;
+
+    private PhaseBenchmark.Phase benchmarkPhase;
+    private String source;
+    private PhaseBenchmark.Operation operation;
+
+    @Setup(Level.Trial)
+    public void loadInput() throws Exception {
+        benchmarkPhase = PhaseBenchmark.findPhase(phase);
+        if (input.startsWith("scaled-")) {
+            source = PhaseBenchmark.generateScaled(Integer.parseInt(input.substring("scaled-".length())));
+        } else {
+            source = Files.readString(Path.of(System.getProperty("sysy.bench.testfiles", "testfiles"), input));
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void prepare() throws Exception {
+        operation = benchmarkPhase.setup.prepare(source);
+    }
+
+    @Benchmark
+    public void run() throws Exception {
+        operation.run();
+    }
+}